@@ -0,0 +1,93 @@
+-- WAL volume of visit counting: increments on the wide urls row versus the narrow url_visits table.
+--
+-- Run against a scratch database (the script creates and drops its own tables):
+--   psql -v clicks=1000000 -v urls=100000 -f benchmark/wal_per_click.sql <database>
+--
+-- Each layout gets the same number of random increments. Every increment is its own transaction, as clicks are
+-- in the application. The WAL position is read before and after each run. Tuple counts of HOT and non-HOT updates
+-- are printed from pg_stat_user_tables, which the statistics collector may report with a short delay.
+
+\set ON_ERROR_STOP on
+\if :{?clicks}
+\else
+\set clicks 1000000
+\endif
+\if :{?urls}
+\else
+\set urls 100000
+\endif
+
+DROP TABLE IF EXISTS bench_url_visits, bench_urls_wide, bench_urls_narrow;
+
+-- Layout before V4: the counter lives in the urls row next to the long URL
+CREATE TABLE bench_urls_wide
+(
+    id             BIGSERIAL PRIMARY KEY,
+    short_url_code VARCHAR(50) UNIQUE,
+    long_url       VARCHAR(2000)                       NOT NULL,
+    visits         BIGINT    DEFAULT 0                 NOT NULL,
+    created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    expires_at     TIMESTAMP,
+    user_id        BIGINT                              NOT NULL
+);
+
+-- Layout after V4: the counter lives in its own table with room for HOT updates
+CREATE TABLE bench_urls_narrow (LIKE bench_urls_wide INCLUDING ALL);
+ALTER TABLE bench_urls_narrow DROP COLUMN visits;
+CREATE TABLE bench_url_visits
+(
+    url_id BIGINT PRIMARY KEY REFERENCES bench_urls_narrow (id) ON DELETE CASCADE,
+    visits BIGINT DEFAULT 0 NOT NULL
+) WITH (fillfactor = 70);
+
+INSERT INTO bench_urls_wide (short_url_code, long_url, user_id)
+SELECT md5(g::text), 'https://www.example.com/' || repeat(md5(g::text), 12), 1
+FROM generate_series(1, :urls) g;
+INSERT INTO bench_urls_narrow (id, short_url_code, long_url, user_id)
+SELECT id, short_url_code, long_url, user_id
+FROM bench_urls_wide;
+INSERT INTO bench_url_visits (url_id)
+SELECT id
+FROM bench_urls_narrow;
+
+VACUUM ANALYZE bench_urls_wide, bench_urls_narrow, bench_url_visits;
+CHECKPOINT;
+
+CREATE OR REPLACE PROCEDURE bench_clicks(statement TEXT, clicks BIGINT, urls BIGINT)
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    FOR i IN 1..clicks
+        LOOP
+            EXECUTE statement USING 1 + floor(random() * urls)::BIGINT;
+            COMMIT;
+        END LOOP;
+END
+$$;
+
+SELECT pg_current_wal_insert_lsn() AS wide_start \gset
+CALL bench_clicks('UPDATE bench_urls_wide SET visits = visits + 1 WHERE id = $1', :clicks, :urls);
+SELECT pg_current_wal_insert_lsn() AS wide_end \gset
+
+CHECKPOINT;
+
+SELECT pg_current_wal_insert_lsn() AS narrow_start \gset
+CALL bench_clicks('UPDATE bench_url_visits SET visits = visits + 1 WHERE url_id = $1', :clicks, :urls);
+SELECT pg_current_wal_insert_lsn() AS narrow_end \gset
+
+SELECT 'urls.visits (wide row)'                                                          AS layout,
+       pg_size_pretty(pg_wal_lsn_diff(:'wide_end', :'wide_start'))                       AS wal_total,
+       round(pg_wal_lsn_diff(:'wide_end', :'wide_start') / :clicks::numeric, 1)         AS wal_bytes_per_click,
+       pg_size_pretty(pg_total_relation_size('bench_urls_wide'))                         AS table_size
+UNION ALL
+SELECT 'url_visits (narrow row)',
+       pg_size_pretty(pg_wal_lsn_diff(:'narrow_end', :'narrow_start')),
+       round(pg_wal_lsn_diff(:'narrow_end', :'narrow_start') / :clicks::numeric, 1),
+       pg_size_pretty(pg_total_relation_size('bench_url_visits'));
+
+SELECT relname, n_tup_upd, n_tup_hot_upd
+FROM pg_stat_user_tables
+WHERE relname IN ('bench_urls_wide', 'bench_url_visits');
+
+DROP PROCEDURE bench_clicks(TEXT, BIGINT, BIGINT);
+DROP TABLE bench_url_visits, bench_urls_wide, bench_urls_narrow;
@@ -0,0 +1,23 @@
+package com.urlshortener.config.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method whose work belongs to the given {@link Workload}.
+ * <p>
+ * The call takes a slot of the workload's {@link Bulkheads} and its database work runs on the workload's
+ * connection pool, so a slow workload cannot exhaust the threads and connections of the others.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+
+    /**
+     * The workload of the method.
+     */
+    Workload value();
+}
@@ -0,0 +1,41 @@
+package com.urlshortener.config.bulkhead;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aspect running {@link Bulkhead} methods within the bulkhead of their workload.
+ * <p>
+ * It runs before the transaction interceptor, so the workload is known when the transaction fetches its
+ * connection, and a rejected call never holds one. Nested calls stay in the bulkhead of the outermost method.
+ * </p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class BulkheadAspect {
+    private final Bulkheads bulkheads;
+
+    @Around("@annotation(bulkhead)")
+    public Object isolate(ProceedingJoinPoint joinPoint, Bulkhead bulkhead) throws Throwable {
+        if (WorkloadContext.current() != null) {
+            return joinPoint.proceed();
+        }
+
+        Workload workload = bulkhead.value();
+        bulkheads.acquire(workload);
+        WorkloadContext.set(workload);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            WorkloadContext.clear();
+            bulkheads.release(workload);
+        }
+    }
+}
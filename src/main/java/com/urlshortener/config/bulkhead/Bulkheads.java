@@ -0,0 +1,109 @@
+package com.urlshortener.config.bulkhead;
+
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.urlshortener.util.MessageProvider.SERVER_OVERLOADED_MESSAGE;
+
+/**
+ * Concurrency limits of the {@link Workload}s, enabled by {@code bulkhead.enabled}.
+ * <p>
+ * Every workload may run at most {@code bulkhead.<workload>.max-concurrent-calls} calls at once, so
+ * slow statistics cannot occupy all request threads while redirects wait. A call finding its workload full
+ * waits up to {@code bulkhead.max-wait} for a slot and then fails with a {@link ServiceUnavailableException}.
+ * </p>
+ * <p>
+ * The saturation of each bulkhead is published as {@code urlshortener.bulkhead.calls.active} and
+ * {@code urlshortener.bulkhead.calls.max}, rejected calls as {@code urlshortener.bulkhead.rejected}.
+ * </p>
+ */
+@Component
+public class Bulkheads {
+    private final boolean enabled;
+    private final Duration maxWait;
+    private final Map<Workload, Semaphore> slots = new EnumMap<>(Workload.class);
+    private final Map<Workload, Counter> rejected = new EnumMap<>(Workload.class);
+
+    @Autowired
+    public Bulkheads(MeterRegistry registry,
+                     @Value("${bulkhead.enabled:true}") boolean enabled,
+                     @Value("${bulkhead.resolve.max-concurrent-calls:150}") int resolveMaxConcurrentCalls,
+                     @Value("${bulkhead.write.max-concurrent-calls:50}") int writeMaxConcurrentCalls,
+                     @Value("${bulkhead.analytics.max-concurrent-calls:10}") int analyticsMaxConcurrentCalls,
+                     @Value("${bulkhead.max-wait:PT0.1S}") Duration maxWait) {
+        this(registry, enabled, Map.of(
+                Workload.RESOLVE, resolveMaxConcurrentCalls,
+                Workload.WRITE, writeMaxConcurrentCalls,
+                Workload.ANALYTICS, analyticsMaxConcurrentCalls), maxWait);
+    }
+
+    Bulkheads(MeterRegistry registry, boolean enabled, Map<Workload, Integer> maxConcurrentCalls, Duration maxWait) {
+        this.enabled = enabled;
+        this.maxWait = maxWait;
+
+        for (Workload workload : Workload.values()) {
+            int max = maxConcurrentCalls.get(workload);
+            Semaphore semaphore = new Semaphore(max);
+            slots.put(workload, semaphore);
+
+            String tag = workload.name().toLowerCase();
+            rejected.put(workload, Counter.builder("urlshortener.bulkhead.rejected")
+                    .description("Calls rejected because their bulkhead stayed full")
+                    .tag("workload", tag)
+                    .register(registry));
+            Gauge.builder("urlshortener.bulkhead.calls.active", semaphore, s -> max - s.availablePermits())
+                    .description("Calls currently running in the bulkhead")
+                    .tag("workload", tag)
+                    .register(registry);
+            Gauge.builder("urlshortener.bulkhead.calls.max", () -> max)
+                    .description("Maximum number of calls running in the bulkhead at once")
+                    .tag("workload", tag)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Takes a slot of the workload's bulkhead, waiting up to {@code bulkhead.max-wait} for one.
+     *
+     * @param workload the workload
+     * @throws ServiceUnavailableException if no slot became free in time
+     */
+    public void acquire(Workload workload) {
+        if (!enabled) {
+            return;
+        }
+
+        Semaphore semaphore = slots.get(workload);
+        try {
+            if (semaphore.tryAcquire() || semaphore.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.get(workload).increment();
+        throw new ServiceUnavailableException(SERVER_OVERLOADED_MESSAGE, null);
+    }
+
+    /**
+     * Returns a slot taken by {@link #acquire(Workload)}.
+     *
+     * @param workload the workload
+     */
+    public void release(Workload workload) {
+        if (enabled) {
+            slots.get(workload).release();
+        }
+    }
+}
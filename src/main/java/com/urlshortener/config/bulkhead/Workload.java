@@ -0,0 +1,27 @@
+package com.urlshortener.config.bulkhead;
+
+/**
+ * Kinds of work isolated from each other by their own connection pool and concurrency limit.
+ */
+public enum Workload {
+
+    /**
+     * Resolving short URL codes, the latency-critical redirect path.
+     */
+    RESOLVE,
+
+    /**
+     * Creating, updating and deleting URLs, and all work not marked with {@link Bulkhead}.
+     */
+    WRITE,
+
+    /**
+     * Statistics over the URLs of a user, which may read many rows.
+     */
+    ANALYTICS;
+
+    /**
+     * Workload of database work outside of any {@link Bulkhead} method.
+     */
+    public static final Workload DEFAULT = WRITE;
+}
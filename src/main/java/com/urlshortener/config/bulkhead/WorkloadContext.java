@@ -0,0 +1,41 @@
+package com.urlshortener.config.bulkhead;
+
+/**
+ * Holder of the {@link Workload} the current thread works for.
+ * <p>
+ * The workload is bound by {@link BulkheadAspect} and read by {@link WorkloadRoutingDataSource} when
+ * a physical connection is fetched. Without a bound workload, connections go to the pool of
+ * {@link Workload#DEFAULT}.
+ * </p>
+ */
+public final class WorkloadContext {
+    private static final ThreadLocal<Workload> CURRENT_WORKLOAD = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /**
+     * Returns the workload bound to the current thread.
+     *
+     * @return the bound workload, or {@code null} if none is bound
+     */
+    public static Workload current() {
+        return CURRENT_WORKLOAD.get();
+    }
+
+    /**
+     * Binds the given workload to the current thread.
+     *
+     * @param workload the workload
+     */
+    public static void set(Workload workload) {
+        CURRENT_WORKLOAD.set(workload);
+    }
+
+    /**
+     * Removes the workload bound to the current thread.
+     */
+    public static void clear() {
+        CURRENT_WORKLOAD.remove();
+    }
+}
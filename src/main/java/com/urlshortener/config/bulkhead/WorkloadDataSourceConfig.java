@@ -0,0 +1,92 @@
+package com.urlshortener.config.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration of a separate connection pool per {@link Workload}, enabled by {@code datasource.bulkheads.enabled}.
+ * <p>
+ * All pools connect to the database configured by {@code spring.datasource}, sized by
+ * {@code datasource.bulkheads.<workload>.maximum-pool-size}, so statistics holding their connections
+ * for seconds leave the connections of redirects untouched. Their saturation is published as
+ * the {@code hikaricp.connections.*} metrics tagged with the pool name {@code bulkhead-<workload>}.
+ * The pools replace the default data source and cannot be combined with read replicas or sharding.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.bulkheads.enabled", havingValue = "true")
+public class WorkloadDataSourceConfig {
+
+    public WorkloadDataSourceConfig(@Value("${datasource.replicas.enabled:false}") boolean replicasEnabled,
+                                    @Value("${datasource.shards.enabled:false}") boolean shardsEnabled) {
+        if (replicasEnabled || shardsEnabled) {
+            throw new IllegalStateException(
+                    "datasource.bulkheads.enabled cannot be combined with datasource.replicas.enabled or datasource.shards.enabled");
+        }
+    }
+
+    /**
+     * Creates the connection pools of all workloads and the data source routing between them.
+     *
+     * @param properties               the standard data source properties
+     * @param registry                 the registry the pool metrics are published to
+     * @param connectionTimeout        the time to wait for a connection of a pool, in milliseconds
+     * @param resolveMaximumPoolSize   the maximum pool size of {@link Workload#RESOLVE}
+     * @param writeMaximumPoolSize     the maximum pool size of {@link Workload#WRITE}
+     * @param analyticsMaximumPoolSize the maximum pool size of {@link Workload#ANALYTICS}
+     * @return the workload routing data source
+     */
+    @Bean
+    public WorkloadRoutingDataSource workloadRoutingDataSource(
+            DataSourceProperties properties,
+            MeterRegistry registry,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout,
+            @Value("${datasource.bulkheads.resolve.maximum-pool-size:10}") int resolveMaximumPoolSize,
+            @Value("${datasource.bulkheads.write.maximum-pool-size:5}") int writeMaximumPoolSize,
+            @Value("${datasource.bulkheads.analytics.maximum-pool-size:3}") int analyticsMaximumPoolSize) {
+        Map<Workload, Integer> maximumPoolSizes = Map.of(
+                Workload.RESOLVE, resolveMaximumPoolSize,
+                Workload.WRITE, writeMaximumPoolSize,
+                Workload.ANALYTICS, analyticsMaximumPoolSize);
+        MicrometerMetricsTrackerFactory metricsTrackerFactory = new MicrometerMetricsTrackerFactory(registry);
+
+        Map<Workload, DataSource> pools = new EnumMap<>(Workload.class);
+        for (Workload workload : Workload.values()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("bulkhead-" + workload.name().toLowerCase());
+            dataSource.setJdbcUrl(properties.determineUrl());
+            dataSource.setUsername(properties.determineUsername());
+            dataSource.setPassword(properties.determinePassword());
+            dataSource.setMaximumPoolSize(maximumPoolSizes.get(workload));
+            dataSource.setConnectionTimeout(connectionTimeout);
+            dataSource.setMetricsTrackerFactory(metricsTrackerFactory);
+            pools.put(workload, dataSource);
+        }
+        return new WorkloadRoutingDataSource(pools);
+    }
+
+    /**
+     * Creates the application data source. The physical connection is fetched on the first statement,
+     * when the workload of the current work is already bound.
+     *
+     * @param workloadRoutingDataSource the workload routing data source
+     * @return the application data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(WorkloadRoutingDataSource workloadRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(workloadRoutingDataSource);
+    }
+}
@@ -0,0 +1,48 @@
+package com.urlshortener.config.bulkhead;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link DataSource} routing connections to the pool of the workload bound in {@link WorkloadContext}.
+ */
+@Slf4j
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private final Map<Workload, DataSource> pools;
+
+    /**
+     * @param pools the data sources of the workloads, one for every {@link Workload}
+     */
+    public WorkloadRoutingDataSource(Map<Workload, DataSource> pools) {
+        this.pools = pools;
+
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(Workload.DEFAULT));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Workload workload = WorkloadContext.current();
+        return workload == null ? Workload.DEFAULT : workload;
+    }
+
+    @Override
+    public void close() {
+        for (DataSource pool : pools.values()) {
+            if (pool instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Unable to close workload data source: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.urlshortener.config.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.error.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.urlshortener.util.MessageProvider.SERVER_OVERLOADED_MESSAGE;
+
+/**
+ * Filter shedding requests when the application is overloaded, enabled by {@code concurrency-limit.enabled}.
+ * <p>
+ * Every {@link RouteClass} has its own {@link GradientConcurrencyLimit} adapted to the latency of its requests.
+ * A request is rejected right away with {@code 503 Service Unavailable} and a {@code Retry-After} header when its
+ * class has no free slot, or when a class of higher priority is {@linkplain GradientConcurrencyLimit#isCongested()
+ * congested}, instead of waiting in the Tomcat queue until it times out. A higher priority class that merely uses
+ * all of its slots does not shed the others. Actuator endpoints are not limited, so health checks keep answering
+ * under overload. Limits, requests in flight and shed requests are published per route as
+ * {@code urlshortener.http.concurrency.*}.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final ObjectMapper objectMapper;
+    private final String retryAfterSeconds;
+    private final Map<RouteClass, GradientConcurrencyLimit> limits = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, Counter> shed = new EnumMap<>(RouteClass.class);
+
+    @Autowired
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                                  MeterRegistry registry,
+                                  @Value("${concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${concurrency-limit.min-limit:4}") int minLimit,
+                                  @Value("${concurrency-limit.max-limit:500}") int maxLimit,
+                                  @Value("${concurrency-limit.window-size:50}") int windowSize,
+                                  @Value("${concurrency-limit.retry-after:PT1S}") Duration retryAfter) {
+        this(objectMapper, registry, retryAfter,
+                routeClass -> new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, windowSize));
+    }
+
+    ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                           MeterRegistry registry,
+                           Duration retryAfter,
+                           Function<RouteClass, GradientConcurrencyLimit> limitFactory) {
+        this.objectMapper = objectMapper;
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+
+        for (RouteClass routeClass : RouteClass.values()) {
+            GradientConcurrencyLimit limit = limitFactory.apply(routeClass);
+            String route = routeClass.name().toLowerCase();
+            limits.put(routeClass, limit);
+            shed.put(routeClass, Counter.builder("urlshortener.http.concurrency.shed")
+                    .description("Requests rejected because the concurrency limit of their route was reached")
+                    .tag("route", route)
+                    .register(registry));
+            Gauge.builder("urlshortener.http.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit of the route")
+                    .tag("route", route)
+                    .register(registry);
+            Gauge.builder("urlshortener.http.concurrency.inflight", limit, GradientConcurrencyLimit::getInflight)
+                    .description("Requests of the route being processed")
+                    .tag("route", route)
+                    .register(registry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith(ACTUATOR_PATH);
+    }
+
+    /**
+     * Processes the request within a slot of its route class, or rejects it if no slot is available.
+     *
+     * @param request     the HTTP request
+     * @param response    the HTTP response
+     * @param filterChain the filter chain to continue processing the request
+     * @throws ServletException if an error occurs during request processing
+     * @throws IOException      if an I/O error occurs during request processing
+     */
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteClass routeClass = RouteClass.of(request);
+        GradientConcurrencyLimit limit = limits.get(routeClass);
+
+        if (isHigherPriorityCongested(routeClass) || !limit.tryAcquire()) {
+            shed.get(routeClass).increment();
+            reject(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.release(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isHigherPriorityCongested(RouteClass routeClass) {
+        for (Map.Entry<RouteClass, GradientConcurrencyLimit> entry : limits.entrySet()) {
+            if (entry.getKey().getPriority() < routeClass.getPriority() && entry.getValue().isCongested()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.createErrorResponse(
+                request.getRequestURI(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                SERVER_OVERLOADED_MESSAGE
+        );
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
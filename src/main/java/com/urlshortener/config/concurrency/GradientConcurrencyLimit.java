@@ -0,0 +1,156 @@
+package com.urlshortener.config.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit adapted to the measured latency with a gradient algorithm.
+ * <p>
+ * Latencies are averaged over windows of {@code windowSize} requests. The average of a window is compared with
+ * a slowly moving long-term average: while they match, the limit grows by its square root per window; once the
+ * window gets slower than {@code tolerance} times the long-term average, requests are queueing somewhere and
+ * the limit shrinks in proportion, down to half per window. Changes are smoothed, and the limit does not grow
+ * in windows that never used half of it, because such windows say nothing about the capacity.
+ * </p>
+ * <p>
+ * The route counts as congested, so that routes of lower priority are shed, only after {@value #CONGESTED_WINDOWS}
+ * slow windows in a row: a single slow window is often a few slow requests among fast ones or a GC pause, and
+ * all slots being taken is normal saturation handled by the limit itself. The verdict lasts as long as the last
+ * window took, between one and ten seconds, so it expires when traffic stops instead of waiting for the next
+ * window to complete.
+ * </p>
+ * <p>
+ * Acquiring and releasing are lock-free; the window is recomputed by the request that completes it.
+ * </p>
+ */
+public class GradientConcurrencyLimit {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW_WEIGHT = 2.0 / (100 + 1);
+    private static final long MIN_CONGESTION_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_CONGESTION_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int CONGESTED_WINDOWS = 3;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final LongSupplier nanoTime;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder windowNanos = new LongAdder();
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final AtomicInteger windowMaxInflight = new AtomicInteger();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private volatile double limit;
+    private volatile boolean congested;
+    private volatile long congestedUntilNanos;
+    private int slowWindows;
+    private long windowStartNanos;
+    private double longRttNanos;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int windowSize) {
+        this(initialLimit, minLimit, maxLimit, windowSize, System::nanoTime);
+    }
+
+    GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int windowSize, LongSupplier nanoTime) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.nanoTime = nanoTime;
+        this.windowStartNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Takes a slot if fewer requests than the limit are in flight.
+     *
+     * @return {@code true} if the request may proceed and must {@linkplain #release(long) release} the slot
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        for (int current = inflight.get(); current < limit; current = inflight.get()) {
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the slot of a completed request and records its latency.
+     *
+     * @param rttNanos the processing time of the request in nanoseconds
+     */
+    public void release(long rttNanos) {
+        int inflightBefore = inflight.getAndDecrement();
+        windowNanos.add(rttNanos);
+        if (inflightBefore > windowMaxInflight.get()) {
+            windowMaxInflight.accumulateAndGet(inflightBefore, Math::max);
+        }
+
+        if (windowCount.incrementAndGet() >= windowSize && updating.compareAndSet(false, true)) {
+            try {
+                int count = windowCount.getAndSet(0);
+                long nanos = windowNanos.sumThenReset();
+                long now = nanoTime.getAsLong();
+                boolean slow = update((double) nanos / Math.max(1, count), windowMaxInflight.getAndSet(0));
+                slowWindows = slow ? slowWindows + 1 : 0;
+                congested = slowWindows >= CONGESTED_WINDOWS;
+                if (congested) {
+                    long windowNanos = now - windowStartNanos;
+                    congestedUntilNanos = now + Math.max(MIN_CONGESTION_NANOS, Math.min(MAX_CONGESTION_NANOS, windowNanos));
+                }
+                windowStartNanos = now;
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * Checks whether the latency of the recent windows exceeded the tolerance for several windows in a row.
+     */
+    public boolean isCongested() {
+        return congested && nanoTime.getAsLong() - congestedUntilNanos < 0;
+    }
+
+    /**
+     * Adapts the limit to the latency of the completed window.
+     *
+     * @return {@code true} if the window was slower than the tolerance
+     */
+    private boolean update(double shortRttNanos, int maxInflight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+        } else {
+            longRttNanos += (shortRttNanos - longRttNanos) * LONG_WINDOW_WEIGHT;
+        }
+        // After a long slow period the long-term average drifts up; let it recover faster when latency drops
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        boolean slow = gradient < 1.0;
+
+        double estimated = limit;
+        if (!slow && maxInflight < estimated / 2) {
+            return false;
+        }
+
+        double target = estimated * gradient + Math.sqrt(estimated);
+        double smoothed = estimated * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+        return slow;
+    }
+}
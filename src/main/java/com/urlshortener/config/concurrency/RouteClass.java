@@ -0,0 +1,66 @@
+package com.urlshortener.config.concurrency;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Classes of HTTP routes that are limited separately by the {@link ConcurrencyLimitFilter}.
+ * <p>
+ * A lower {@code priority} value is more important: requests of a class are shed as soon as a class
+ * with a lower value is congested, so redirects keep their capacity when statistics or logins pile up.
+ * </p>
+ */
+public enum RouteClass {
+    /**
+     * Resolves of short URL codes, {@code POST /api/v1/url/{code}}.
+     */
+    RESOLVE(0),
+    /**
+     * Changes of URLs and other API calls.
+     */
+    API(1),
+    /**
+     * URL statistics, {@code /api/v1/url/all}, {@code /active} and {@code /visits/{code}}.
+     */
+    STATS(2),
+    /**
+     * Authentication, {@code /api/v1/auth/**}, dominated by password hashing.
+     */
+    AUTH(2);
+
+    private static final String URL_PATH = "/api/v1/url/";
+    private static final String AUTH_PATH = "/api/v1/auth/";
+
+    private final int priority;
+
+    RouteClass(int priority) {
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns the class of the given request.
+     *
+     * @param request the HTTP request
+     * @return the route class
+     */
+    public static RouteClass of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+
+        if (path.startsWith(URL_PATH)) {
+            if ("GET".equals(request.getMethod())) {
+                return STATS;
+            }
+            if ("POST".equals(request.getMethod()) && path.indexOf('/', URL_PATH.length()) < 0) {
+                return RESOLVE;
+            }
+            return API;
+        }
+        if (path.startsWith(AUTH_PATH)) {
+            return AUTH;
+        }
+        return API;
+    }
+}
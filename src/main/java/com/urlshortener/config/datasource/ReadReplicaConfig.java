@@ -0,0 +1,97 @@
+package com.urlshortener.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of read-replica routing, enabled by {@code datasource.replicas.enabled}.
+ * <p>
+ * The application data source is a {@link LazyConnectionDataSourceProxy} over the primary pool.
+ * The physical connection is fetched on the first statement, when the transaction's read-only flag
+ * is already known: {@code @Transactional(readOnly = true)} work goes to the {@link ReplicaDataSource},
+ * everything else, including Flyway migrations, to the primary.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    /**
+     * Creates the connection pool of the primary database from the {@code spring.datasource} properties.
+     *
+     * @param properties the standard data source properties
+     * @return the primary connection pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    /**
+     * Creates one read-only connection pool per replica URL.
+     *
+     * @param urls                  the JDBC URLs of the replicas
+     * @param username              the user for the replicas
+     * @param password              the password for the replicas
+     * @param maximumPoolSize       the maximum pool size of each replica
+     * @param maxLag                the replication lag above which a replica is taken out of rotation
+     * @param primaryDataSource     the primary pool used when no replica is available
+     * @param readYourWritesTracker the tracker of recent writers
+     * @return the load-balancing replica data source
+     */
+    @Bean
+    public ReplicaDataSource replicaDataSource(
+            @Value("${datasource.replicas.urls}") List<String> urls,
+            @Value("${datasource.replicas.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.replicas.password:${spring.datasource.password}}") String password,
+            @Value("${datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${datasource.replicas.max-lag:PT10S}") Duration maxLag,
+            HikariDataSource primaryDataSource,
+            ReadYourWritesTracker readYourWritesTracker) {
+        List<DataSource> replicas = new ArrayList<>();
+
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls.get(i));
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+
+        return new ReplicaDataSource(replicas, primaryDataSource, readYourWritesTracker, maxLag);
+    }
+
+    /**
+     * Creates the application data source routing read-only transactions to the replicas.
+     *
+     * @param primaryDataSource the primary pool
+     * @param replicaDataSource the replica data source
+     * @return the routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
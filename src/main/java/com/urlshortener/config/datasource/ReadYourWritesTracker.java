@@ -0,0 +1,62 @@
+package com.urlshortener.config.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.security.CustomUserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Component remembering the users that recently changed their URLs.
+ * <p>
+ * Replicas apply the primary's changes with a delay, so a user reading right after a create or update
+ * could miss the own change. For {@code datasource.replicas.read-your-writes-window} after a write,
+ * read-only transactions of that user are served by the primary. A zero window disables the tracking.
+ * </p>
+ */
+@Component
+public class ReadYourWritesTracker {
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(
+            @Value("${datasource.replicas.read-your-writes-window:0s}") Duration window) {
+        this.recentWriters = window.isZero()
+                ? null
+                : Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    /**
+     * Records a write made by the given user.
+     *
+     * @param userId the ID of the user who changed data
+     */
+    public void recordWrite(Long userId) {
+        if (recentWriters != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Checks whether the authenticated user of the current request wrote data within the window.
+     *
+     * @return {@code true} if the current user has to read from the primary
+     */
+    public boolean isRecentWriter() {
+        if (recentWriters == null) {
+            return false;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails userDetails) {
+            return recentWriters.getIfPresent(userDetails.user().getId()) != null;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,182 @@
+package com.urlshortener.config.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DataSource} serving read-only connections from a set of replicas.
+ * <p>
+ * Connections are taken from the healthy replicas in round-robin order. A replica is marked unhealthy
+ * when it refuses a connection or when its replication lag exceeds the configured maximum,
+ * and it is taken back once {@link #checkHealth()} succeeds again. When no replica is available,
+ * or when the current user is within the read-your-writes window, the primary is used instead.
+ * </p>
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements MeterBinder, Closeable {
+
+    /**
+     * Replication lag in seconds; zero when the replica has replayed everything it received.
+     */
+    private static final String REPLICATION_LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private Counter primaryFallbacks;
+
+    public ReplicaDataSource(List<DataSource> replicas,
+                             DataSource primary,
+                             ReadYourWritesTracker readYourWritesTracker,
+                             Duration maxLag) {
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.primary = primary;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.maxLag = maxLag;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("urlshortener.datasource.replicas.healthy", this, ReplicaDataSource::getHealthyReplicas)
+                .description("Replicas currently serving read-only transactions")
+                .register(registry);
+        primaryFallbacks = Counter.builder("urlshortener.datasource.replicas.fallbacks")
+                .description("Read-only connections served by the primary because no replica was available")
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Validates every replica and checks its replication lag, updating its health state.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval:PT5S}")
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+
+                try (ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+                    resultSet.next();
+                    double lagSeconds = resultSet.getDouble(1);
+
+                    if (lagSeconds * 1000 > maxLag.toMillis()) {
+                        replica.markUnhealthy("replication lag of " + lagSeconds + " s");
+                    } else {
+                        replica.markHealthy();
+                    }
+                }
+            } catch (SQLException e) {
+                replica.markUnhealthy(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of replicas currently considered healthy.
+     *
+     * @return the number of healthy replicas
+     */
+    public int getHealthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Unable to close replica data source: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Connection connect(Connector connector) throws SQLException {
+        if (readYourWritesTracker.isRecentWriter()) {
+            return connector.connect(primary);
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+
+            if (replica.healthy) {
+                try {
+                    return connector.connect(replica.dataSource);
+                } catch (SQLException e) {
+                    replica.markUnhealthy(e.getMessage());
+                }
+            }
+        }
+
+        if (primaryFallbacks != null) {
+            primaryFallbacks.increment();
+        }
+        return connector.connect(primary);
+    }
+
+    @FunctionalInterface
+    private interface Connector {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void markHealthy() {
+            if (!healthy) {
+                log.info("Replica {} is back in rotation", dataSource);
+                healthy = true;
+            }
+        }
+
+        private void markUnhealthy(String reason) {
+            if (healthy) {
+                log.warn("Replica {} taken out of rotation: {}", dataSource, reason);
+                healthy = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.urlshortener.config.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * {@link DataSource} limiting every statement to the time left until the {@link RequestDeadline}.
+ * <p>
+ * The remaining time is set as the query timeout of each statement when it is created, so the database cancels
+ * work the client no longer waits for instead of letting it hold the connection. JDBC timeouts have
+ * a granularity of seconds, the remaining time is rounded up. Statements of a request whose deadline has
+ * already passed fail with a {@link SQLTimeoutException} without reaching the database.
+ * </p>
+ */
+public class DeadlineDataSource extends DelegatingDataSource implements Closeable {
+
+    /**
+     * @param targetDataSource the data source whose statements are limited
+     */
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return withDeadline(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return withDeadline(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (obtainTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static Connection withDeadline(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> invoke(connection, method, args));
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        boolean createsStatement = Statement.class.isAssignableFrom(method.getReturnType());
+        Duration remaining = createsStatement ? RequestDeadline.remaining() : null;
+
+        if (remaining != null && (remaining.isNegative() || remaining.isZero())) {
+            throw new SQLTimeoutException("Request deadline exceeded");
+        }
+
+        Object result;
+        try {
+            result = method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+
+        if (remaining != null) {
+            ((Statement) result).setQueryTimeout((int) Math.max(1, (remaining.toMillis() + 999) / 1000));
+        }
+        return result;
+    }
+}
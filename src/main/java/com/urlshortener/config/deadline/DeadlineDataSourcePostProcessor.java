@@ -0,0 +1,29 @@
+package com.urlshortener.config.deadline;
+
+import lombok.NonNull;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application data source in a {@link DeadlineDataSource}, enabled by {@code request-deadline.enabled}.
+ * <p>
+ * Only the bean named {@value #DATA_SOURCE_BEAN}, the primary data source of every datasource configuration, is
+ * wrapped; the pools and routing data sources behind it are left alone, so every statement gets one timeout.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "request-deadline.enabled", havingValue = "true")
+public class DeadlineDataSourcePostProcessor implements BeanPostProcessor {
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource) {
+            return new DeadlineDataSource(dataSource);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,53 @@
+package com.urlshortener.config.deadline;
+
+import java.time.Duration;
+
+/**
+ * Holder of the deadline of the request the current thread works for.
+ * <p>
+ * The deadline is bound by {@link RequestDeadlineFilter} and read by {@link DeadlineDataSource}, which limits
+ * every statement to the time that is left. Threads without a bound deadline, such as scheduled jobs,
+ * run their statements without a timeout.
+ * </p>
+ */
+public final class RequestDeadline {
+    private static final ThreadLocal<Long> CURRENT_DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Returns the deadline bound to the current thread.
+     *
+     * @return the deadline in {@link System#nanoTime()} units, or {@code null} if none is bound
+     */
+    public static Long current() {
+        return CURRENT_DEADLINE.get();
+    }
+
+    /**
+     * Binds the given deadline to the current thread.
+     *
+     * @param deadlineNanos the deadline in {@link System#nanoTime()} units
+     */
+    public static void set(long deadlineNanos) {
+        CURRENT_DEADLINE.set(deadlineNanos);
+    }
+
+    /**
+     * Returns the time left until the deadline bound to the current thread.
+     *
+     * @return the remaining time, negative once the deadline has passed, or {@code null} if no deadline is bound
+     */
+    public static Duration remaining() {
+        Long deadline = CURRENT_DEADLINE.get();
+        return deadline == null ? null : Duration.ofNanos(deadline - System.nanoTime());
+    }
+
+    /**
+     * Removes the deadline bound to the current thread.
+     */
+    public static void clear() {
+        CURRENT_DEADLINE.remove();
+    }
+}
@@ -0,0 +1,80 @@
+package com.urlshortener.config.deadline;
+
+import com.urlshortener.config.concurrency.RouteClass;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Filter giving every request a deadline, enabled by {@code request-deadline.enabled}.
+ * <p>
+ * The time budget depends on the {@link RouteClass} of the request and is configured by
+ * {@code request-deadline.<route>}. It starts when the request enters the filter chain and is bound to the
+ * processing thread as the {@link RequestDeadline}. Actuator endpoints have no deadline.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnProperty(name = "request-deadline.enabled", havingValue = "true")
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final Map<RouteClass, Duration> budgets;
+
+    @Autowired
+    public RequestDeadlineFilter(@Value("${request-deadline.resolve:PT2S}") Duration resolveBudget,
+                                 @Value("${request-deadline.api:PT5S}") Duration apiBudget,
+                                 @Value("${request-deadline.stats:PT10S}") Duration statsBudget,
+                                 @Value("${request-deadline.auth:PT5S}") Duration authBudget) {
+        this(Map.of(
+                RouteClass.RESOLVE, resolveBudget,
+                RouteClass.API, apiBudget,
+                RouteClass.STATS, statsBudget,
+                RouteClass.AUTH, authBudget));
+    }
+
+    RequestDeadlineFilter(Map<RouteClass, Duration> budgets) {
+        this.budgets = new EnumMap<>(budgets);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith(ACTUATOR_PATH);
+    }
+
+    /**
+     * Processes the request with the deadline of its route class bound to the current thread.
+     *
+     * @param request     the HTTP request
+     * @param response    the HTTP response
+     * @param filterChain the filter chain to continue processing the request
+     * @throws ServletException if an error occurs during request processing
+     * @throws IOException      if an I/O error occurs during request processing
+     */
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestDeadline.set(System.nanoTime() + budgets.get(RouteClass.of(request)).toNanos());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
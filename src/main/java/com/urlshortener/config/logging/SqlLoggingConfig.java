@@ -0,0 +1,36 @@
+package com.urlshortener.config.logging;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of SQL logging.
+ * <p>
+ * Instead of printing every statement, SQL is logged by sampling ({@code logging.sql.sample-rate})
+ * and by a slow query threshold ({@code logging.sql.slow-query-threshold-ms}). Both values are set
+ * per profile, so production does not pay for console output on each query.
+ * </p>
+ */
+@Configuration
+public class SqlLoggingConfig {
+
+    /**
+     * Registers the sampling statement inspector and the slow query threshold in Hibernate.
+     *
+     * @param sampleRate         the share of statements to log
+     * @param slowQueryThreshold the execution time in milliseconds above which a query is logged, 0 to disable
+     * @return a {@link HibernatePropertiesCustomizer} applying the SQL logging settings
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlLoggingCustomizer(
+            @Value("${logging.sql.sample-rate:0}") double sampleRate,
+            @Value("${logging.sql.slow-query-threshold-ms:500}") long slowQueryThreshold) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlSamplingStatementInspector(sampleRate));
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, slowQueryThreshold);
+        };
+    }
+}
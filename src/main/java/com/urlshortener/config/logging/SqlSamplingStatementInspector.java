@@ -0,0 +1,45 @@
+package com.urlshortener.config.logging;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hibernate {@link StatementInspector} that logs a random sample of the executed SQL statements.
+ * <p>
+ * It replaces {@code spring.jpa.show-sql}, which prints every statement synchronously to stdout.
+ * Sampled statements go to the {@value #SQL_LOGGER} logger at DEBUG level; slow statements are
+ * reported separately by Hibernate through {@code hibernate.log_slow_query}.
+ * </p>
+ */
+public class SqlSamplingStatementInspector implements StatementInspector {
+    static final String SQL_LOGGER = "com.urlshortener.sql";
+    private static final Logger log = LoggerFactory.getLogger(SQL_LOGGER);
+
+    private final double sampleRate;
+
+    /**
+     * @param sampleRate the share of statements to log, from {@code 0.0} (none) to {@code 1.0} (all)
+     */
+    public SqlSamplingStatementInspector(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Logs the statement if it is selected by sampling and returns it unchanged.
+     *
+     * @param sql the SQL statement to be executed
+     * @return the same SQL statement
+     */
+    @Override
+    public String inspect(String sql) {
+        if (sampleRate > 0
+                && log.isDebugEnabled()
+                && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            log.debug("sql=\"{}\"", sql);
+        }
+        return sql;
+    }
+}
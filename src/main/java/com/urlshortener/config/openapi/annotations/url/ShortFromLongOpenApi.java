@@ -3,6 +3,8 @@ package com.urlshortener.config.openapi.annotations.url;
 import com.urlshortener.error.ErrorResponse;
 import com.urlshortener.url.dto.operations.UrlResponse;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -16,7 +18,13 @@ import java.lang.annotation.Target;
 
 @Operation(
         summary = "Shorten a long URL",
-        description = "Creates a short version of the provided long URL")
+        description = "Creates a short version of the provided long URL",
+        parameters = @Parameter(
+                in = ParameterIn.HEADER,
+                name = "Idempotency-Key",
+                description = "Unique key of the request, retries with the same key return the original response "
+                        + "(marked with the Idempotent-Replayed header) instead of creating another short URL",
+                schema = @Schema(type = "string", maxLength = 255)))
 @ApiResponses({
         @ApiResponse(
                 responseCode = "201",
@@ -24,7 +32,8 @@ import java.lang.annotation.Target;
                 content = @Content(schema = @Schema(implementation = UrlResponse.class))),
         @ApiResponse(
                 responseCode = "400",
-                description = "Data is not correct (e.g., incorrect long url or expires date)",
+                description = "Data is not correct (e.g., incorrect long url or expires date, or idempotency key reused "
+                        + "for another request)",
                 content = @Content(
                         schema = @Schema(implementation = ErrorResponse.class),
                         examples = @ExampleObject(
@@ -39,6 +48,14 @@ import java.lang.annotation.Target;
                         examples = @ExampleObject(
                                 name = "ForbiddenExample",
                                 ref = "#/components/examples/ForbiddenExample"))),
+        @ApiResponse(
+                responseCode = "409",
+                description = "A request with the same idempotency key is still being processed",
+                content = @Content(
+                        schema = @Schema(implementation = ErrorResponse.class),
+                        examples = @ExampleObject(
+                                name = "ConflictExample",
+                                ref = "#/components/examples/ConflictExample"))),
 })
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
@@ -0,0 +1,30 @@
+package com.urlshortener.config.ratelimit;
+
+import com.urlshortener.security.Role;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Class of clients sharing the same rate limits. Anonymous clients are limited per IP address,
+ * authenticated clients per user, with limits depending on their {@link Role}.
+ */
+public enum ClientTier {
+    ANONYMOUS, USER, ADMIN;
+
+    /**
+     * Returns the tier of the given authentication.
+     *
+     * @param authentication the authentication of the request, may be {@code null}
+     * @return the tier of the client
+     */
+    public static ClientTier of(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> Role.ROLE_ADMIN.name().equals(authority.getAuthority()));
+        return admin ? ADMIN : USER;
+    }
+}
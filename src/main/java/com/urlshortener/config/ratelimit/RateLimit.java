@@ -0,0 +1,40 @@
+package com.urlshortener.config.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * A limit of {@code capacity} requests per {@code period}, written as {@code <capacity>/<period>},
+ * e.g. {@code 60/PT1M}.
+ *
+ * @param capacity the number of requests allowed per period, also the largest burst
+ * @param period   the period in which the full capacity is refilled
+ */
+public record RateLimit(long capacity, Duration period) {
+
+    public RateLimit {
+        if (capacity <= 0 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Rate limit needs a positive capacity and period");
+        }
+    }
+
+    /**
+     * Parses a limit written as {@code <capacity>/<period>}.
+     *
+     * @param value the limit, e.g. {@code 60/PT1M}
+     * @return the parsed limit
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    public static RateLimit parse(String value) {
+        int separator = value.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Rate limit must be written as <capacity>/<period>: " + value);
+        }
+        return new RateLimit(Long.parseLong(value.substring(0, separator).trim()),
+                Duration.parse(value.substring(separator + 1).trim()));
+    }
+
+    @Override
+    public String toString() {
+        return capacity + "/" + period;
+    }
+}
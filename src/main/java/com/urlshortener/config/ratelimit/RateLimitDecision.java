@@ -0,0 +1,12 @@
+package com.urlshortener.config.ratelimit;
+
+/**
+ * Outcome of taking a request from a rate limit.
+ *
+ * @param allowed         whether the request may proceed
+ * @param remaining       the number of requests still allowed right away
+ * @param resetNanos      the time until the full capacity is available again
+ * @param retryAfterNanos the time until the next request is allowed, {@code 0} if it is allowed now
+ */
+public record RateLimitDecision(boolean allowed, long remaining, long resetNanos, long retryAfterNanos) {
+}
@@ -0,0 +1,111 @@
+package com.urlshortener.config.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.config.concurrency.RouteClass;
+import com.urlshortener.error.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.urlshortener.util.MessageProvider.TOO_MANY_REQUESTS_MESSAGE;
+
+/**
+ * Filter applying the {@link RateLimiter} to every request, enabled by {@code rate-limit.enabled}.
+ * <p>
+ * It runs right after the security filter chain, so authenticated users are limited per login and anonymous
+ * clients per IP address. Behind a reverse proxy the address is taken from the {@code X-Forwarded-For} header
+ * of a trusted proxy ({@code server.forward-headers-strategy}); otherwise all anonymous clients would share the
+ * bucket of the proxy. Every response carries the {@code RateLimit-Limit}, {@code RateLimit-Remaining},
+ * {@code RateLimit-Reset} and {@code RateLimit-Policy} headers; requests over the limit are rejected with
+ * {@code 429 Too Many Requests} and a {@code Retry-After} header. Actuator endpoints are not limited.
+ * </p>
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+@ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+    static final String POLICY_HEADER = "RateLimit-Policy";
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final ObjectMapper objectMapper;
+    private final RateLimiter rateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith(ACTUATOR_PATH);
+    }
+
+    /**
+     * Processes the request if its client is within its rate limit, or rejects it otherwise.
+     *
+     * @param request     the HTTP request
+     * @param response    the HTTP response
+     * @param filterChain the filter chain to continue processing the request
+     * @throws ServletException if an error occurs during request processing
+     * @throws IOException      if an I/O error occurs during request processing
+     */
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteClass routeClass = RouteClass.of(request);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        ClientTier tier = ClientTier.of(authentication);
+        String client = tier == ClientTier.ANONYMOUS
+                ? "ip:" + request.getRemoteAddr()
+                : "user:" + authentication.getName();
+
+        RateLimit limit = rateLimiter.getLimit(routeClass, tier);
+        RateLimitDecision decision = rateLimiter.tryAcquire(routeClass, tier, client);
+
+        response.setHeader(LIMIT_HEADER, Long.toString(limit.capacity()));
+        response.setHeader(REMAINING_HEADER, Long.toString(decision.remaining()));
+        response.setHeader(RESET_HEADER, Long.toString(toSeconds(decision.resetNanos())));
+        response.setHeader(POLICY_HEADER, limit.capacity() + ";w=" + Math.max(1, limit.period().toSeconds()));
+
+        if (!decision.allowed()) {
+            reject(request, response, decision);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RateLimitDecision decision)
+            throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.createErrorResponse(
+                request.getRequestURI(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                TOO_MANY_REQUESTS_MESSAGE
+        );
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, toSeconds(decision.retryAfterNanos()))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private static long toSeconds(long nanos) {
+        return (Math.max(0, nanos) + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,171 @@
+package com.urlshortener.config.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.config.concurrency.RouteClass;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits of clients per {@link RouteClass}, enabled by {@code rate-limit.enabled}.
+ * <p>
+ * The limit of a request depends on its route class and {@link ClientTier}, and is configured by
+ * {@code rate-limit.<route>.<tier>}, e.g. {@code rate-limit.api.user=60/PT1M}. Every client has its own
+ * {@link TokenBucket} per route class, kept in memory. A bucket not used for the longest period of the limits of
+ * its route class has refilled completely and carries no state, so it is evicted. At most
+ * {@code rate-limit.max-buckets} buckets are kept per route class: clients cycling through many addresses evict
+ * the least recently used buckets instead of growing the memory, which may give an evicted client a full bucket
+ * again early.
+ * </p>
+ * <p>
+ * With a {@link RemoteRateLimiter}, the limits are shared by all nodes. Calls go through a {@link CircuitBreaker}:
+ * while the remote server fails, every node falls back to its own buckets.
+ * Rejected requests are published as {@code urlshortener.http.ratelimit.rejected}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true")
+@Slf4j
+public class RateLimiter {
+    private final RemoteRateLimiter remote;
+    private final CircuitBreaker circuitBreaker;
+    private final LongSupplier nanoTime;
+    private final Map<RouteClass, Map<ClientTier, RateLimit>> limits;
+    private final Map<RouteClass, Cache<String, TokenBucket>> buckets = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, Map<ClientTier, Counter>> rejected = new EnumMap<>(RouteClass.class);
+    private final Counter remoteErrors;
+
+    @Autowired
+    public RateLimiter(Environment environment,
+                       Optional<RemoteRateLimiter> remote,
+                       MeterRegistry registry,
+                       @Value("${rate-limit.remote.failure-threshold:5}") int failureThreshold,
+                       @Value("${rate-limit.remote.open-duration:PT10S}") Duration openDuration,
+                       @Value("${rate-limit.max-buckets:100000}") long maxBuckets) {
+        this(remote.orElse(null), new CircuitBreaker(failureThreshold, openDuration), registry,
+                limits(environment), maxBuckets, System::nanoTime);
+    }
+
+    RateLimiter(RemoteRateLimiter remote,
+                CircuitBreaker circuitBreaker,
+                MeterRegistry registry,
+                Map<RouteClass, Map<ClientTier, RateLimit>> limits,
+                long maxBuckets,
+                LongSupplier nanoTime) {
+        this.remote = remote;
+        this.circuitBreaker = circuitBreaker;
+        this.limits = limits;
+        this.nanoTime = nanoTime;
+
+        for (RouteClass routeClass : RouteClass.values()) {
+            Duration refill = limits.get(routeClass).values().stream()
+                    .map(RateLimit::period)
+                    .max(Duration::compareTo)
+                    .orElseThrow();
+            buckets.put(routeClass, Caffeine.newBuilder()
+                    .maximumSize(maxBuckets)
+                    .expireAfterAccess(refill)
+                    .ticker(nanoTime::getAsLong)
+                    .build());
+            Map<ClientTier, Counter> counters = new EnumMap<>(ClientTier.class);
+            for (ClientTier tier : ClientTier.values()) {
+                counters.put(tier, Counter.builder("urlshortener.http.ratelimit.rejected")
+                        .description("Requests rejected because their client exceeded its rate limit")
+                        .tag("route", routeClass.name().toLowerCase())
+                        .tag("tier", tier.name().toLowerCase())
+                        .register(registry));
+            }
+            rejected.put(routeClass, counters);
+        }
+        this.remoteErrors = Counter.builder("urlshortener.http.ratelimit.remote.errors")
+                .description("Calls to the shared rate limit counters that failed")
+                .register(registry);
+        Gauge.builder("urlshortener.http.ratelimit.buckets", this, RateLimiter::getBucketCount)
+                .description("Clients with a token bucket that may not be full")
+                .register(registry);
+        Gauge.builder("urlshortener.http.ratelimit.remote.circuit.open", circuitBreaker, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("Whether the shared rate limit counters are skipped after failures")
+                .register(registry);
+    }
+
+    /**
+     * Returns the limit of the given route class and tier.
+     */
+    public RateLimit getLimit(RouteClass routeClass, ClientTier tier) {
+        return limits.get(routeClass).get(tier);
+    }
+
+    /**
+     * Takes a request of the client from its limit.
+     *
+     * @param routeClass the route class of the request
+     * @param tier       the tier of the client
+     * @param client     the client, e.g. {@code user:alice} or {@code ip:192.0.2.1}
+     * @return the decision
+     */
+    public RateLimitDecision tryAcquire(RouteClass routeClass, ClientTier tier, String client) {
+        RateLimit limit = getLimit(routeClass, tier);
+        RateLimitDecision decision = null;
+
+        if (remote != null && circuitBreaker.allowRequest()) {
+            try {
+                decision = remote.tryAcquire(routeClass.name().toLowerCase() + ":" + client, limit);
+                circuitBreaker.recordSuccess();
+            } catch (IOException | RuntimeException e) {
+                circuitBreaker.recordFailure();
+                remoteErrors.increment();
+                log.debug("Shared rate limit of {} failed: {}", client, e.toString());
+            }
+        }
+        if (decision == null) {
+            long now = nanoTime.getAsLong();
+            decision = buckets.get(routeClass).get(client, key -> new TokenBucket(limit, now))
+                    .tryAcquire(now);
+        }
+
+        if (!decision.allowed()) {
+            rejected.get(routeClass).get(tier).increment();
+        }
+        return decision;
+    }
+
+    /**
+     * Returns the number of buckets kept, after dropping the ones that have refilled completely.
+     */
+    long getBucketCount() {
+        long count = 0;
+        for (Cache<String, TokenBucket> routeBuckets : buckets.values()) {
+            routeBuckets.cleanUp();
+            count += routeBuckets.estimatedSize();
+        }
+        return count;
+    }
+
+    private static Map<RouteClass, Map<ClientTier, RateLimit>> limits(Environment environment) {
+        Map<RouteClass, Map<ClientTier, RateLimit>> limits = new EnumMap<>(RouteClass.class);
+        for (RouteClass routeClass : RouteClass.values()) {
+            Map<ClientTier, RateLimit> tierLimits = new EnumMap<>(ClientTier.class);
+            for (ClientTier tier : ClientTier.values()) {
+                String property = "rate-limit." + routeClass.name().toLowerCase() + "." + tier.name().toLowerCase();
+                tierLimits.put(tier, RateLimit.parse(environment.getRequiredProperty(property)));
+            }
+            limits.put(routeClass, tierLimits);
+        }
+        return limits;
+    }
+}
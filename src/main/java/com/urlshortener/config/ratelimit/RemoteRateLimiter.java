@@ -0,0 +1,72 @@
+package com.urlshortener.config.ratelimit;
+
+import com.urlshortener.util.RespClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limit counters shared by all nodes on a Redis-compatible server, enabled by {@code rate-limit.remote.enabled}.
+ * <p>
+ * A token bucket cannot be updated atomically with plain commands, so the shared limit is a fixed window:
+ * requests are counted with {@code INCR} under {@value #KEY_PREFIX}{@code <route>:<client>:<window>}, and the key
+ * expires after its window has passed. A client may therefore get up to twice its capacity around the boundary
+ * of two windows.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.remote.enabled", havingValue = "true")
+public class RemoteRateLimiter implements AutoCloseable {
+    static final String KEY_PREFIX = "urlshortener:ratelimit:";
+
+    private final RespClient client;
+    private final LongSupplier currentTimeMillis;
+
+    public RemoteRateLimiter(@Value("${rate-limit.remote.host:localhost}") String host,
+                             @Value("${rate-limit.remote.port:6379}") int port,
+                             @Value("${rate-limit.remote.password:}") String password,
+                             @Value("${rate-limit.remote.timeout:PT0.05S}") Duration timeout,
+                             @Value("${rate-limit.remote.pool-size:16}") int poolSize) {
+        this(new RespClient(host, port, password, timeout, poolSize), System::currentTimeMillis);
+    }
+
+    RemoteRateLimiter(RespClient client, LongSupplier currentTimeMillis) {
+        this.client = client;
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Counts a request of the client in the current window.
+     *
+     * @param key   the route and client, e.g. {@code api:user:alice}
+     * @param limit the limit of the client
+     * @return the decision
+     * @throws IOException if the server cannot be reached
+     */
+    public RateLimitDecision tryAcquire(String key, RateLimit limit) throws IOException {
+        long periodMillis = limit.period().toMillis();
+        long now = currentTimeMillis.getAsLong();
+        long window = now / periodMillis;
+        String windowKey = KEY_PREFIX + key + ":" + window;
+
+        long count = (Long) client.execute("INCR", windowKey);
+        if (count == 1) {
+            client.execute("PEXPIRE", windowKey, Long.toString(periodMillis));
+        }
+
+        long resetNanos = TimeUnit.MILLISECONDS.toNanos((window + 1) * periodMillis - now);
+        return count <= limit.capacity()
+                ? new RateLimitDecision(true, limit.capacity() - count, resetNanos, 0)
+                : new RateLimitDecision(false, 0, resetNanos, resetNanos);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
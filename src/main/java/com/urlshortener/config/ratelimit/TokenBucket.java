@@ -0,0 +1,46 @@
+package com.urlshortener.config.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket of one client.
+ * <p>
+ * The bucket is kept in its "virtual scheduling" form: instead of a token count and a refill time, a single
+ * theoretical arrival time says when the bucket will be full again. Taking a token moves it one emission
+ * interval ({@code period / capacity}) into the future, and a request is rejected if that would put it more
+ * than one period ahead. The state is one {@code long} updated by compare-and-set, so concurrent requests
+ * of the same client never block each other.
+ * </p>
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long periodNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(RateLimit limit, long nowNanos) {
+        this.intervalNanos = Math.max(1, limit.period().toNanos() / limit.capacity());
+        this.periodNanos = intervalNanos * limit.capacity();
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the decision, with the state of the bucket after the request
+     */
+    RateLimitDecision tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = (current - nowNanos > 0 ? current : nowNanos) + intervalNanos;
+
+            if (next - nowNanos > periodNanos) {
+                return new RateLimitDecision(false, 0, current - nowNanos, next - periodNanos - nowNanos);
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return new RateLimitDecision(true, (periodNanos - (next - nowNanos)) / intervalNanos,
+                        next - nowNanos, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.urlshortener.config.scheduling;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the scheduled background jobs of the application,
+ * such as the periodic code space occupancy estimate.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
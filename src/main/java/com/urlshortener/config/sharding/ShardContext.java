@@ -0,0 +1,48 @@
+package com.urlshortener.config.sharding;
+
+/**
+ * Holder of the shard the current thread works with.
+ * <p>
+ * The shard is bound by {@link ShardRoutingAspect}, {@link ShardQueryExecutor} or, for shorten requests with
+ * an idempotency key, by {@code IdempotencyService}, and read by
+ * {@link ShardRoutingDataSource} when a physical connection is fetched. Without a bound shard,
+ * connections go to shard {@value #DEFAULT_SHARD}, which also keeps the non-URL data.
+ * </p>
+ */
+public final class ShardContext {
+
+    /**
+     * Shard used when no shard is bound, the primary database.
+     */
+    public static final int DEFAULT_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Returns the shard bound to the current thread.
+     *
+     * @return the bound shard, or {@code null} if none is bound
+     */
+    public static Integer current() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Binds the given shard to the current thread.
+     *
+     * @param shard the shard index
+     */
+    public static void set(int shard) {
+        CURRENT_SHARD.set(shard);
+    }
+
+    /**
+     * Removes the shard bound to the current thread.
+     */
+    public static void clear() {
+        CURRENT_SHARD.remove();
+    }
+}
@@ -0,0 +1,127 @@
+package com.urlshortener.config.sharding;
+
+import com.urlshortener.config.deadline.RequestDeadline;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Component running a query on every shard.
+ * <p>
+ * Queries that are not scoped by a short URL code, such as the listing of a user's URLs, are executed
+ * on all shards in parallel, each on its own thread with the shard bound in {@link ShardContext}
+ * and the {@link RequestDeadline} of the calling thread.
+ * The query must not rely on a transaction of the calling thread. Without sharding the query
+ * simply runs on the calling thread.
+ * </p>
+ */
+@Component
+public class ShardQueryExecutor implements AutoCloseable {
+    private final ShardResolver shardResolver;
+    private final ExecutorService executor;
+
+    public ShardQueryExecutor(ShardResolver shardResolver) {
+        this.shardResolver = shardResolver;
+        this.executor = shardResolver.isSharded()
+                ? Executors.newFixedThreadPool(shardResolver.getShardCount(),
+                Thread.ofPlatform().name("shard-query-", 0).daemon().factory())
+                : null;
+    }
+
+    /**
+     * Executes the query on every shard.
+     *
+     * @param query the query to execute
+     * @param <T>   the result type
+     * @return the results of all shards, indexed by shard
+     */
+    public <T> List<T> executeOnAllShards(Supplier<T> query) {
+        if (executor == null) {
+            return List.of(query.get());
+        }
+
+        Long deadline = RequestDeadline.current();
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            int currentShard = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                ShardContext.set(currentShard);
+                if (deadline != null) {
+                    RequestDeadline.set(deadline);
+                }
+                try {
+                    return query.get();
+                } finally {
+                    ShardContext.clear();
+                    RequestDeadline.clear();
+                }
+            }, executor));
+        }
+
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a list query on every shard and merges the sorted results.
+     *
+     * @param query      the query returning a list sorted by the comparator
+     * @param comparator the order of the query results
+     * @param <T>        the element type
+     * @return the results of all shards in the order of the comparator
+     */
+    public <T> List<T> mergeSorted(Supplier<List<T>> query, Comparator<? super T> comparator) {
+        List<List<T>> results = executeOnAllShards(query);
+
+        if (results.size() == 1) {
+            return results.getFirst();
+        }
+
+        record Head<T>(T value, Iterator<T> rest) {
+        }
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(results.size(),
+                (first, second) -> comparator.compare(first.value(), second.value()));
+        int size = 0;
+
+        for (List<T> result : results) {
+            size += result.size();
+            Iterator<T> iterator = result.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value());
+            if (head.rest().hasNext()) {
+                heads.add(new Head<>(head.rest().next(), head.rest()));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
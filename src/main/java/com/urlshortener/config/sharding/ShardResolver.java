@@ -0,0 +1,113 @@
+package com.urlshortener.config.sharding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Component mapping short URL codes to shards.
+ * <p>
+ * The shard is embedded in the first character of the code: the position of the character in the
+ * alphanumeric alphabet modulo the number of shards. A code therefore never has to be looked up to be routed,
+ * and new codes are placed on a shard by choosing their first character. Without sharding there is a single
+ * shard and codes are left unchanged.
+ * </p>
+ */
+@Component
+public class ShardResolver {
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int[] ALPHABET_INDEX = new int[128];
+
+    static {
+        Arrays.fill(ALPHABET_INDEX, -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            ALPHABET_INDEX[ALPHABET.charAt(i)] = i;
+        }
+    }
+
+    private final int shardCount;
+
+    /**
+     * @param enabled whether sharding is enabled
+     * @param urls    the JDBC URLs of the shards following the primary database
+     */
+    @Autowired
+    public ShardResolver(@Value("${datasource.shards.enabled:false}") boolean enabled,
+                         @Value("${datasource.shards.urls:}") List<String> urls) {
+        this(enabled ? urls.size() + 1 : 1);
+    }
+
+    public ShardResolver(int shardCount) {
+        if (shardCount < 1 || shardCount > ALPHABET.length()) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + ALPHABET.length());
+        }
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the number of shards, 1 without sharding
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Checks whether data is spread over more than one shard.
+     *
+     * @return {@code true} if there is more than one shard
+     */
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * Returns the shard holding the given short URL code.
+     *
+     * @param shortUrlCode the short URL code
+     * @return the shard index
+     */
+    public int shardOf(String shortUrlCode) {
+        if (shardCount == 1 || Objects.isNull(shortUrlCode) || shortUrlCode.isEmpty()) {
+            return ShardContext.DEFAULT_SHARD;
+        }
+
+        char first = shortUrlCode.charAt(0);
+        int index = first < ALPHABET_INDEX.length ? ALPHABET_INDEX[first] : -1;
+        return Math.floorMod(index >= 0 ? index : first, shardCount);
+    }
+
+    /**
+     * Picks a random shard for a new URL.
+     *
+     * @return the shard index
+     */
+    public int randomShard() {
+        return shardCount == 1 ? ShardContext.DEFAULT_SHARD : ThreadLocalRandom.current().nextInt(shardCount);
+    }
+
+    /**
+     * Rewrites the first character of the given code so that the code belongs to the current shard.
+     *
+     * @param shortUrlCode the generated short URL code
+     * @return a code routed to the shard bound in {@link ShardContext}, or the same code without a bound shard
+     */
+    public String placeOnCurrentShard(String shortUrlCode) {
+        Integer shard = ShardContext.current();
+
+        if (shardCount == 1 || Objects.isNull(shard) || shardOf(shortUrlCode) == shard) {
+            return shortUrlCode;
+        }
+
+        // Alphabet positions shard, shard + n, shard + 2n, ... all belong to the shard
+        int candidates = (ALPHABET.length() - 1 - shard) / shardCount + 1;
+        int index = shard + shardCount * ThreadLocalRandom.current().nextInt(candidates);
+        return ALPHABET.charAt(index) + shortUrlCode.substring(1);
+    }
+}
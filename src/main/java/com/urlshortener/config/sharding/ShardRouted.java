@@ -0,0 +1,23 @@
+package com.urlshortener.config.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method whose database work belongs to a single shard.
+ * <p>
+ * The shard is taken from the short URL code given by the SpEL {@link #key()}, evaluated against the method
+ * arguments. Without a key the method creates new data and a random shard is chosen.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardRouted {
+
+    /**
+     * SpEL expression returning the short URL code that selects the shard, e.g. {@code "#shortUrlCode"}.
+     */
+    String key() default "";
+}
@@ -0,0 +1,63 @@
+package com.urlshortener.config.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aspect binding the shard of {@link ShardRouted} methods to the current thread.
+ * <p>
+ * It runs before the transaction interceptor, so the shard is known when the transaction fetches its
+ * connection. Nested calls keep the shard chosen by the outermost method.
+ * </p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+    private final ShardResolver shardResolver;
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final Map<Method, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Around("@annotation(shardRouted)")
+    public Object route(ProceedingJoinPoint joinPoint, ShardRouted shardRouted) throws Throwable {
+        if (!shardResolver.isSharded() || ShardContext.current() != null) {
+            return joinPoint.proceed();
+        }
+
+        ShardContext.set(resolveShard(joinPoint, shardRouted));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private int resolveShard(ProceedingJoinPoint joinPoint, ShardRouted shardRouted) {
+        if (shardRouted.key().isEmpty()) {
+            return shardResolver.randomShard();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Expression expression = expressions.computeIfAbsent(method, key -> parser.parseExpression(shardRouted.key()));
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                joinPoint.getTarget(), method, joinPoint.getArgs(), parameterNameDiscoverer);
+        return shardResolver.shardOf(expression.getValue(context, String.class));
+    }
+}
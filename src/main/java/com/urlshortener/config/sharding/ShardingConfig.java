@@ -0,0 +1,118 @@
+package com.urlshortener.config.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of hash-sharded URL storage, enabled by {@code datasource.shards.enabled}.
+ * <p>
+ * Shard 0 is the database configured by {@code spring.datasource}; {@code datasource.shards.urls} adds
+ * the following shards. Every shard has the full schema: URLs live on the shard encoded in their code,
+ * users are kept on shard 0 and copied to the other shards by {@link UserShardReplicator}.
+ * The number of shards is part of the code routing; URLs on another shard than the one of their code, e.g. all
+ * URLs created before sharding was enabled, are moved by {@link UrlShardRebalancer} at startup.
+ * Sharding replaces the read-replica routing and cannot be combined with it.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+@Slf4j
+public class ShardingConfig {
+
+    public ShardingConfig(@Value("${datasource.replicas.enabled:false}") boolean replicasEnabled) {
+        if (replicasEnabled) {
+            throw new IllegalStateException("datasource.shards.enabled cannot be combined with datasource.replicas.enabled");
+        }
+    }
+
+    /**
+     * Creates the connection pools of all shards and the data source routing between them.
+     *
+     * @param properties      the standard data source properties describing shard 0
+     * @param urls            the JDBC URLs of the shards following shard 0
+     * @param username        the user for the additional shards
+     * @param password        the password for the additional shards
+     * @param maximumPoolSize the maximum pool size of each shard
+     * @return the shard routing data source
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            DataSourceProperties properties,
+            @Value("${datasource.shards.urls}") List<String> urls,
+            @Value("${datasource.shards.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.shards.password:${spring.datasource.password}}") String password,
+            @Value("${datasource.shards.maximum-pool-size:10}") int maximumPoolSize) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(shardDataSource(0, properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), maximumPoolSize));
+
+        for (int i = 0; i < urls.size(); i++) {
+            shards.add(shardDataSource(i + 1, urls.get(i), username, password, maximumPoolSize));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Creates the application data source. The physical connection is fetched on the first statement,
+     * when the shard of the current work is already bound.
+     *
+     * @param shardRoutingDataSource the shard routing data source
+     * @return the application data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Runs the Flyway migrations on every shard, starting with shard 0, then copies the users of shard 0
+     * to the other shards and moves URLs to the shards of their codes.
+     *
+     * @param shardResolver       the shard resolver
+     * @param userShardReplicator the replicator copying the users
+     * @param urlShardRebalancer  the rebalancer moving the URLs
+     * @return the migration strategy
+     */
+    @Bean
+    public FlywayMigrationStrategy shardFlywayMigrationStrategy(ShardResolver shardResolver,
+                                                                UserShardReplicator userShardReplicator,
+                                                                UrlShardRebalancer urlShardRebalancer) {
+        return flyway -> {
+            for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+                ShardContext.set(shard);
+                try {
+                    log.info("Migrating shard {}", shard);
+                    flyway.migrate();
+                } finally {
+                    ShardContext.clear();
+                }
+            }
+            userShardReplicator.backfill();
+            urlShardRebalancer.rebalance();
+        };
+    }
+
+    private HikariDataSource shardDataSource(int shard, String url, String username, String password,
+                                             int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("shard-" + shard);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        return dataSource;
+    }
+}
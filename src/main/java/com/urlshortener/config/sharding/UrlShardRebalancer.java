@@ -0,0 +1,176 @@
+package com.urlshortener.config.sharding;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Component moving URLs to the shard their code is routed to.
+ * <p>
+ * URLs created before sharding was enabled all live on shard 0, and changing the number of shards changes the
+ * shard of most codes, so such URLs would no longer be found. Every shard is therefore scanned once the shards are
+ * migrated at startup, and each URL on the wrong shard is copied to its shard with its visit count and then deleted
+ * from the old one. The target shard assigns a new ID from its own sequence.
+ * </p>
+ * <p>
+ * The statements run one by one without a transaction spanning the shards, so every step checks what is already
+ * done: a copy is skipped if the code exists on the target, and the next start finishes an interrupted move.
+ * A URL whose code is taken on the target by another URL is logged and left where it is.
+ * Nodes still running with the previous shard configuration keep writing to the old shards, so all nodes are
+ * restarted with the new configuration together.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UrlShardRebalancer {
+    private static final String SELECT_URLS = """
+            SELECT u.id, u.short_url_code, u.long_url, u.created_at, u.expires_at, u.user_id, u.long_url_hash,
+                   COALESCE(v.visits, 0) AS visits
+            FROM urls u
+                     LEFT JOIN url_visits v ON v.url_id = u.id
+            WHERE u.id > ?
+              AND u.short_url_code IS NOT NULL
+            ORDER BY u.id
+            LIMIT ?
+            """;
+    private static final String INSERT_MISSING_URL = """
+            INSERT INTO urls (short_url_code, long_url, created_at, expires_at, user_id, long_url_hash)
+            SELECT ?, ?, ?, ?, ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM urls WHERE short_url_code = ?)
+            """;
+    private static final String INSERT_MISSING_VISITS = """
+            INSERT INTO url_visits (url_id, visits)
+            SELECT id, ?
+            FROM urls
+            WHERE short_url_code = ?
+            ON CONFLICT (url_id) DO NOTHING
+            """;
+    private static final String SELECT_COPIES = """
+            SELECT short_url_code, user_id, long_url
+            FROM urls
+            WHERE short_url_code IN (%s)
+            """;
+    private static final String DELETE_VISITS = "DELETE FROM url_visits WHERE url_id = ?";
+    private static final String DELETE_URL = "DELETE FROM urls WHERE id = ?";
+    private static final int BATCH_SIZE = 1000;
+
+    private final ShardResolver shardResolver;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Moves every URL that is not on the shard of its code. Runs after the users are copied to all shards,
+     * because the copies reference their owner. A failure stops the startup.
+     */
+    public void rebalance() {
+        if (!shardResolver.isSharded()) {
+            return;
+        }
+
+        int moved = 0;
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            moved += rebalance(shard);
+        }
+
+        if (moved > 0) {
+            log.info("Moved {} URLs to the shards of their codes", moved);
+        }
+    }
+
+    private int rebalance(int source) {
+        long lastId = 0;
+        int moved = 0;
+        List<StoredUrl> urls;
+        do {
+            long after = lastId;
+            urls = onShard(source, () -> jdbcTemplate.query(SELECT_URLS,
+                    (rs, rowNum) -> new StoredUrl(rs.getLong("id"), rs.getString("short_url_code"),
+                            rs.getString("long_url"), rs.getTimestamp("created_at"), rs.getTimestamp("expires_at"),
+                            rs.getLong("user_id"), (Long) rs.getObject("long_url_hash"), rs.getLong("visits")),
+                    after, BATCH_SIZE));
+
+            Map<Integer, List<StoredUrl>> misplaced = new HashMap<>();
+            for (StoredUrl url : urls) {
+                int target = shardResolver.shardOf(url.shortUrlCode());
+                if (target != source) {
+                    misplaced.computeIfAbsent(target, key -> new ArrayList<>()).add(url);
+                }
+            }
+            for (Map.Entry<Integer, List<StoredUrl>> entry : misplaced.entrySet()) {
+                moved += move(source, entry.getKey(), entry.getValue());
+            }
+
+            if (!urls.isEmpty()) {
+                lastId = urls.getLast().id();
+            }
+        } while (urls.size() == BATCH_SIZE);
+
+        return moved;
+    }
+
+    private int move(int source, int target, List<StoredUrl> urls) {
+        Map<String, Copy> copies = onShard(target, () -> {
+            jdbcTemplate.batchUpdate(INSERT_MISSING_URL, urls.stream()
+                    .map(url -> new Object[]{url.shortUrlCode(), url.longUrl(), url.createdAt(), url.expiresAt(),
+                            url.userId(), url.longUrlHash(), url.shortUrlCode()})
+                    .toList());
+            jdbcTemplate.batchUpdate(INSERT_MISSING_VISITS, urls.stream()
+                    .map(url -> new Object[]{url.visits(), url.shortUrlCode()})
+                    .toList());
+
+            return jdbcTemplate.query(
+                            SELECT_COPIES.formatted(String.join(", ", Collections.nCopies(urls.size(), "?"))),
+                            (rs, rowNum) -> new Copy(rs.getString("short_url_code"), rs.getLong("user_id"),
+                                    rs.getString("long_url")),
+                            urls.stream().map(StoredUrl::shortUrlCode).toArray()).stream()
+                    .collect(Collectors.toMap(Copy::shortUrlCode, Function.identity()));
+        });
+
+        // A code taken on the target by another URL is left on the source instead of losing the URL
+        List<Object[]> ids = new ArrayList<>();
+        for (StoredUrl url : urls) {
+            Copy copy = new Copy(url.shortUrlCode(), url.userId(), url.longUrl());
+            if (copy.equals(copies.get(url.shortUrlCode()))) {
+                ids.add(new Object[]{url.id()});
+            } else {
+                log.warn("Unable to move URL {} to shard {}: its code is taken by another URL", url.id(), target);
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        onShard(source, () -> {
+            // url_visits has no foreign key on partitioned urls, so the counters are deleted explicitly
+            jdbcTemplate.batchUpdate(DELETE_VISITS, ids);
+            return jdbcTemplate.batchUpdate(DELETE_URL, ids);
+        });
+        return ids.size();
+    }
+
+    private static <T> T onShard(int shard, Supplier<T> work) {
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private record StoredUrl(long id, String shortUrlCode, String longUrl, Timestamp createdAt, Timestamp expiresAt,
+                             long userId, Long longUrlHash, long visits) {
+    }
+
+    private record Copy(String shortUrlCode, long userId, String longUrl) {
+    }
+}
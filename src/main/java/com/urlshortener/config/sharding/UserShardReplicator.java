@@ -0,0 +1,206 @@
+package com.urlshortener.config.sharding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Component copying users from shard 0 to the other shards.
+ * <p>
+ * URLs reference their owner by a foreign key and are loaded together with it, so every shard keeps
+ * a copy of the users table. The copy is written after the transaction on shard 0 commits,
+ * with the same ID, and overwrites an existing row. Without sharding nothing is copied.
+ * </p>
+ * <p>
+ * The copy after commit may fail, e.g. while a shard is down, and users created before sharding was enabled
+ * have none. Therefore all users are copied once the shards are migrated at startup, and
+ * {@link #ensureOnCurrentShard(User)} copies a missing user in the transaction that creates a URL for it.
+ * Failed copies are counted in {@code urlshortener.user.replication.failures}.
+ * </p>
+ */
+@Component
+@Slf4j
+public class UserShardReplicator {
+    private static final String UPSERT_USER = """
+            INSERT INTO users (id, login, email, password, role)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE
+                SET login = EXCLUDED.login, email = EXCLUDED.email,
+                    password = EXCLUDED.password, role = EXCLUDED.role
+            """;
+    private static final String INSERT_MISSING_USER = """
+            INSERT INTO users (id, login, email, password, role)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+    private static final String SELECT_USERS = """
+            SELECT id, login, email, password, role
+            FROM users
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final ShardResolver shardResolver;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<ShardUser, Boolean> copiedUsers;
+    private final Counter failures;
+
+    public UserShardReplicator(ShardResolver shardResolver,
+                               DataSource dataSource,
+                               JdbcTemplate jdbcTemplate,
+                               MeterRegistry registry,
+                               @Value("${datasource.shards.copied-users-cache-size:100000}") long copiedUsersCacheSize) {
+        this.shardResolver = shardResolver;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.copiedUsers = Caffeine.newBuilder()
+                .maximumSize(copiedUsersCacheSize)
+                .build();
+        this.failures = Counter.builder("urlshortener.user.replication.failures")
+                .description("Copies of users to the other shards that failed after the user was saved")
+                .register(registry);
+    }
+
+    /**
+     * Copies the user to the other shards once the current transaction commits,
+     * or immediately when there is no transaction.
+     *
+     * @param user the user saved on shard 0
+     */
+    public void replicateAfterCommit(User user) {
+        if (!shardResolver.isSharded()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    replicate(user);
+                }
+            });
+        } else {
+            replicate(user);
+        }
+    }
+
+    /**
+     * Makes sure the user exists on the shard bound to the current thread, before a URL referencing it is
+     * inserted there. A missing user is copied with the current transaction, so a failure fails the request.
+     *
+     * @param user the user loaded from shard 0
+     */
+    public void ensureOnCurrentShard(User user) {
+        Integer shard = ShardContext.current();
+        if (!shardResolver.isSharded() || Objects.isNull(shard) || shard == ShardContext.DEFAULT_SHARD) {
+            return;
+        }
+
+        ShardUser shardUser = new ShardUser(shard, user.getId());
+        if (Objects.nonNull(copiedUsers.getIfPresent(shardUser))) {
+            return;
+        }
+
+        jdbcTemplate.update(INSERT_MISSING_USER, user.getId(), user.getLogin(), user.getEmail(), user.getPassword(),
+                user.getRole().name());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    copiedUsers.put(shardUser, Boolean.TRUE);
+                }
+            });
+        } else {
+            copiedUsers.put(shardUser, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Copies all users of shard 0 to the other shards, overwriting the existing copies.
+     * Runs after the migrations at startup, so users created before a shard was added or whose copy failed
+     * are present. A failure stops the startup.
+     */
+    public void backfill() {
+        if (!shardResolver.isSharded()) {
+            return;
+        }
+
+        long lastId = 0;
+        int copied = 0;
+        List<Object[]> users;
+        do {
+            long after = lastId;
+            users = onShard(ShardContext.DEFAULT_SHARD, () -> jdbcTemplate.query(SELECT_USERS,
+                    (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getString("login"), rs.getString("email"),
+                            rs.getString("password"), rs.getString("role")},
+                    after, BACKFILL_BATCH_SIZE));
+
+            for (int shard = ShardContext.DEFAULT_SHARD + 1; shard < shardResolver.getShardCount(); shard++) {
+                List<Object[]> batch = users;
+                onShard(shard, () -> jdbcTemplate.batchUpdate(UPSERT_USER, batch));
+            }
+
+            if (!users.isEmpty()) {
+                lastId = (Long) users.getLast()[0];
+                copied += users.size();
+            }
+        } while (users.size() == BACKFILL_BATCH_SIZE);
+
+        log.info("Copied {} users to shards 1 to {}", copied, shardResolver.getShardCount() - 1);
+    }
+
+    private static <T> T onShard(int shard, Supplier<T> work) {
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private void replicate(User user) {
+        for (int shard = ShardContext.DEFAULT_SHARD + 1; shard < shardResolver.getShardCount(); shard++) {
+            ShardContext.set(shard);
+            // The connection is taken from the data source directly, not from the finished transaction
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(UPSERT_USER)) {
+                statement.setLong(1, user.getId());
+                statement.setString(2, user.getLogin());
+                statement.setString(3, user.getEmail());
+                statement.setString(4, user.getPassword());
+                statement.setString(5, user.getRole().name());
+                statement.executeUpdate();
+                copiedUsers.put(new ShardUser(shard, user.getId()), Boolean.TRUE);
+            } catch (SQLException e) {
+                // A missing copy is made before the user's next URL on this shard, a stale one at the next startup
+                failures.increment();
+                log.error("Unable to copy user {} to shard {}", user.getId(), shard, e);
+            } finally {
+                ShardContext.clear();
+            }
+        }
+    }
+
+    private record ShardUser(int shard, Long userId) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.urlshortener.error;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter for logging of high-volume client errors.
+ * <p>
+ * Counts every handled exception per type and allows only a limited number of log records
+ * per type in each time window. The number of suppressed records is reported with the next
+ * record that is allowed, so the log still shows how many errors occurred.
+ * The counters are also published as the {@code urlshortener.errors} metric, tagged by exception type.
+ * </p>
+ */
+@Component
+public class ExceptionLogSampler implements MeterBinder {
+    private final long permitsPerWindow;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Class<?>, TypeState> states = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    @Autowired
+    public ExceptionLogSampler(@Value("${error.log.permits-per-window:10}") long permitsPerWindow,
+                               @Value("${error.log.window-millis:1000}") long windowMillis) {
+        this(permitsPerWindow, windowMillis, System::nanoTime);
+    }
+
+    ExceptionLogSampler(long permitsPerWindow, long windowMillis, LongSupplier nanoClock) {
+        this.permitsPerWindow = permitsPerWindow;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Registers an occurrence of the given exception type and decides whether it should be logged.
+     *
+     * @param type the type of the handled exception
+     * @return the number of records suppressed since the last logged one,
+     *         or {@code -1} if this occurrence must not be logged
+     */
+    public long tryAcquire(Class<?> type) {
+        TypeState state = states.computeIfAbsent(type, this::createState);
+        state.total.increment();
+
+        long now = nanoClock.getAsLong();
+        long windowStart = state.windowStart.get();
+
+        if (now - windowStart >= windowNanos && state.windowStart.compareAndSet(windowStart, now)) {
+            state.permitsUsed.set(0);
+        }
+
+        if (state.permitsUsed.incrementAndGet() <= permitsPerWindow) {
+            return state.suppressed.getAndSet(0);
+        }
+
+        state.suppressed.incrementAndGet();
+        return -1;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        states.forEach((type, state) -> registerCounter(registry, type, state));
+    }
+
+    /**
+     * Returns the number of handled exceptions per type since the application start.
+     *
+     * @return a snapshot of the counters keyed by the simple name of the exception type
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new ConcurrentHashMap<>();
+        states.forEach((type, state) -> counts.put(type.getSimpleName(), state.total.sum()));
+        return counts;
+    }
+
+    private TypeState createState(Class<?> type) {
+        TypeState state = new TypeState(nanoClock.getAsLong());
+        MeterRegistry meterRegistry = registry;
+
+        if (meterRegistry != null) {
+            registerCounter(meterRegistry, type, state);
+        }
+        return state;
+    }
+
+    private static void registerCounter(MeterRegistry registry, Class<?> type, TypeState state) {
+        FunctionCounter.builder("urlshortener.errors", state.total, LongAdder::sum)
+                .description("Handled exceptions by type")
+                .tag("type", type.getSimpleName())
+                .register(registry);
+    }
+
+    /**
+     * Sampling state of a single exception type.
+     */
+    private static final class TypeState {
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong windowStart;
+        private final AtomicLong permitsUsed = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+
+        private TypeState(long windowStart) {
+            this.windowStart = new AtomicLong(windowStart);
+        }
+    }
+}
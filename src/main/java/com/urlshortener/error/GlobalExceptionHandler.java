@@ -1,12 +1,16 @@
 package com.urlshortener.error;
 
+import com.urlshortener.error.exception.IdempotencyConflictException;
 import com.urlshortener.error.exception.ResourceNotFoundException;
+import com.urlshortener.error.exception.ServiceUnavailableException;
 import com.urlshortener.error.exception.UnauthorizedException;
 import com.urlshortener.error.exception.UserExistsException;
 import com.urlshortener.error.exception.ValidationException;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.json.JsonParseException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -18,14 +22,24 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.io.IOException;
 
+import static com.urlshortener.util.MessageProvider.REQUEST_TIMEOUT_MESSAGE;
+
 /**
  * Global exception handler for handling various types of exceptions globally in the application.
  * This class handles exceptions like validation errors, unauthorized access, bad credentials,
  * resource not found, etc., and returns structured error responses with appropriate HTTP status codes.
+ * <p>
+ * Client errors (4xx) are logged through the {@link ExceptionLogSampler} to keep log volume bounded
+ * under scanner traffic, while server errors (5xx) are always logged with the full stack trace. The only exception
+ * are outages of backing services and timeouts of statements, which fail whole classes of requests and are
+ * sampled as well.
+ * </p>
  */
 @RestControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
+    private final ExceptionLogSampler logSampler;
 
     /**
      * Handles ValidationException and returns a BAD_REQUEST response with the error details.
@@ -33,7 +47,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<ErrorResponse> handleUserValidateException(ValidationException e,
                                                                      HttpServletRequest request) {
-        log.warn("ValidationException: {}", e.getMessage());
+        logClientError("ValidationException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.BAD_REQUEST.value(),
@@ -49,7 +63,23 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(UserExistsException.class)
     public ResponseEntity<ErrorResponse> handleUserExistsException(UserExistsException e,
                                                                    HttpServletRequest request) {
-        log.warn("UserExistsException: {}", e.getMessage());
+        logClientError("UserExistsException", e);
+        ErrorResponse response = ErrorResponse.createErrorResponse(
+                request.getRequestURI(),
+                HttpStatus.CONFLICT.value(),
+                HttpStatus.CONFLICT.getReasonPhrase(),
+                e.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Handles IdempotencyConflictException and returns a CONFLICT response with the error details.
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflictException(IdempotencyConflictException e,
+                                                                            HttpServletRequest request) {
+        logClientError("IdempotencyConflictException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.CONFLICT.value(),
@@ -65,7 +95,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ErrorResponse> handleBadCredentialsException(BadCredentialsException e,
                                                                        HttpServletRequest request) {
-        log.warn("BadCredentialsException: {}", e.getMessage());
+        logClientError("BadCredentialsException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.UNAUTHORIZED.value(),
@@ -81,7 +111,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(UnauthorizedException.class)
     public ResponseEntity<ErrorResponse> handleUnauthorizedException(UnauthorizedException e,
                                                                      HttpServletRequest request) {
-        log.warn("UnauthorizedException: {}", e.getMessage());
+        logClientError("UnauthorizedException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.UNAUTHORIZED.value(),
@@ -97,7 +127,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleUsernameNotFoundException(UsernameNotFoundException e,
                                                                          HttpServletRequest request) {
-        log.warn("UsernameNotFoundException: {}", e.getMessage());
+        logClientError("UsernameNotFoundException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.UNAUTHORIZED.value(),
@@ -113,7 +143,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException e,
                                                                          HttpServletRequest request) {
-        log.warn("UrlException: {}", e.getMessage());
+        logClientError("UrlException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.NOT_FOUND.value(),
@@ -123,12 +153,53 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * Handles ServiceUnavailableException and returns a SERVICE_UNAVAILABLE response with the error details.
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException e,
+                                                                           HttpServletRequest request) {
+        long suppressed = logSampler.tryAcquire(e.getClass());
+
+        if (suppressed >= 0) {
+            log.error("ServiceUnavailableException: {} ({} similar suppressed)", e.getMessage(), suppressed, e.getCause());
+        }
+        ErrorResponse response = ErrorResponse.createErrorResponse(
+                request.getRequestURI(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                e.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
+    /**
+     * Handles QueryTimeoutException, raised when a statement ran past the request deadline,
+     * and returns a SERVICE_UNAVAILABLE response with the error details.
+     */
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleQueryTimeoutException(QueryTimeoutException e,
+                                                                     HttpServletRequest request) {
+        long suppressed = logSampler.tryAcquire(e.getClass());
+
+        if (suppressed >= 0) {
+            log.error("QueryTimeoutException: {} ({} similar suppressed)", e.getMessage(), suppressed);
+        }
+        ErrorResponse response = ErrorResponse.createErrorResponse(
+                request.getRequestURI(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                REQUEST_TIMEOUT_MESSAGE
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     /**
      * Handles IOException and returns an INTERNAL_SERVER_ERROR response with the error details.
      */
     @ExceptionHandler(IOException.class)
     public ResponseEntity<ErrorResponse> handleIOException(IOException e, HttpServletRequest request) {
-        log.error("IOException: {}", e.getMessage());
+        log.error("IOException: {}", e.getMessage(), e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.INTERNAL_SERVER_ERROR.value(),
@@ -143,7 +214,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(JsonParseException.class)
     public ResponseEntity<ErrorResponse> handleJsonParseException(JsonParseException e, HttpServletRequest request) {
-        log.error("JsonParseException: {}", e.getMessage());
+        logClientError("JsonParseException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.BAD_REQUEST.value(),
@@ -159,7 +230,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ErrorResponse> handleHttpMessageNotReadableException(HttpMessageNotReadableException e,
                                                                                HttpServletRequest request) {
-        log.error("HttpMessageNotReadableException: {}", e.getMessage());
+        logClientError("HttpMessageNotReadableException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.BAD_REQUEST.value(),
@@ -175,7 +246,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
     public ResponseEntity<ErrorResponse> handleHttpMediaTypeNotAcceptableException(HttpMediaTypeNotAcceptableException e,
                                                                                    HttpServletRequest request) {
-        log.error("HttpMediaTypeNotAcceptableException: {}", e.getMessage());
+        logClientError("HttpMediaTypeNotAcceptableException", e);
         ErrorResponse response = ErrorResponse.createErrorResponse(
                 request.getRequestURI(),
                 HttpStatus.BAD_REQUEST.value(),
@@ -199,4 +270,17 @@ public class GlobalExceptionHandler {
         );
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
+
+    /**
+     * Logs a client error at WARN level if the sampler allows it for the exception type.
+     */
+    private void logClientError(String name, Exception e) {
+        long suppressed = logSampler.tryAcquire(e.getClass());
+
+        if (suppressed > 0) {
+            log.warn("{}: {} ({} similar suppressed)", name, e.getMessage(), suppressed);
+        } else if (suppressed == 0) {
+            log.warn("{}: {}", name, e.getMessage());
+        }
+    }
 }
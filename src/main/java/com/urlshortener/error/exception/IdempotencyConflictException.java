@@ -0,0 +1,14 @@
+package com.urlshortener.error.exception;
+
+/**
+ * Thrown when a request carries the idempotency key of a request that is still being processed.
+ * <p>
+ * Clients retrying too eagerly can cause many of these conflicts, so no stack trace is captured.
+ * </p>
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,8 +1,14 @@
 package com.urlshortener.error.exception;
 
+/**
+ * Thrown when a requested resource (e.g. a short URL) does not exist.
+ * <p>
+ * Not-found lookups are frequent under scanner traffic, so no stack trace is captured.
+ * </p>
+ */
 public class ResourceNotFoundException extends RuntimeException {
 
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,16 @@
+package com.urlshortener.error.exception;
+
+/**
+ * Thrown when a request cannot be served because a backing service, such as the URL storage, is unavailable,
+ * or because the bulkhead of its workload is full.
+ * <p>
+ * During an outage it is thrown for many requests, often without calling the service at all,
+ * so its own stack trace is not filled in; the failure of the service is kept as the cause.
+ * </p>
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
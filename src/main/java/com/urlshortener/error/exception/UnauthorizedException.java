@@ -1,8 +1,14 @@
 package com.urlshortener.error.exception;
 
+/**
+ * Thrown when a request requires an authenticated user or a valid token.
+ * <p>
+ * It is part of the normal request flow, so the stack trace is not filled in.
+ * </p>
+ */
 public class UnauthorizedException extends RuntimeException {
 
     public UnauthorizedException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -1,8 +1,14 @@
 package com.urlshortener.error.exception;
 
+/**
+ * Thrown when a user with the same login or email is already registered.
+ * <p>
+ * Registrations with a taken login or email are ordinary client errors, so no stack trace is captured.
+ * </p>
+ */
 public class UserExistsException extends RuntimeException {
 
     public UserExistsException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
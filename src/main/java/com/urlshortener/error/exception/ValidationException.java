@@ -1,8 +1,14 @@
 package com.urlshortener.error.exception;
 
+/**
+ * Thrown when user input does not pass validation.
+ * <p>
+ * Validation failures are expected client errors, so no stack trace is captured.
+ * </p>
+ */
 public class ValidationException extends RuntimeException {
 
     public ValidationException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
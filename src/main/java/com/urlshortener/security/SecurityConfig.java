@@ -1,8 +1,11 @@
 package com.urlshortener.security;
 
+import com.urlshortener.security.password.BoundedPasswordEncoder;
 import com.urlshortener.security.provider.CustomAuthenticationProvider;
 import com.urlshortener.security.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,7 +15,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -64,9 +66,12 @@ public class SecurityConfig {
                                         "/api/v2/**",
                                         "/swagger-ui/**",
                                         "/swagger-ui.html",
+                                        "/actuator/health/**",
                                         "/error")
                                 .permitAll()
                                 .requestMatchers(POST, "/api/v1/url/{shortUrlCode}").permitAll()
+                                // Metrics reveal traffic and the state of pools, caches and breakers
+                                .requestMatchers("/actuator/**").hasAuthority(Role.ROLE_ADMIN.name())
                                 .anyRequest().authenticated())
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(
@@ -78,22 +83,29 @@ public class SecurityConfig {
     /**
      * Configures a password encoder used to encode user passwords.
      * <p>
-     * This method creates and returns a {@link BCryptPasswordEncoder} with a strength of 4
-     * for securely hashing user passwords.
+     * This method creates and returns a {@link BoundedPasswordEncoder} computing BCrypt hashes of the configured
+     * strength on its own bounded pool of threads, so hashing cannot occupy every request thread.
      * </p>
      *
+     * @param registry  the registry the hashing metrics are published to
+     * @param strength  the BCrypt cost of new hashes
+     * @param threads   the number of hashing threads
+     * @param queueSize the number of hashing calls that may wait for a thread
      * @return a {@link PasswordEncoder} for encoding passwords
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(4);
+    public PasswordEncoder passwordEncoder(MeterRegistry registry,
+                                           @Value("${security.password.bcrypt-strength:4}") int strength,
+                                           @Value("${security.password.hash-threads:4}") int threads,
+                                           @Value("${security.password.hash-queue-size:64}") int queueSize) {
+        return new BoundedPasswordEncoder(strength, threads, queueSize, registry);
     }
 
     /**
      * Configures an authentication provider for authenticating users.
      * <p>
      * This method creates and returns a custom {@link AuthenticationProvider} using
-     * {@link CustomUserDetailsService} for loading user details and {@link BCryptPasswordEncoder}
+     * {@link CustomUserDetailsService} for loading user details and {@link BoundedPasswordEncoder}
      * for password validation.
      * </p>
      *
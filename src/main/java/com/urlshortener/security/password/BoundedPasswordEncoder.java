@@ -0,0 +1,140 @@
+package com.urlshortener.security.password;
+
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.urlshortener.util.MessageProvider.SERVER_OVERLOADED_MESSAGE;
+
+/**
+ * BCrypt {@link PasswordEncoder} hashing on a small dedicated pool of threads.
+ * <p>
+ * Hashing is deliberately slow, so a burst of logins or registrations must not be able to occupy every request
+ * thread with it. Hashes are computed by {@code threads} threads with at most {@code queueSize} waiting; further
+ * calls fail right away with a {@link ServiceUnavailableException} instead of piling up request threads.
+ * Hashing is published as {@code urlshortener.password.hash} per operation, rejected calls as
+ * {@code urlshortener.password.hash.rejected}.
+ * </p>
+ * <p>
+ * {@link #upgradeEncoding(String)} reports hashes computed with a cost other than the configured strength,
+ * so they are replaced on the next successful login after the strength has changed.
+ * </p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    /**
+     * @param strength  the BCrypt cost of new hashes
+     * @param threads   the number of hashing threads
+     * @param queueSize the number of hashing calls that may wait for a thread
+     * @param registry  the registry the hashing metrics are published to
+     */
+    public BoundedPasswordEncoder(int strength, int threads, int queueSize, MeterRegistry registry) {
+        this(new BCryptPasswordEncoder(strength), strength, threads, queueSize, registry);
+    }
+
+    BoundedPasswordEncoder(PasswordEncoder delegate, int strength, int threads, int queueSize, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.strength = strength;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().name("password-hash-", 0).daemon().factory());
+        this.encodeTimer = hashTimer(registry, "encode");
+        this.matchesTimer = hashTimer(registry, "matches");
+        this.rejected = Counter.builder("urlshortener.password.hash.rejected")
+                .description("Password hashing calls rejected because the hashing queue was full")
+                .register(registry);
+        Gauge.builder("urlshortener.password.hash.queued", executor, pool -> pool.getQueue().size())
+                .description("Password hashing calls waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("urlshortener.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing calls being computed")
+                .register(registry);
+    }
+
+    /**
+     * Hashes the password on a hashing thread.
+     *
+     * @throws ServiceUnavailableException if the hashing queue is full
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> encodeTimer.record(() -> delegate.encode(rawPassword)));
+    }
+
+    /**
+     * Verifies the password on a hashing thread.
+     *
+     * @throws ServiceUnavailableException if the hashing queue is full
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> hashing) {
+        Future<T> future;
+        try {
+            future = executor.submit(hashing);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException(SERVER_OVERLOADED_MESSAGE, null);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(SERVER_OVERLOADED_MESSAGE, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static Timer hashTimer(MeterRegistry registry, String operation) {
+        return Timer.builder("urlshortener.password.hash")
+                .description("Time spent computing password hashes")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -2,6 +2,7 @@ package com.urlshortener.security.provider;
 
 import com.urlshortener.security.service.CustomUserDetailsService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -17,9 +18,11 @@ import static com.urlshortener.util.MessageProvider.PASSWORD_WRONG_MESSAGE;
  * Custom authentication provider that validates user credentials
  * by loading user details from {@link CustomUserDetailsService} and
  * checking the password using {@link PasswordEncoder}.
+ * Passwords hashed with outdated settings are rehashed on successful login.
  * Implements the {@link AuthenticationProvider} interface.
  */
 @RequiredArgsConstructor
+@Slf4j
 public class CustomAuthenticationProvider implements AuthenticationProvider {
 
     private final CustomUserDetailsService userDetailsService;
@@ -50,9 +53,30 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
             throw new BadCredentialsException(PASSWORD_WRONG_MESSAGE);
         }
 
+        if (passwordEncoder.upgradeEncoding(userDetails.getPassword())) {
+            userDetails = rehash(userDetails, password);
+        }
+
         return new UsernamePasswordAuthenticationToken(userDetails, password, userDetails.getAuthorities());
     }
 
+    /**
+     * Replaces the password hash of the user with one computed with the current settings of the
+     * {@link PasswordEncoder}. A failure only keeps the old hash, the login itself succeeds.
+     *
+     * @param userDetails the authenticated user
+     * @param password    the verified raw password
+     * @return the user details with the new hash, or the given ones if the hash could not be replaced
+     */
+    private UserDetails rehash(UserDetails userDetails, String password) {
+        try {
+            return userDetailsService.updatePassword(userDetails, passwordEncoder.encode(password));
+        } catch (RuntimeException e) {
+            log.warn("Unable to rehash the password of {}: {}", userDetails.getUsername(), e.toString());
+            return userDetails;
+        }
+    }
+
     /**
      * Verifies if this provider supports the given {@link Authentication} type.
      *
@@ -2,23 +2,31 @@ package com.urlshortener.security.service;
 
 import com.urlshortener.security.AuthIdentifierType;
 import com.urlshortener.security.CustomUserDetails;
+import com.urlshortener.config.sharding.UserShardReplicator;
+import com.urlshortener.user.User;
 import com.urlshortener.user.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import static com.urlshortener.util.MessageProvider.*;
 
 /**
  * Custom implementation of {@link UserDetailsService} for Spring Security.
  * <p>
- * Supports authentication by either login or email.
+ * Supports authentication by either login or email, and replaces password hashes that were computed
+ * with an outdated cost.
  */
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final UserShardReplicator userShardReplicator;
 
     /**
      * Loads the user details based on the provided identifier (login or email).
@@ -44,4 +52,24 @@ public class CustomUserDetailsService implements UserDetailsService {
             default -> throw new UsernameNotFoundException(IDENTIFIER_EMPTY_MESSAGE);
         };
     }
+
+    /**
+     * Replaces the password hash of the user, e.g. after the hashing cost has changed.
+     * <p>
+     * Runs in its own read-write transaction on the primary: the login calling it holds a read-only
+     * transaction, which is not flushed and may be served by a replica.
+     *
+     * @param user        the {@link CustomUserDetails} of the user
+     * @param newPassword the new password hash
+     * @return the user details with the new password hash
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public CustomUserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findById(((CustomUserDetails) user).user().getId())
+                .orElseThrow(() -> new UsernameNotFoundException(generateUserWithLoginNotFoundMessage(user.getUsername())));
+        entity.setPassword(newPassword);
+        userShardReplicator.replicateAfterCommit(entity);
+        return new CustomUserDetails(entity);
+    }
 }
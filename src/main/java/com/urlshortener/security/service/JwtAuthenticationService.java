@@ -7,6 +7,7 @@ import com.urlshortener.security.dto.RefreshTokenRequest;
 import com.urlshortener.security.dto.RefreshTokenResponse;
 import com.urlshortener.security.provider.JwtTokenProvider;
 import com.urlshortener.user.UserValidator;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -38,6 +39,7 @@ public class JwtAuthenticationService implements AuthenticationService {
      * @return {@link AuthUserResponse} with JWT access and refresh tokens
      */
     @Override
+    @Timed(value = "urlshortener.auth.authenticate", histogram = true)
     @Transactional(readOnly = true)
     public AuthUserResponse authenticate(AuthUserRequest request) {
         String identifier = request.getIdentifier();
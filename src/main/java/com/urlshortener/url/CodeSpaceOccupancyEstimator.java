@@ -0,0 +1,138 @@
+package com.urlshortener.url;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.url.storage.UrlStorage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Component that keeps the short URL code length ahead of the number of stored URLs.
+ * <p>
+ * For a code of length {@code L} there are {@code 62^L} possible values, so with {@code N} stored URLs
+ * the probability that a random code of that length is already taken is at most {@code N / 62^L}.
+ * The estimator periodically reads {@code N} from the {@link UrlStorage} estimate and raises the minimum length
+ * of the {@link ShortUrlCodeGenerator} to the shortest length whose expected collision rate is below
+ * the configured threshold. The collision rate observed since the previous run is checked as well,
+ * so the length is also raised if real collisions exceed the threshold.
+ * With sharding, {@code N} is the sum over all shards: every shard holds its share of the rows
+ * and of the code space, so the ratio stays the same.
+ * </p>
+ */
+@Component
+@Slf4j
+public class CodeSpaceOccupancyEstimator {
+
+    /**
+     * Minimum number of attempts of one length before its observed collision rate is trusted.
+     */
+    private static final long MIN_OBSERVED_ATTEMPTS = 1_000;
+
+    private final UrlStorage urlStorage;
+    private final ShortUrlCodeGenerator urlGenerator;
+    private final UrlMetrics urlMetrics;
+    private final ShardQueryExecutor shardQueryExecutor;
+    private final double collisionThreshold;
+    private final Map<Integer, long[]> previousCounts = new HashMap<>();
+    private volatile long estimatedRows;
+
+    public CodeSpaceOccupancyEstimator(UrlStorage urlStorage,
+                                       ShortUrlCodeGenerator urlGenerator,
+                                       UrlMetrics urlMetrics,
+                                       ShardQueryExecutor shardQueryExecutor,
+                                       MeterRegistry registry,
+                                       @Value("${url.code.collision-threshold:0.001}") double collisionThreshold) {
+        this.urlStorage = urlStorage;
+        this.urlGenerator = urlGenerator;
+        this.urlMetrics = urlMetrics;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.collisionThreshold = collisionThreshold;
+
+        Gauge.builder("urlshortener.url.code.min_length", urlGenerator, ShortUrlCodeGenerator::getMinLength)
+                .description("Current minimum length of generated short URL codes")
+                .register(registry);
+        Gauge.builder("urlshortener.url.code.occupancy.rows", this, estimator -> estimator.estimatedRows)
+                .description("Estimated number of stored URLs used to choose the code length")
+                .register(registry);
+    }
+
+    /**
+     * Refreshes the row estimate and raises the code length if needed.
+     * Runs on application start and then periodically.
+     */
+    @Scheduled(fixedDelayString = "${url.code.occupancy.refresh-interval:PT5M}")
+    public synchronized void refresh() {
+        try {
+            estimatedRows = shardQueryExecutor.executeOnAllShards(urlStorage::estimateCount).stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+        } catch (DataAccessException e) {
+            log.warn("Unable to estimate the number of stored URLs: {}", e.getMessage());
+            return;
+        }
+
+        int requiredLength = Math.max(lengthForRows(estimatedRows), lengthForObservedCollisions());
+        int previousLength = urlGenerator.getMinLength();
+        int currentLength = urlGenerator.raiseMinLength(requiredLength);
+
+        if (currentLength != previousLength) {
+            log.info("Short URL code minimum length raised from {} to {} ({} rows)",
+                    previousLength, currentLength, estimatedRows);
+        }
+    }
+
+    /**
+     * Returns the upper bound of the probability that a random code of the given length is already taken.
+     *
+     * @param rows   the number of stored URLs
+     * @param length the code length
+     * @return the expected collision rate, between 0 and 1
+     */
+    public static double expectedCollisionRate(long rows, int length) {
+        return Math.min(1.0, rows / Math.pow(ShortUrlCodeGenerator.ALPHABET_SIZE, length));
+    }
+
+    /**
+     * Finds the shortest code length whose expected collision rate is below the threshold.
+     */
+    int lengthForRows(long rows) {
+        int length = urlGenerator.getMinLength();
+
+        while (length < ShortUrlCodeGenerator.MAX_MIN_SHORT_URL_LENGTH
+                && expectedCollisionRate(rows, length) > collisionThreshold) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Checks the collisions observed since the previous run for every currently generated length
+     * and returns the length that follows the longest one above the threshold.
+     */
+    private int lengthForObservedCollisions() {
+        int required = urlGenerator.getMinLength();
+
+        for (int length = urlGenerator.getMinLength(); length <= urlGenerator.getMaxLength(); length++) {
+            long attempts = urlMetrics.getCodeAttempts(length);
+            long collisions = urlMetrics.getCodeCollisions(length);
+            long[] previous = previousCounts.getOrDefault(length, new long[2]);
+            previousCounts.put(length, new long[]{attempts, collisions});
+
+            long windowAttempts = attempts - previous[0];
+            long windowCollisions = collisions - previous[1];
+
+            if (windowAttempts >= MIN_OBSERVED_ATTEMPTS
+                    && (double) windowCollisions / windowAttempts > collisionThreshold) {
+                required = length + 1;
+            }
+        }
+        return required;
+    }
+}
@@ -0,0 +1,140 @@
+package com.urlshortener.url;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.url.storage.UrlStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Component finding an existing URL of a user for the same destination, so repeated shortening of a long URL
+ * returns the code it already has instead of storing another copy.
+ * <p>
+ * Every URL is stored with a fixed-size {@linkplain #hash(String) hash} of its normalized long URL, which is
+ * indexed together with the owner. Only with {@code url.dedup.enabled} are new URLs looked up by it: a URL of
+ * the same user with the same normalized long URL and expiration date that has not expired is reused.
+ * Expiration dates are compared at the microsecond precision of the database.
+ * Normalization only lowercases the scheme and host, drops default ports and adds the empty path, so URLs that
+ * differ in anything else are kept apart.
+ * </p>
+ * <p>
+ * The lookup does not lock, so concurrent requests for the same URL may still create one each.
+ * With sharding, the URLs of a user are spread over all shards, so they are all queried in parallel.
+ * </p>
+ */
+@Component
+public class LongUrlDeduplicator {
+    private static final int HASH_BYTES = Long.BYTES;
+
+    private final UrlStorage urlStorage;
+    private final ShardQueryExecutor shardQueryExecutor;
+    private final boolean enabled;
+
+    public LongUrlDeduplicator(UrlStorage urlStorage,
+                               ShardQueryExecutor shardQueryExecutor,
+                               @Value("${url.dedup.enabled:false}") boolean enabled) {
+        this.urlStorage = urlStorage;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Finds an active URL of the user that can be returned instead of creating a new one.
+     *
+     * @param userId      the ID of the user shortening the URL
+     * @param longUrl     the long URL to shorten
+     * @param longUrlHash the {@linkplain #hash(String) hash} of the long URL
+     * @param expiresAt   the requested expiration date, or {@code null}
+     * @return the existing URL, or an empty {@link Optional} if there is none or deduplication is disabled
+     */
+    public Optional<Url> findExisting(Long userId, String longUrl, long longUrlHash, LocalDateTime expiresAt) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String normalized = normalize(longUrl);
+        LocalDateTime expiration = truncate(expiresAt);
+        LocalDateTime now = LocalDateTime.now();
+
+        return shardQueryExecutor.executeOnAllShards(
+                        () -> urlStorage.findAllByUserIdAndLongUrlHash(userId, longUrlHash)).stream()
+                .flatMap(List::stream)
+                .filter(url -> Objects.equals(truncate(url.getExpiresAt()), expiration))
+                .filter(url -> Objects.isNull(url.getExpiresAt()) || url.getExpiresAt().isAfter(now))
+                .filter(url -> normalize(url.getLongUrl()).equals(normalized))
+                .findFirst();
+    }
+
+    /**
+     * Hashes the normalized long URL into the first {@value #HASH_BYTES} bytes of its SHA-256 digest.
+     *
+     * @param longUrl the long URL
+     * @return the hash
+     */
+    public static long hash(String longUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalize(longUrl).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, HASH_BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static LocalDateTime truncate(LocalDateTime dateTime) {
+        return Objects.isNull(dateTime) ? null : dateTime.truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Normalizes a long URL for comparison. URLs that cannot be parsed are only trimmed.
+     *
+     * @param longUrl the long URL
+     * @return the normalized long URL
+     */
+    static String normalize(String longUrl) {
+        String trimmed = longUrl.trim();
+        URI uri;
+        try {
+            uri = new URI(trimmed);
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+        if (Objects.isNull(uri.getScheme()) || Objects.isNull(uri.getHost())) {
+            return trimmed;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        boolean defaultPort = (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443);
+
+        StringBuilder normalized = new StringBuilder(trimmed.length())
+                .append(scheme).append("://");
+        if (Objects.nonNull(uri.getRawUserInfo())) {
+            normalized.append(uri.getRawUserInfo()).append('@');
+        }
+        normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (port != -1 && !defaultPort) {
+            normalized.append(':').append(port);
+        }
+        normalized.append(Objects.isNull(uri.getRawPath()) || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+        if (Objects.nonNull(uri.getRawQuery())) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+        if (Objects.nonNull(uri.getRawFragment())) {
+            normalized.append('#').append(uri.getRawFragment());
+        }
+        return normalized.toString();
+    }
+}
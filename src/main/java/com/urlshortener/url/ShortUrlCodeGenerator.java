@@ -2,14 +2,18 @@ package com.urlshortener.url;
 
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Class for generating short URLs.
+ * <p>
+ * Codes are generated within a window of {@link #LENGTH_WINDOW} + 1 lengths starting at the current
+ * minimum length. The minimum length starts at {@link #MIN_SHORT_URL_LENGTH} and is raised by the
+ * {@link CodeSpaceOccupancyEstimator} when shorter codes become too likely to collide.
+ * </p>
  */
 @Component
 public class ShortUrlCodeGenerator {
-    private static final Random RANDOM = new Random();
 
     /**
      * Array containing all possible characters for the short URL.
@@ -30,29 +34,79 @@ public class ShortUrlCodeGenerator {
     private static final int MIN_SHORT_URL_LENGTH = 6;
 
     /**
-     * Maximum length of the generated short URL.
+     * Number of lengths above the current minimum length that may be generated.
      */
-    private static final int MAX_SHORT_URL_LENGTH = 8;
+    private static final int LENGTH_WINDOW = 2;
+
+    /**
+     * Upper bound for the minimum length, far below the size of the short_url_code column.
+     */
+    static final int MAX_MIN_SHORT_URL_LENGTH = 16;
+
+    /**
+     * Number of characters that can be used in a short URL code.
+     */
+    public static final int ALPHABET_SIZE = CHARACTERS.length;
+
+    /**
+     * Current minimum length of the generated short URL.
+     */
+    private volatile int minLength = MIN_SHORT_URL_LENGTH;
 
     /**
      * Generates a random short URL.
      * <p>
-     * The generated short URL will have a length between {@link #MIN_SHORT_URL_LENGTH}
-     * and {@link #MAX_SHORT_URL_LENGTH} characters and consists of randomly selected characters.
+     * The generated short URL will have a length between the current minimum length
+     * and the minimum length plus {@link #LENGTH_WINDOW} characters and consists of randomly selected characters.
      *
      * @return A string representing the generated short URL with the format "https://<shortUrl>"
      */
     public String generateShortUrlCode() {
-        int shortUrlLength =
-                RANDOM.nextInt(MAX_SHORT_URL_LENGTH - MIN_SHORT_URL_LENGTH + 1)
-                        + MIN_SHORT_URL_LENGTH;
-        StringBuilder shortUrl = new StringBuilder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int shortUrlLength = minLength + random.nextInt(LENGTH_WINDOW + 1);
+        char[] shortUrl = new char[shortUrlLength];
 
         for (int i = 0; i < shortUrlLength; i++) {
-            int randomIndex = RANDOM.nextInt(CHARACTERS.length);
-            shortUrl.append(CHARACTERS[randomIndex]);
+            shortUrl[i] = CHARACTERS[random.nextInt(CHARACTERS.length)];
+        }
+        return new String(shortUrl);
+    }
+
+    /**
+     * Returns the current minimum length of generated short URL codes.
+     *
+     * @return the current minimum length
+     */
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * Returns the current maximum length of generated short URL codes.
+     *
+     * @return the current maximum length
+     */
+    public int getMaxLength() {
+        return minLength + LENGTH_WINDOW;
+    }
+
+    /**
+     * Raises the minimum length of generated short URL codes.
+     * <p>
+     * The length is never lowered, so codes do not switch back and forth between lengths,
+     * and it is capped at {@link #MAX_MIN_SHORT_URL_LENGTH}.
+     * </p>
+     *
+     * @param length the requested minimum length
+     * @return the minimum length in effect after the call
+     */
+    public synchronized int raiseMinLength(int length) {
+        int capped = Math.min(length, MAX_MIN_SHORT_URL_LENGTH);
+
+        if (capped > minLength) {
+            minLength = capped;
         }
-        return shortUrl.toString();
+        return minLength;
     }
 }
 
@@ -4,11 +4,14 @@ import com.urlshortener.user.User;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SecondaryRow;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "urls")
+@SecondaryTable(name = "url_visits", pkJoinColumns = @PrimaryKeyJoinColumn(name = "url_id"))
+@SecondaryRow(table = "url_visits", optional = false)
 @Getter
 @Setter
 @ToString(exclude = "user")
@@ -28,7 +31,13 @@ public class Url {
     @Column(name = "long_url", length = 2000, nullable = false)
     private String longUrl;
 
-    @Column
+    // Hash of the normalized long URL, see LongUrlDeduplicator. Not set for URLs created before V9.
+    @Column(name = "long_url_hash", updatable = false)
+    private Long longUrlHash;
+
+    // Kept in the narrow url_visits table, see V4__Create_table_url_visits.sql.
+    // Only UrlRepository#incrementVisits changes it, so saving a loaded URL never overwrites newer counts.
+    @Column(table = "url_visits", nullable = false, updatable = false)
     private long visits;
 
     @CreationTimestamp
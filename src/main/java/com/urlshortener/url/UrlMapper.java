@@ -1,18 +1,27 @@
 package com.urlshortener.url;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.url.cache.ResolvedUrl;
+import com.urlshortener.url.dto.operations.UrlResponse;
 import com.urlshortener.url.dto.statistics.StatsUrlDto;
 import com.urlshortener.url.dto.operations.UrlDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
 /**
  * Service responsible for mapping URL entities to DTOs in the URL shortener application.
  * <p>
- * This class provides methods to convert a {@link Url} entity to {@link UrlDto} and {@link StatsUrlDto}
- * which are used for various responses in the application.
+ * This class provides methods to convert a {@link Url} entity to {@link UrlDto}, {@link StatsUrlDto}
+ * and {@link ResolvedUrl} which are used for various responses in the application.
  * </p>
  */
 @Service
+@RequiredArgsConstructor
 public class UrlMapper {
+    private final ObjectMapper objectMapper;
 
     /**
      * Maps a {@link Url} entity to a {@link UrlDto} for URL operations.
@@ -55,4 +64,39 @@ public class UrlMapper {
                 .expiresAt(url.getExpiresAt())
                 .build();
     }
+
+    /**
+     * Maps a {@link Url} entity to a {@link ResolvedUrl} for the resolve path.
+     * <p>
+     * The response body is serialized once here, in the same form as a {@link UrlResponse} containing
+     * only the long URL, so it can be cached and written to the client as is.
+     * </p>
+     *
+     * @param url the URL entity to map
+     * @return a {@link ResolvedUrl} with the pre-serialized response body and headers
+     * @throws IllegalStateException if the response body cannot be serialized
+     */
+    public ResolvedUrl mapToResolvedUrl(Url url) {
+        UrlDto urlDto = UrlDto.builder().longUrl(url.getLongUrl()).build();
+        byte[] body;
+
+        try {
+            body = objectMapper.writeValueAsBytes(UrlResponse.createSuccessResponse(urlDto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize resolved URL", e);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(body.length);
+        headers.set(HttpHeaders.LOCATION, url.getLongUrl());
+
+        return new ResolvedUrl(
+                url.getId(),
+                url.getShortUrlCode(),
+                url.getLongUrl(),
+                url.getExpiresAt(),
+                body,
+                HttpHeaders.readOnlyHttpHeaders(headers));
+    }
 }
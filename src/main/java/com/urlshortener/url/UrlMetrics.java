@@ -0,0 +1,110 @@
+package com.urlshortener.url;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Component holding the business counters of URL operations in the URL shortener application.
+ * <p>
+ * Timers of the service methods are published through {@code @Timed}; this class covers the events
+ * that do not map to a single method call, such as short code collisions and failed resolves.
+ * </p>
+ */
+@Component
+public class UrlMetrics {
+    private final MeterRegistry registry;
+    private final Map<Integer, Counter> codeAttempts = new ConcurrentHashMap<>();
+    private final Map<Integer, Counter> codeCollisions = new ConcurrentHashMap<>();
+    private final Counter codeRetries;
+    private final Counter expiredHits;
+    private final Counter notFoundHits;
+    private final Counter deduplicated;
+
+    public UrlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.codeRetries = Counter.builder("urlshortener.url.code.retries")
+                .description("Short URL codes regenerated because the code was already taken")
+                .register(registry);
+        this.expiredHits = Counter.builder("urlshortener.url.resolve.failures")
+                .description("Resolve requests for short URL codes that could not be served")
+                .tag("reason", "expired")
+                .register(registry);
+        this.notFoundHits = Counter.builder("urlshortener.url.resolve.failures")
+                .description("Resolve requests for short URL codes that could not be served")
+                .tag("reason", "not_found")
+                .register(registry);
+        this.deduplicated = Counter.builder("urlshortener.url.shorten.deduplicated")
+                .description("Shorten requests answered with an existing URL of the user instead of a new one")
+                .register(registry);
+    }
+
+    /**
+     * Records a single attempt to find a free short URL code.
+     *
+     * @param length    the length of the generated code
+     * @param collision {@code true} if the code was already taken and has to be regenerated
+     */
+    public void recordCodeAttempt(int length, boolean collision) {
+        codeAttempts.computeIfAbsent(length, key -> codeCounter("urlshortener.url.code.attempts", key))
+                .increment();
+
+        if (collision) {
+            codeCollisions.computeIfAbsent(length, key -> codeCounter("urlshortener.url.code.collisions", key))
+                    .increment();
+            codeRetries.increment();
+        }
+    }
+
+    /**
+     * Returns the total number of code generation attempts of the given length.
+     *
+     * @param length the code length
+     * @return the number of attempts since the application start
+     */
+    public long getCodeAttempts(int length) {
+        Counter counter = codeAttempts.get(length);
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    /**
+     * Returns the total number of code collisions of the given length.
+     *
+     * @param length the code length
+     * @return the number of collisions since the application start
+     */
+    public long getCodeCollisions(int length) {
+        Counter counter = codeCollisions.get(length);
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    /**
+     * Records a resolve request for an expired short URL.
+     */
+    public void incrementExpiredHits() {
+        expiredHits.increment();
+    }
+
+    /**
+     * Records a resolve request for a short URL code that does not exist.
+     */
+    public void incrementNotFoundHits() {
+        notFoundHits.increment();
+    }
+
+    /**
+     * Records a shorten request answered with an existing URL.
+     */
+    public void incrementDeduplicated() {
+        deduplicated.increment();
+    }
+
+    private Counter codeCounter(String name, int length) {
+        return Counter.builder(name)
+                .tag("length", String.valueOf(length))
+                .register(registry);
+    }
+}
@@ -3,6 +3,7 @@ package com.urlshortener.url;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,8 +18,42 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     Optional<Url> findUrlByShortUrlCode(String shortUrlCode);
 
     @EntityGraph(attributePaths = "user")
-    @Query(value = "SELECT u FROM Url u WHERE u.user.id = :userId")
+    @Query(value = "SELECT u FROM Url u WHERE u.user.id = :userId ORDER BY u.createdAt, u.id")
     List<Url> findAllUrlsByUserId(@Param("userId") Long userId);
 
+    @EntityGraph(attributePaths = "user")
+    @Query(value = """
+            SELECT u FROM Url u
+            WHERE u.user.id = :userId AND u.longUrlHash = :longUrlHash
+            ORDER BY u.createdAt, u.id""")
+    List<Url> findAllUrlsByUserIdAndLongUrlHash(@Param("userId") Long userId,
+                                                @Param("longUrlHash") long longUrlHash);
+
     boolean existsUrlByShortUrlCode(String shortUrlCode);
+
+    /**
+     * Returns the planner's estimate of the number of rows in the urls table, including its partitions.
+     * The estimate is read from the catalog and does not scan the table.
+     */
+    @Query(value = """
+            SELECT COALESCE(SUM(GREATEST(c.reltuples, 0)), 0)::bigint
+            FROM pg_class c
+            WHERE c.oid = 'urls'::regclass
+               OR c.oid IN (SELECT i.inhrelid FROM pg_inherits i WHERE i.inhparent = 'urls'::regclass)
+            """, nativeQuery = true)
+    long estimateRowCount();
+
+    /**
+     * Increments the visit counter of the URL in the url_visits table without touching the urls row.
+     */
+    @Modifying
+    @Query(value = "UPDATE url_visits SET visits = visits + 1 WHERE url_id = :id", nativeQuery = true)
+    int incrementVisits(@Param("id") Long id);
+
+    /**
+     * Adds the given number of visits to the visit counter of the URL in the url_visits table.
+     */
+    @Modifying
+    @Query(value = "UPDATE url_visits SET visits = visits + :visits WHERE url_id = :id", nativeQuery = true)
+    int addVisits(@Param("id") Long id, @Param("visits") long visits);
 }
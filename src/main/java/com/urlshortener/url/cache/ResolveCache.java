@@ -0,0 +1,385 @@
+package com.urlshortener.url.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.urlshortener.url.Url;
+import com.urlshortener.url.UrlMapper;
+import com.urlshortener.url.cache.remote.RemoteEntry;
+import com.urlshortener.url.cache.remote.RemoteResolveCache;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Two-tier cache of resolved short URL codes.
+ * <p>
+ * The first tier is in-process and keeps the most frequently requested codes together with their pre-serialized
+ * response, so the resolve path does not have to load the entity, map it and serialize it again on every request.
+ * Hit, miss and eviction statistics are published as the {@code resolve} cache metrics.
+ * </p>
+ * <p>
+ * Entries are fresh for {@code url.resolve-cache.expire-after-write}. After that they are stale: still returned,
+ * but the first caller {@linkplain #claimRevalidation(String) claims} their reload in the background, so
+ * the database being slow or down does not fail resolves of known codes. Stale entries are dropped after
+ * {@code url.resolve-cache.stale-ttl}, and no entry outlives the expiration date of its URL.
+ * </p>
+ * <p>
+ * The optional second tier is a {@link RemoteResolveCache} shared by all nodes, so a new code costs one database
+ * read for the whole cluster instead of one per node. It is read on a first tier miss and written through
+ * on every {@link #put(Url)}, with entries living for {@code url.resolve-cache.remote.ttl} at most.
+ * Calls go through a {@link CircuitBreaker}: while the remote cache fails, it is skipped and resolves fall back
+ * to the first tier and the database. Evictions skipped that way leave stale remote entries until their TTL.
+ * </p>
+ * <p>
+ * Codes that do not exist are cached in both tiers for {@code url.resolve-cache.negative-ttl}, so repeated
+ * requests for unknown codes do not reach the database. The node creating a code evicts it from its own tier and
+ * the shared one; other nodes may keep answering a code they cached as not found until the entry expires.
+ * </p>
+ */
+@Component
+@Slf4j
+public class ResolveCache implements MeterBinder {
+    private final UrlMapper urlMapper;
+    private final Cache<String, Entry> cache;
+    private final RemoteResolveCache remote;
+    private final CircuitBreaker circuitBreaker;
+    private final long freshNanos;
+    private final Duration negativeTtl;
+    private final Duration remoteTtl;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter remoteErrors;
+    private final Counter remoteSkipped;
+
+    @Autowired
+    public ResolveCache(UrlMapper urlMapper,
+                        Optional<RemoteResolveCache> remote,
+                        MeterRegistry registry,
+                        @Value("${url.resolve-cache.maximum-size:100000}") long maximumSize,
+                        @Value("${url.resolve-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                        @Value("${url.resolve-cache.stale-ttl:PT1H}") Duration staleTtl,
+                        @Value("${url.resolve-cache.negative-ttl:PT30S}") Duration negativeTtl,
+                        @Value("${url.resolve-cache.remote.ttl:PT1H}") Duration remoteTtl,
+                        @Value("${url.resolve-cache.remote.failure-threshold:5}") int failureThreshold,
+                        @Value("${url.resolve-cache.remote.open-duration:PT10S}") Duration openDuration) {
+        this(urlMapper, remote.orElse(null), new CircuitBreaker(failureThreshold, openDuration), registry,
+                maximumSize, expireAfterWrite, staleTtl, negativeTtl, remoteTtl);
+    }
+
+    ResolveCache(UrlMapper urlMapper,
+                 RemoteResolveCache remote,
+                 CircuitBreaker circuitBreaker,
+                 MeterRegistry registry,
+                 long maximumSize,
+                 Duration expireAfterWrite,
+                 Duration staleTtl,
+                 Duration negativeTtl,
+                 Duration remoteTtl) {
+        this.urlMapper = urlMapper;
+        this.remote = remote;
+        this.circuitBreaker = circuitBreaker;
+        this.freshNanos = expireAfterWrite.toNanos();
+        this.negativeTtl = negativeTtl;
+        this.remoteTtl = remoteTtl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new EntryExpiry(expireAfterWrite.plus(staleTtl), negativeTtl))
+                .recordStats()
+                .build();
+        this.remoteHits = remoteCounter(registry, "hit");
+        this.remoteMisses = remoteCounter(registry, "miss");
+        this.remoteErrors = remoteCounter(registry, "error");
+        this.remoteSkipped = remoteCounter(registry, "skipped");
+        Gauge.builder("urlshortener.url.cache.remote.circuit.open", circuitBreaker, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("Whether calls to the remote resolve cache are suspended after failures")
+                .register(registry);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "resolve");
+    }
+
+    /**
+     * Returns the cached resolve result for the given short URL code.
+     * <p>
+     * On a miss of the in-process tier, the remote tier is consulted and its entry is kept in-process.
+     * The result may be stale.
+     * </p>
+     *
+     * @param shortUrlCode the short URL code
+     * @return the cached {@link ResolvedUrl}, which may be {@linkplain ResolvedUrl#isNotFound() not found},
+     * or an empty {@link Optional} if the code is not cached
+     */
+    public Optional<ResolvedUrl> get(String shortUrlCode) {
+        Entry entry = cache.getIfPresent(shortUrlCode);
+
+        if (Objects.nonNull(entry)) {
+            return Optional.of(entry.resolvedUrl);
+        }
+        if (Objects.isNull(remote)) {
+            return Optional.empty();
+        }
+
+        ResolvedUrl resolvedUrl = getRemote(shortUrlCode);
+        if (Objects.nonNull(resolvedUrl)) {
+            cache.put(shortUrlCode, entry(resolvedUrl));
+        }
+        return Optional.ofNullable(resolvedUrl);
+    }
+
+    /**
+     * Claims the reload of a stale entry. Only one caller gets the claim until the entry is replaced
+     * by {@link #put(Url)} or {@link #putNotFound(String)}, evicted, or the claim is
+     * {@linkplain #releaseRevalidation(String) released}.
+     *
+     * @param shortUrlCode the short URL code
+     * @return {@code true} if the entry is stale and the caller has to reload it
+     */
+    public boolean claimRevalidation(String shortUrlCode) {
+        Entry entry = cache.asMap().get(shortUrlCode);
+        return Objects.nonNull(entry)
+                && System.nanoTime() - entry.staleAt >= 0
+                && entry.revalidating.compareAndSet(false, true);
+    }
+
+    /**
+     * Releases the claim of a reload that failed, so a later caller retries it.
+     *
+     * @param shortUrlCode the short URL code
+     */
+    public void releaseRevalidation(String shortUrlCode) {
+        Entry entry = cache.asMap().get(shortUrlCode);
+        if (Objects.nonNull(entry)) {
+            entry.revalidating.set(false);
+        }
+    }
+
+    /**
+     * Builds the resolve result for the given URL entity and stores it in both tiers.
+     *
+     * @param url the URL entity that was resolved
+     * @return the cached {@link ResolvedUrl}
+     */
+    public ResolvedUrl put(Url url) {
+        ResolvedUrl resolvedUrl = urlMapper.mapToResolvedUrl(url);
+        cache.put(url.getShortUrlCode(), entry(resolvedUrl));
+
+        Duration ttl = remoteTtl;
+        if (Objects.nonNull(url.getExpiresAt())) {
+            Duration untilExpiration = Duration.between(LocalDateTime.now(), url.getExpiresAt());
+            ttl = untilExpiration.compareTo(ttl) < 0 ? untilExpiration : ttl;
+        }
+
+        // An expired URL would be dropped by the remote cache right away
+        if (ttl.toMillis() > 0) {
+            putRemote(url.getShortUrlCode(), new RemoteEntry(url.getId(), url.getLongUrl(), url.getExpiresAt()), ttl);
+        }
+        return resolvedUrl;
+    }
+
+    /**
+     * Records in both tiers that the given short URL code does not exist.
+     *
+     * @param shortUrlCode the short URL code that was not found
+     */
+    public void putNotFound(String shortUrlCode) {
+        cache.put(shortUrlCode, entry(ResolvedUrl.notFound(shortUrlCode)));
+        putRemote(shortUrlCode, RemoteEntry.notFound(), negativeTtl);
+    }
+
+    /**
+     * Removes the given short URL code from both tiers.
+     *
+     * @param shortUrlCode the short URL code to evict
+     */
+    public void evict(String shortUrlCode) {
+        cache.invalidate(shortUrlCode);
+        deleteRemote(shortUrlCode);
+    }
+
+    /**
+     * Removes the given short URL code from both tiers now and again once the current transaction commits.
+     * A resolve running before the commit still reads the old row and may cache it again; the second eviction
+     * removes that entry. Without a transaction the code is only evicted once.
+     *
+     * @param shortUrlCode the short URL code changed by the current transaction
+     */
+    public void evictOnCommit(String shortUrlCode) {
+        evict(shortUrlCode);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(shortUrlCode);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the given short URL codes from both tiers.
+     *
+     * @param shortUrlCodes the short URL codes to evict
+     */
+    public void evictAll(Collection<String> shortUrlCodes) {
+        cache.invalidateAll(shortUrlCodes);
+        shortUrlCodes.forEach(this::deleteRemote);
+    }
+
+    /**
+     * Removes all entries from the in-process tier. The shared remote tier is left intact.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private Entry entry(ResolvedUrl resolvedUrl) {
+        return new Entry(resolvedUrl, System.nanoTime() + freshNanos);
+    }
+
+    private ResolvedUrl getRemote(String shortUrlCode) {
+        if (!circuitBreaker.allowRequest()) {
+            remoteSkipped.increment();
+            return null;
+        }
+
+        Optional<RemoteEntry> entry;
+        try {
+            entry = remote.get(shortUrlCode);
+        } catch (IOException | RuntimeException e) {
+            remoteFailed("read", shortUrlCode, e);
+            return null;
+        }
+        circuitBreaker.recordSuccess();
+
+        if (entry.isEmpty()) {
+            remoteMisses.increment();
+            return null;
+        }
+
+        remoteHits.increment();
+        RemoteEntry remoteEntry = entry.get();
+        if (remoteEntry.isNotFound()) {
+            return ResolvedUrl.notFound(shortUrlCode);
+        }
+        return urlMapper.mapToResolvedUrl(Url.builder()
+                .id(remoteEntry.id())
+                .shortUrlCode(shortUrlCode)
+                .longUrl(remoteEntry.longUrl())
+                .expiresAt(remoteEntry.expiresAt())
+                .build());
+    }
+
+    private void putRemote(String shortUrlCode, RemoteEntry entry, Duration ttl) {
+        if (Objects.isNull(remote) || !circuitBreaker.allowRequest()) {
+            return;
+        }
+
+        try {
+            remote.put(shortUrlCode, entry, ttl);
+            circuitBreaker.recordSuccess();
+        } catch (IOException | RuntimeException e) {
+            remoteFailed("write", shortUrlCode, e);
+        }
+    }
+
+    private void deleteRemote(String shortUrlCode) {
+        if (Objects.isNull(remote) || !circuitBreaker.allowRequest()) {
+            return;
+        }
+
+        try {
+            remote.delete(shortUrlCode);
+            circuitBreaker.recordSuccess();
+        } catch (IOException | RuntimeException e) {
+            remoteFailed("delete", shortUrlCode, e);
+        }
+    }
+
+    private void remoteFailed(String operation, String shortUrlCode, Exception e) {
+        circuitBreaker.recordFailure();
+        remoteErrors.increment();
+        log.debug("Remote resolve cache {} of {} failed: {}", operation, shortUrlCode, e.toString());
+    }
+
+    private static Counter remoteCounter(MeterRegistry registry, String result) {
+        return Counter.builder("urlshortener.url.cache.remote.requests")
+                .description("Lookups of the remote resolve cache by result")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * In-process entry: the resolve result, the moment it becomes stale and whether its reload is claimed.
+     */
+    private static final class Entry {
+        private final ResolvedUrl resolvedUrl;
+        private final long staleAt;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        private Entry(ResolvedUrl resolvedUrl, long staleAt) {
+            this.resolvedUrl = resolvedUrl;
+            this.staleAt = staleAt;
+        }
+    }
+
+    /**
+     * Expires in-process entries after {@code lifetime}, not found entries after {@code negativeTtl},
+     * and every entry of an expiring URL at its expiration date at the latest.
+     */
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+        private final Duration lifetime;
+        private final long negativeTtlNanos;
+
+        private EntryExpiry(Duration lifetime, Duration negativeTtl) {
+            this.lifetime = lifetime;
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String shortUrlCode, Entry entry, long currentTime) {
+            ResolvedUrl resolvedUrl = entry.resolvedUrl;
+            if (resolvedUrl.isNotFound()) {
+                return negativeTtlNanos;
+            }
+            if (Objects.isNull(resolvedUrl.expiresAt())) {
+                return lifetime.toNanos();
+            }
+            Duration untilExpiration = Duration.between(LocalDateTime.now(), resolvedUrl.expiresAt());
+            if (untilExpiration.isNegative()) {
+                return 0;
+            }
+            return (untilExpiration.compareTo(lifetime) < 0 ? untilExpiration : lifetime).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String shortUrlCode, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(shortUrlCode, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String shortUrlCode, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
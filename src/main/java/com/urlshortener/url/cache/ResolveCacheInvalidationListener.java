@@ -0,0 +1,249 @@
+package com.urlshortener.url.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component evicting short URL codes from the {@link ResolveCache} when they are changed on any node.
+ * <p>
+ * The {@code urls} triggers send a notification on the {@value #CHANNEL} channel for every updated or deleted
+ * code (see {@code V6__Create_trigger_notify_url_changes.sql}). Inserts are not notified, because NOTIFY serializes
+ * the committing transactions; a new code cached as not found on another node is served as not found for
+ * {@code url.resolve-cache.negative-ttl} at most. Every node keeps one dedicated connection per
+ * database, outside the connection pool, that listens on the channel. Notifications arriving within
+ * {@code url.resolve-cache.invalidation.coalesce-window} of the first one are evicted as one batch.
+ * </p>
+ * <p>
+ * Codes are evicted from both tiers of the cache: the node that made the change evicts them before its
+ * transaction commits, so a concurrent resolve could have cached the old row again in the shared tier.
+ * Notifications sent while the connection is down are lost, so after every (re)connect the whole in-process tier
+ * is cleared. The delay between the change in the database and the eviction is published as
+ * {@code urlshortener.url.cache.invalidation.lag}; it relies on the clocks of the database and the node.
+ * A resolve that read the old row before the change was committed may still cache it afterwards;
+ * such entries are bounded by {@code url.resolve-cache.expire-after-write}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "url.resolve-cache.invalidation.enabled", havingValue = "true")
+@Slf4j
+public class ResolveCacheInvalidationListener implements SmartLifecycle {
+    static final String CHANNEL = "url_changes";
+
+    private static final int POLL_TIMEOUT_MILLIS = 1_000;
+    private static final Duration KEEPALIVE_INTERVAL = Duration.ofSeconds(10);
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final ResolveCache resolveCache;
+    private final List<Endpoint> endpoints;
+    private final Duration coalesceWindow;
+    private final Counter notifications;
+    private final Counter resyncs;
+    private final Timer lag;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public ResolveCacheInvalidationListener(
+            ResolveCache resolveCache,
+            DataSourceProperties properties,
+            @Value("${datasource.shards.enabled:false}") boolean sharded,
+            @Value("${datasource.shards.urls:}") List<String> shardUrls,
+            @Value("${datasource.shards.username:${spring.datasource.username}}") String shardUsername,
+            @Value("${datasource.shards.password:${spring.datasource.password}}") String shardPassword,
+            @Value("${url.resolve-cache.invalidation.coalesce-window:PT0.05S}") Duration coalesceWindow,
+            MeterRegistry registry) {
+        this(resolveCache, endpoints(properties, sharded, shardUrls, shardUsername, shardPassword),
+                coalesceWindow, registry);
+    }
+
+    ResolveCacheInvalidationListener(ResolveCache resolveCache, List<Endpoint> endpoints,
+                                     Duration coalesceWindow, MeterRegistry registry) {
+        this.resolveCache = resolveCache;
+        this.endpoints = endpoints;
+        this.coalesceWindow = coalesceWindow;
+        this.notifications = Counter.builder("urlshortener.url.cache.invalidation.notifications")
+                .description("URL change notifications received from the database")
+                .register(registry);
+        this.resyncs = Counter.builder("urlshortener.url.cache.invalidation.resyncs")
+                .description("Resolve cache clears after the change listener (re)connected")
+                .register(registry);
+        this.lag = Timer.builder("urlshortener.url.cache.invalidation.lag")
+                .description("Delay between a URL change in the database and its eviction from the resolve cache")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get(i);
+            threads.add(Thread.ofPlatform()
+                    .name("url-change-listener-" + i)
+                    .daemon()
+                    .start(() -> listen(endpoint)));
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(POLL_TIMEOUT_MILLIS * 2L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Listens on one database until the listener is stopped, reconnecting with exponential backoff.
+     */
+    private void listen(Endpoint endpoint) {
+        Duration backoff = MIN_BACKOFF;
+
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(endpoint.url(), endpoint.username(),
+                    endpoint.password())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+
+                // Changes made while no connection was listening are unknown
+                resolveCache.clear();
+                resyncs.increment();
+                backoff = MIN_BACKOFF;
+                log.info("Listening for URL changes on {}", endpoint.url());
+
+                receive(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("URL change listener on {} failed, reconnecting in {}: {}",
+                        endpoint.url(), backoff, e.getMessage());
+                if (!sleep(backoff)) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long lastActivity = System.nanoTime();
+
+        while (running) {
+            PGNotification[] received = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+
+            if (received == null || received.length == 0) {
+                // A broken connection is not noticed while only waiting for notifications
+                if (System.nanoTime() - lastActivity > KEEPALIVE_INTERVAL.toNanos()) {
+                    if (!connection.isValid((int) KEEPALIVE_INTERVAL.toSeconds())) {
+                        throw new SQLException("Listener connection is no longer valid");
+                    }
+                    lastActivity = System.nanoTime();
+                }
+                continue;
+            }
+
+            Set<String> shortUrlCodes = new HashSet<>();
+            collect(received, shortUrlCodes);
+
+            // Bursts, such as a sweeper batch, are evicted together
+            long deadline = System.nanoTime() + coalesceWindow.toNanos();
+            for (long remaining; (remaining = deadline - System.nanoTime()) > 0; ) {
+                collect(pgConnection.getNotifications((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining))),
+                        shortUrlCodes);
+            }
+
+            resolveCache.evictAll(shortUrlCodes);
+            lastActivity = System.nanoTime();
+        }
+    }
+
+    private void collect(PGNotification[] received, Set<String> shortUrlCodes) {
+        if (received == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (PGNotification notification : received) {
+            String payload = notification.getParameter();
+            int separator = payload.indexOf(' ');
+            if (!CHANNEL.equals(notification.getName()) || separator < 0) {
+                continue;
+            }
+
+            try {
+                lag.record(Math.max(0, now - Long.parseLong(payload.substring(0, separator))), TimeUnit.MILLISECONDS);
+            } catch (NumberFormatException e) {
+                log.debug("Malformed URL change notification: {}", payload);
+            }
+            shortUrlCodes.add(payload.substring(separator + 1));
+            notifications.increment();
+        }
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static List<Endpoint> endpoints(DataSourceProperties properties, boolean sharded, List<String> shardUrls,
+                                            String shardUsername, String shardPassword) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        endpoints.add(new Endpoint(properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword()));
+        if (sharded) {
+            shardUrls.forEach(url -> endpoints.add(new Endpoint(url, shardUsername, shardPassword)));
+        }
+        return endpoints;
+    }
+
+    /**
+     * Database to listen on.
+     */
+    record Endpoint(String url, String username, String password) {
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.urlshortener.url.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Immutable result of resolving a short URL code, kept in the {@link ResolveCache}.
+ * <p>
+ * Besides the mapping itself, it carries the fully encoded JSON response body and the response headers,
+ * so a cache hit can be written to the client without mapping or serialization.
+ * The {@code body} array is shared between requests and must never be modified.
+ * </p>
+ *
+ * @param id           the identifier of the URL entity, used to increment visits, or {@code null} if the code
+ *                     does not exist
+ * @param shortUrlCode the short URL code
+ * @param longUrl      the original long URL
+ * @param expiresAt    the expiration date of the URL, or {@code null} if it never expires
+ * @param body         the pre-serialized JSON response body
+ * @param headers      the read-only response headers
+ */
+public record ResolvedUrl(Long id,
+                          String shortUrlCode,
+                          String longUrl,
+                          LocalDateTime expiresAt,
+                          byte[] body,
+                          HttpHeaders headers) {
+
+    /**
+     * Response header set when the result was served from the cache without reaching the URL storage.
+     */
+    public static final String DEGRADED_HEADER = "X-Degraded-Mode";
+
+    /**
+     * Returns the cache entry of a short URL code that does not exist.
+     *
+     * @param shortUrlCode the short URL code that was not found
+     * @return a {@link ResolvedUrl} without a long URL and response
+     */
+    public static ResolvedUrl notFound(String shortUrlCode) {
+        return new ResolvedUrl(null, shortUrlCode, null, null, null, null);
+    }
+
+    /**
+     * Checks whether the short URL code was cached as not existing.
+     *
+     * @return {@code true} if there is no URL for the code
+     */
+    public boolean isNotFound() {
+        return Objects.isNull(id);
+    }
+
+    /**
+     * Returns a copy of this result whose response headers mark it as served in degraded mode.
+     *
+     * @return a {@link ResolvedUrl} with the {@value #DEGRADED_HEADER} header
+     */
+    public ResolvedUrl degraded() {
+        HttpHeaders degradedHeaders = new HttpHeaders();
+        degradedHeaders.putAll(headers);
+        degradedHeaders.set(DEGRADED_HEADER, "cache");
+        return new ResolvedUrl(id, shortUrlCode, longUrl, expiresAt, body, HttpHeaders.readOnlyHttpHeaders(degradedHeaders));
+    }
+
+    /**
+     * Checks whether the resolved URL has expired at the given moment.
+     *
+     * @param now the moment to check against
+     * @return {@code true} if the URL has an expiration date before {@code now}
+     */
+    public boolean isExpired(LocalDateTime now) {
+        return Objects.nonNull(expiresAt) && expiresAt.isBefore(now);
+    }
+}
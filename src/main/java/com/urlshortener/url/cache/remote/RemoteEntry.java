@@ -0,0 +1,27 @@
+package com.urlshortener.url.cache.remote;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entry of the {@link RemoteResolveCache}: the data needed to rebuild a resolve result, or the marker
+ * of a code that does not exist.
+ *
+ * @param id        the identifier of the URL entity, {@code null} for a missing code
+ * @param longUrl   the original long URL
+ * @param expiresAt the expiration date of the URL, or {@code null} if it never expires
+ */
+public record RemoteEntry(Long id, String longUrl, LocalDateTime expiresAt) {
+    private static final RemoteEntry NOT_FOUND = new RemoteEntry(null, null, null);
+
+    /**
+     * Returns the entry of a code that does not exist.
+     */
+    public static RemoteEntry notFound() {
+        return NOT_FOUND;
+    }
+
+    public boolean isNotFound() {
+        return Objects.isNull(id);
+    }
+}
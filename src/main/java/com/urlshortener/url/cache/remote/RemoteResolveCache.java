@@ -0,0 +1,44 @@
+package com.urlshortener.url.cache.remote;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Shared second tier of the {@link com.urlshortener.url.cache.ResolveCache}.
+ * <p>
+ * The remote tier is shared by all nodes, so a code resolved on one node is a cache hit on the others.
+ * Implementations must be safe for concurrent use and should fail fast: every call is made on the resolve
+ * path, and failures are counted by the circuit breaker of the {@code ResolveCache}.
+ * {@link RespRemoteResolveCache} talks to a Redis-compatible server.
+ * </p>
+ */
+public interface RemoteResolveCache {
+
+    /**
+     * Returns the entry of a short URL code.
+     *
+     * @param shortUrlCode the short URL code
+     * @return the entry, or an empty {@link Optional} if the code is not cached
+     * @throws IOException if the remote cache cannot be reached
+     */
+    Optional<RemoteEntry> get(String shortUrlCode) throws IOException;
+
+    /**
+     * Stores the entry of a short URL code.
+     *
+     * @param shortUrlCode the short URL code
+     * @param entry        the entry to store
+     * @param ttl          the time after which the remote cache drops the entry
+     * @throws IOException if the remote cache cannot be reached
+     */
+    void put(String shortUrlCode, RemoteEntry entry, Duration ttl) throws IOException;
+
+    /**
+     * Removes the entry of a short URL code.
+     *
+     * @param shortUrlCode the short URL code
+     * @throws IOException if the remote cache cannot be reached
+     */
+    void delete(String shortUrlCode) throws IOException;
+}
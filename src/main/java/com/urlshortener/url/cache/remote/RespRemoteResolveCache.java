@@ -0,0 +1,77 @@
+package com.urlshortener.url.cache.remote;
+
+import com.urlshortener.util.RespClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * {@link RemoteResolveCache} on a Redis-compatible server, enabled by {@code url.resolve-cache.remote.enabled}.
+ * <p>
+ * Entries are stored as strings under {@value #KEY_PREFIX}{@code <code>} with a millisecond TTL.
+ * The value is {@code <id>\t<expiresAt>\t<longUrl>}, with an empty expiration date for URLs that never expire,
+ * or an empty string for a code that does not exist.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "url.resolve-cache.remote.enabled", havingValue = "true")
+public class RespRemoteResolveCache implements RemoteResolveCache, AutoCloseable {
+    static final String KEY_PREFIX = "urlshortener:resolve:";
+
+    private final RespClient client;
+
+    public RespRemoteResolveCache(@Value("${url.resolve-cache.remote.host:localhost}") String host,
+                                  @Value("${url.resolve-cache.remote.port:6379}") int port,
+                                  @Value("${url.resolve-cache.remote.password:}") String password,
+                                  @Value("${url.resolve-cache.remote.timeout:PT0.05S}") Duration timeout,
+                                  @Value("${url.resolve-cache.remote.pool-size:16}") int poolSize) {
+        this.client = new RespClient(host, port, password, timeout, poolSize);
+    }
+
+    @Override
+    public Optional<RemoteEntry> get(String shortUrlCode) throws IOException {
+        Object value = client.execute("GET", KEY_PREFIX + shortUrlCode);
+        return value == null ? Optional.empty() : Optional.of(decode((String) value));
+    }
+
+    @Override
+    public void put(String shortUrlCode, RemoteEntry entry, Duration ttl) throws IOException {
+        client.execute("SET", KEY_PREFIX + shortUrlCode, encode(entry), "PX", Long.toString(ttl.toMillis()));
+    }
+
+    @Override
+    public void delete(String shortUrlCode) throws IOException {
+        client.execute("DEL", KEY_PREFIX + shortUrlCode);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    static String encode(RemoteEntry entry) {
+        if (entry.isNotFound()) {
+            return "";
+        }
+        return entry.id() + "\t" + (entry.expiresAt() == null ? "" : entry.expiresAt()) + "\t" + entry.longUrl();
+    }
+
+    static RemoteEntry decode(String value) throws IOException {
+        if (value.isEmpty()) {
+            return RemoteEntry.notFound();
+        }
+
+        String[] fields = value.split("\t", 3);
+        if (fields.length != 3) {
+            throw new IOException("Malformed remote cache entry");
+        }
+        return new RemoteEntry(Long.parseLong(fields[0]),
+                fields[2],
+                fields[1].isEmpty() ? null : LocalDateTime.parse(fields[1]));
+    }
+}
@@ -1,9 +1,12 @@
 package com.urlshortener.url.controller;
 
 import com.urlshortener.config.openapi.annotations.url.*;
+import com.urlshortener.url.cache.ResolvedUrl;
 import com.urlshortener.url.dto.operations.GetShortUrlRequest;
 import com.urlshortener.url.dto.operations.UpdateUrlRequest;
 import com.urlshortener.url.dto.operations.UrlResponse;
+import com.urlshortener.url.idempotency.IdempotencyService;
+import com.urlshortener.url.idempotency.IdempotencyService.IdempotentResponse;
 import com.urlshortener.url.service.UrlService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +14,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Objects;
+
 /**
  * Controller for managing URL shortening and retrieval in the URL shortener application.
  * <p>
@@ -24,39 +29,53 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class UrlController {
     private final UrlService urlService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Shortens a long URL.
      * <p>
      * This endpoint accepts a long URL and returns a short version of it.
+     * With an idempotency key, retries of the request return the original response instead of
+     * creating another short URL.
      * </p>
      *
-     * @param request the {@link GetShortUrlRequest} containing the long URL and additional data
+     * @param request        the {@link GetShortUrlRequest} containing the long URL and additional data
+     * @param idempotencyKey the optional idempotency key of the request
      * @return a {@link ResponseEntity} containing the short URL code and HTTP status
      */
     @ShortFromLongOpenApi
     @PostMapping
     public ResponseEntity<UrlResponse> shortFromLong(
             @ShortFromLongOpenApiRequestBody
-            @RequestBody GetShortUrlRequest request) {
-        UrlResponse response = urlService.getShortUrlCodeFromLongUrl(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            @RequestBody GetShortUrlRequest request,
+            @RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (Objects.isNull(idempotencyKey)) {
+            UrlResponse response = urlService.getShortUrlCodeFromLongUrl(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+
+        IdempotentResponse response = idempotencyService.execute(idempotencyKey, request,
+                () -> urlService.getShortUrlCodeFromLongUrl(request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(response.replayed()))
+                .body(response.response());
     }
 
     /**
      * Retrieves the original long URL from a given short URL code.
      * <p>
      * This endpoint takes a short URL code and returns the corresponding long URL.
+     * The response body is already encoded as a {@link UrlResponse} and is written to the client as is.
      * </p>
      *
      * @param shortUrlCode the code of the short URL
-     * @return a {@link ResponseEntity} containing the long URL and HTTP status
+     * @return a {@link ResponseEntity} containing the encoded long URL response and HTTP status
      */
     @LongFromShortOpenApi
     @PostMapping("/{shortUrlCode}")
-    public ResponseEntity<UrlResponse> longFromShort(@PathVariable String shortUrlCode) {
-        UrlResponse response = urlService.getLongUrlFromShortUrl(shortUrlCode);
-        return ResponseEntity.ok().body(response);
+    public ResponseEntity<byte[]> longFromShort(@PathVariable String shortUrlCode) {
+        ResolvedUrl resolvedUrl = urlService.getLongUrlFromShortUrl(shortUrlCode);
+        return ResponseEntity.ok().headers(resolvedUrl.headers()).body(resolvedUrl.body());
     }
 
     /**
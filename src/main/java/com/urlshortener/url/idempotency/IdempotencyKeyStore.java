@@ -0,0 +1,134 @@
+package com.urlshortener.url.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Persisted idempotency keys of shorten requests, in the {@code idempotency_keys} table.
+ * <p>
+ * A claim runs on its own, so it is visible to concurrent retries before the URL is created, while the response
+ * is stored in the transaction of the URL. With sharding, a key is kept on the shard its URL is created on,
+ * see {@link IdempotencyService}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyStore {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Claims a key for a new request.
+     * <p>
+     * The returned claim time identifies the claim, so a request whose claim was released as abandoned and
+     * taken by a retry does not complete or release the claim of the retry.
+     * </p>
+     *
+     * @param userId      the ID of the user sending the request
+     * @param key         the idempotency key
+     * @param requestHash the hash of the request
+     * @return the time of the claim, or an empty {@link Optional} if the key is already claimed
+     */
+    public Optional<LocalDateTime> claim(Long userId, String key, String requestHash) {
+        return jdbcTemplate.query("""
+                        INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash)
+                        VALUES (?, ?, ?)
+                        ON CONFLICT (user_id, idempotency_key) DO NOTHING
+                        RETURNING created_at""",
+                (rs, rowNum) -> rs.getObject("created_at", LocalDateTime.class),
+                userId, key, requestHash).stream().findFirst();
+    }
+
+    /**
+     * Finds a claimed key.
+     *
+     * @param userId the ID of the user
+     * @param key    the idempotency key
+     * @return the key, or an empty {@link Optional} if it is not claimed
+     */
+    public Optional<StoredKey> find(Long userId, String key) {
+        return jdbcTemplate.query("""
+                        SELECT request_hash, response
+                        FROM idempotency_keys
+                        WHERE user_id = ? AND idempotency_key = ?""",
+                (rs, rowNum) -> new StoredKey(rs.getString("request_hash"), rs.getString("response")),
+                userId, key).stream().findFirst();
+    }
+
+    /**
+     * Stores the response of the request that claimed the key. Called in the transaction creating the URL,
+     * so the URL and the response are committed together.
+     *
+     * @param userId    the ID of the user
+     * @param key       the idempotency key
+     * @param claimedAt the time of the claim
+     * @param response  the serialized response
+     * @return {@code false} if the claim is no longer held by the request
+     */
+    public boolean complete(Long userId, String key, LocalDateTime claimedAt, String response) {
+        return jdbcTemplate.update("""
+                UPDATE idempotency_keys SET response = ?
+                WHERE user_id = ? AND idempotency_key = ? AND created_at = ? AND response IS NULL""",
+                response, userId, key, claimedAt) == 1;
+    }
+
+    /**
+     * Releases the claim of a request that failed, so the key can be used again.
+     *
+     * @param userId    the ID of the user
+     * @param key       the idempotency key
+     * @param claimedAt the time of the claim
+     */
+    public void release(Long userId, String key, LocalDateTime claimedAt) {
+        jdbcTemplate.update("""
+                DELETE FROM idempotency_keys
+                WHERE user_id = ? AND idempotency_key = ? AND created_at = ? AND response IS NULL""",
+                userId, key, claimedAt);
+    }
+
+    /**
+     * Releases a claim whose request has not completed within the given time, e.g. because the node processing
+     * it stopped.
+     *
+     * @param userId  the ID of the user
+     * @param key     the idempotency key
+     * @param timeout the time after which a pending claim is abandoned
+     * @return {@code true} if an abandoned claim was released
+     */
+    public boolean releaseAbandoned(Long userId, String key, Duration timeout) {
+        return jdbcTemplate.update("""
+                DELETE FROM idempotency_keys
+                WHERE user_id = ? AND idempotency_key = ? AND response IS NULL
+                  AND created_at < LOCALTIMESTAMP - make_interval(secs => ?)""",
+                userId, key, toSeconds(timeout)) == 1;
+    }
+
+    /**
+     * Deletes the keys claimed longer ago than the given time.
+     *
+     * @param ttl the time keys are kept for
+     * @return the number of deleted keys
+     */
+    public int deleteOlderThan(Duration ttl) {
+        return jdbcTemplate.update("""
+                DELETE FROM idempotency_keys
+                WHERE created_at < LOCALTIMESTAMP - make_interval(secs => ?)""", toSeconds(ttl));
+    }
+
+    private static double toSeconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    /**
+     * A claimed key.
+     *
+     * @param requestHash the hash of the request that claimed the key
+     * @param response    the serialized response, or {@code null} while the request is being processed
+     */
+    public record StoredKey(String requestHash, String response) {
+    }
+}
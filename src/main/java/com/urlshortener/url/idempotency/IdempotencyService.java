@@ -0,0 +1,243 @@
+package com.urlshortener.url.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.config.sharding.ShardContext;
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.error.exception.IdempotencyConflictException;
+import com.urlshortener.error.exception.ValidationException;
+import com.urlshortener.security.provider.SecurityContextProvider;
+import com.urlshortener.url.dto.operations.GetShortUrlRequest;
+import com.urlshortener.url.dto.operations.UrlResponse;
+import com.urlshortener.url.idempotency.IdempotencyKeyStore.StoredKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.urlshortener.util.MessageProvider.*;
+
+/**
+ * Service making shorten requests idempotent with the {@value #IDEMPOTENCY_KEY_HEADER} header.
+ * <p>
+ * The first request with a key claims it in the {@link IdempotencyKeyStore} before the URL is created and stores
+ * the response in the transaction creating the URL, so a created URL always has its response stored.
+ * Retries with the same key and request get that response again, marked with the {@value #REPLAYED_HEADER}
+ * header, without creating another URL. Recently completed keys are also kept in memory for
+ * {@code idempotency.cache-ttl}, so quick retries do not reach the database.
+ * </p>
+ * <p>
+ * A key reused for a different request is rejected, and so is a retry while the first request is still being
+ * processed. A pending claim therefore has no URL yet, and once left pending for {@code idempotency.lock-timeout},
+ * e.g. by a node that stopped, it is given up. A request that lost its claim that way rolls back its URL instead
+ * of storing the response. If the request fails, the claim is released, so the client can retry with the same
+ * key. Keys are kept for {@code idempotency.ttl}.
+ * </p>
+ * <p>
+ * With sharding, the shard of the URL is chosen by the user and key instead of randomly, so the key is stored
+ * on the same shard and in the same transaction as the URL.
+ * </p>
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyStore store;
+    private final SecurityContextProvider contextProvider;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardResolver shardResolver;
+    private final ShardQueryExecutor shardQueryExecutor;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Cache<CacheKey, Completed> completed;
+    private final Counter replayed;
+
+    public IdempotencyService(IdempotencyKeyStore store,
+                              SecurityContextProvider contextProvider,
+                              ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              ShardResolver shardResolver,
+                              ShardQueryExecutor shardQueryExecutor,
+                              MeterRegistry registry,
+                              @Value("${idempotency.ttl:P1D}") Duration ttl,
+                              @Value("${idempotency.lock-timeout:PT30S}") Duration lockTimeout,
+                              @Value("${idempotency.cache-ttl:PT10M}") Duration cacheTtl,
+                              @Value("${idempotency.cache-maximum-size:10000}") long cacheMaximumSize) {
+        this.store = store;
+        this.contextProvider = contextProvider;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.shardResolver = shardResolver;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.completed = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaximumSize)
+                .build();
+        this.replayed = Counter.builder("urlshortener.url.shorten.replayed")
+                .description("Shorten requests answered with the response of an earlier request with the same key")
+                .register(registry);
+    }
+
+    /**
+     * Executes a shorten request at most once per idempotency key of the authenticated user.
+     *
+     * @param key       the idempotency key sent by the client
+     * @param request   the shorten request
+     * @param shortener the creation of the short URL
+     * @return the response, and whether it was replayed
+     * @throws ValidationException           if the key is malformed or was used for a different request
+     * @throws IdempotencyConflictException if a request with the same key is still being processed
+     */
+    public IdempotentResponse execute(String key, GetShortUrlRequest request, Supplier<UrlResponse> shortener) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException(IDEMPOTENCY_KEY_INCORRECT_MESSAGE);
+        }
+
+        Long userId = contextProvider.getAuthenticatedUser().getId();
+        String requestHash = hash(request);
+        CacheKey cacheKey = new CacheKey(userId, key);
+
+        Completed cached = completed.getIfPresent(cacheKey);
+        if (Objects.nonNull(cached)) {
+            return replay(cached, requestHash);
+        }
+
+        if (!shardResolver.isSharded() || Objects.nonNull(ShardContext.current())) {
+            return execute(userId, key, requestHash, cacheKey, shortener);
+        }
+
+        // Kept by @ShardRouted, so the URL is created on the shard of the key
+        ShardContext.set(Math.floorMod(Objects.hash(userId, key), shardResolver.getShardCount()));
+        try {
+            return execute(userId, key, requestHash, cacheKey, shortener);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    /**
+     * Deletes the keys older than {@code idempotency.ttl} on every shard.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    public void purgeExpiredKeys() {
+        int deleted = shardQueryExecutor.executeOnAllShards(() -> store.deleteOlderThan(ttl)).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private IdempotentResponse execute(Long userId, String key, String requestHash, CacheKey cacheKey,
+                                       Supplier<UrlResponse> shortener) {
+        Optional<LocalDateTime> claim;
+        while ((claim = store.claim(userId, key, requestHash)).isEmpty()) {
+            Optional<StoredKey> stored = store.find(userId, key);
+            if (stored.isEmpty()) {
+                // Released in the meantime
+                continue;
+            }
+            if (Objects.nonNull(stored.get().response())) {
+                Completed previous = new Completed(stored.get().requestHash(), deserialize(stored.get().response()));
+                completed.put(cacheKey, previous);
+                return replay(previous, requestHash);
+            }
+            if (!stored.get().requestHash().equals(requestHash)) {
+                throw new ValidationException(IDEMPOTENCY_KEY_REUSED_MESSAGE);
+            }
+            if (!store.releaseAbandoned(userId, key, lockTimeout)) {
+                throw new IdempotencyConflictException(IDEMPOTENCY_KEY_IN_PROGRESS_MESSAGE);
+            }
+        }
+
+        LocalDateTime claimedAt = claim.get();
+        UrlResponse response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                UrlResponse created = shortener.get();
+                if (!store.complete(userId, key, claimedAt, serialize(created))) {
+                    // Given up as abandoned and claimed by a retry, which creates the URL instead
+                    throw new IdempotencyConflictException(IDEMPOTENCY_KEY_IN_PROGRESS_MESSAGE);
+                }
+                return created;
+            });
+        } catch (RuntimeException e) {
+            store.release(userId, key, claimedAt);
+            throw e;
+        }
+
+        completed.put(cacheKey, new Completed(requestHash, response));
+        return new IdempotentResponse(response, false);
+    }
+
+    private IdempotentResponse replay(Completed previous, String requestHash) {
+        if (!previous.requestHash().equals(requestHash)) {
+            throw new ValidationException(IDEMPOTENCY_KEY_REUSED_MESSAGE);
+        }
+        replayed.increment();
+        return new IdempotentResponse(previous.response(), true);
+    }
+
+    private String serialize(UrlResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the shorten response", e);
+        }
+    }
+
+    private UrlResponse deserialize(String response) {
+        try {
+            return objectMapper.readValue(response, UrlResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to read the stored shorten response", e);
+        }
+    }
+
+    private static String hash(GetShortUrlRequest request) {
+        String canonical = request.getLongUrl() + '\n' + request.getExpiresAt();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Response of an idempotent request.
+     *
+     * @param response the response
+     * @param replayed whether the response was created by an earlier request with the same key
+     */
+    public record IdempotentResponse(UrlResponse response, boolean replayed) {
+    }
+
+    private record CacheKey(Long userId, String key) {
+    }
+
+    private record Completed(String requestHash, UrlResponse response) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.urlshortener.url.retention;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.url.cache.ResolveCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Background job removing expired URLs, enabled by {@code url.sweeper.enabled} (off by default, because the
+ * statistics of removed URLs are no longer listed).
+ * <p>
+ * URLs that expired more than {@code url.sweeper.grace} ago are removed in batches of
+ * {@code url.sweeper.batch-size}, each in its own short transaction. The batch is selected with
+ * {@code FOR UPDATE SKIP LOCKED}, so several nodes can sweep at the same time: rows locked by another
+ * node are skipped instead of waited for. Removed URLs are moved to {@code urls_archive} together with
+ * their visit count, or deleted when {@code url.sweeper.archive} is off, and their codes are evicted
+ * from the {@link ResolveCache}. Throughput is published as {@code urlshortener.url.sweeper.rows}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "url.sweeper.enabled", havingValue = "true")
+@Slf4j
+public class ExpiredUrlSweeper {
+
+    /**
+     * Locks a batch of expired URLs and deletes them with their counters, returning the removed rows.
+     */
+    private static final String DELETE_EXPIRED = """
+            WITH expired AS (SELECT id
+                             FROM urls
+                             WHERE expires_at < ?
+                             ORDER BY expires_at
+                             LIMIT ? FOR UPDATE SKIP LOCKED),
+                 deleted AS (DELETE FROM urls u USING expired e
+                     WHERE u.id = e.id
+                     RETURNING u.id, u.short_url_code, u.long_url, u.created_at, u.expires_at, u.user_id),
+                 visits AS (DELETE FROM url_visits v USING deleted d
+                     WHERE v.url_id = d.id
+                     RETURNING v.url_id, v.visits)
+            """;
+
+    private static final String ARCHIVE_EXPIRED = DELETE_EXPIRED + """
+            INSERT INTO urls_archive (id, short_url_code, long_url, visits, created_at, expires_at, user_id)
+            SELECT d.id, d.short_url_code, d.long_url, COALESCE(v.visits, 0), d.created_at, d.expires_at, d.user_id
+            FROM deleted d
+                     LEFT JOIN visits v ON v.url_id = d.id
+            RETURNING short_url_code
+            """;
+
+    // Data-modifying CTEs run even when the main query does not read them
+    private static final String PURGE_EXPIRED = DELETE_EXPIRED + """
+            SELECT short_url_code
+            FROM deleted
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardQueryExecutor shardQueryExecutor;
+    private final ResolveCache resolveCache;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration grace;
+    private final String sweepSql;
+    private final Counter sweptRows;
+    private final Timer batchTimer;
+
+    public ExpiredUrlSweeper(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ShardQueryExecutor shardQueryExecutor,
+                             ResolveCache resolveCache,
+                             MeterRegistry registry,
+                             @Value("${url.sweeper.batch-size:1000}") int batchSize,
+                             @Value("${url.sweeper.max-batches:100}") int maxBatches,
+                             @Value("${url.sweeper.grace:P7D}") Duration grace,
+                             @Value("${url.sweeper.archive:true}") boolean archive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.resolveCache = resolveCache;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.grace = grace;
+        this.sweepSql = archive ? ARCHIVE_EXPIRED : PURGE_EXPIRED;
+
+        String mode = archive ? "archive" : "delete";
+        this.sweptRows = Counter.builder("urlshortener.url.sweeper.rows")
+                .description("Expired URLs removed by the sweeper")
+                .tag("mode", mode)
+                .register(registry);
+        this.batchTimer = Timer.builder("urlshortener.url.sweeper.batch")
+                .description("Duration of one sweeper batch")
+                .tag("mode", mode)
+                .register(registry);
+    }
+
+    /**
+     * Sweeps the expired URLs of every shard.
+     */
+    @Scheduled(fixedDelayString = "${url.sweeper.interval:PT1M}", initialDelayString = "${url.sweeper.interval:PT1M}")
+    public void sweepAllShards() {
+        shardQueryExecutor.executeOnAllShards(this::sweep);
+    }
+
+    /**
+     * Removes expired URLs batch by batch until a batch comes back partially filled
+     * or {@code url.sweeper.max-batches} batches have been run.
+     *
+     * @return the number of removed URLs
+     */
+    public long sweep() {
+        LocalDateTime threshold = LocalDateTime.now().minus(grace);
+        long started = System.nanoTime();
+        long total = 0;
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<String> codes = batchTimer.record(() -> transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForList(sweepSql, String.class, threshold, batchSize)));
+            List<String> removed = Objects.requireNonNullElse(codes, List.of());
+
+            removed.forEach(resolveCache::evict);
+            sweptRows.increment(removed.size());
+            total += removed.size();
+
+            if (removed.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            log.info("Swept {} expired URLs in {} ms ({} rows/s)",
+                    total, Math.round(seconds * 1000), Math.round(total / seconds));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,164 @@
+package com.urlshortener.url.retention;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Job maintaining the monthly partitions of the urls table, enabled by {@code url.partitioning.enabled}.
+ * <p>
+ * The table must have been converted by {@code db/partitioning/R__Partition_urls_by_expiry.sql}.
+ * On each run the job creates the partitions for the coming months, moving URLs that already wait
+ * in the default partition, and drops every monthly partition whose URLs all expired more than
+ * {@code url.partitioning.retention-grace} ago. Dropping a partition replaces row-by-row deletes
+ * and leaves no dead tuples or index entries behind. With sharding, every shard is maintained.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "url.partitioning.enabled", havingValue = "true")
+@Slf4j
+public class UrlPartitionMaintenanceJob {
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("urls_p(\\d{4})_(\\d{2})");
+    private static final String URL_COLUMNS = "id, short_url_code, long_url, created_at, expires_at, user_id, long_url_hash";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardQueryExecutor shardQueryExecutor;
+    private final int premadeMonths;
+    private final Duration retentionGrace;
+    private final Clock clock;
+
+    public UrlPartitionMaintenanceJob(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      ShardQueryExecutor shardQueryExecutor,
+                                      @Value("${url.partitioning.premade-months:3}") int premadeMonths,
+                                      @Value("${url.partitioning.retention-grace:P7D}") Duration retentionGrace) {
+        this(jdbcTemplate, transactionTemplate, shardQueryExecutor, premadeMonths, retentionGrace,
+                Clock.systemDefaultZone());
+    }
+
+    UrlPartitionMaintenanceJob(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ShardQueryExecutor shardQueryExecutor,
+                               int premadeMonths,
+                               Duration retentionGrace,
+                               Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.premadeMonths = premadeMonths;
+        this.retentionGrace = retentionGrace;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates the upcoming partitions and drops the expired ones on every shard.
+     */
+    @Scheduled(cron = "${url.partitioning.maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        shardQueryExecutor.executeOnAllShards(() -> {
+            createUpcomingPartitions();
+            dropExpiredPartitions();
+            return null;
+        });
+    }
+
+    /**
+     * Makes sure a partition exists for the current month and the configured number of months ahead.
+     */
+    void createUpcomingPartitions() {
+        Set<YearMonth> existing = Set.copyOf(monthlyPartitions());
+        YearMonth current = YearMonth.now(clock);
+
+        for (int i = 0; i <= premadeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!existing.contains(month)) {
+                transactionTemplate.executeWithoutResult(status -> createPartition(month));
+                log.info("Created partition {}", partitionName(month));
+            }
+        }
+    }
+
+    /**
+     * Drops the monthly partitions whose whole range expired before the retention grace period.
+     */
+    void dropExpiredPartitions() {
+        LocalDateTime threshold = LocalDateTime.now(clock).minus(retentionGrace);
+
+        for (YearMonth month : monthlyPartitions()) {
+            if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(threshold)) {
+                transactionTemplate.executeWithoutResult(status -> dropPartition(month));
+                log.info("Dropped expired partition {}", partitionName(month));
+            }
+        }
+    }
+
+    private List<YearMonth> monthlyPartitions() {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                         JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'urls'::regclass
+                """, String.class);
+
+        return names.stream()
+                .map(MONTHLY_PARTITION::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Creates the partition outside the table, moves the matching rows from the default partition into it
+     * and attaches it. Creating it directly would fail as soon as the default partition holds such rows.
+     * Deleting the rows releases their codes, so they are registered again for the new partition.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        String from = month.atDay(1).atStartOfDay().toString();
+        String to = month.plusMonths(1).atDay(1).atStartOfDay().toString();
+
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE urls INCLUDING DEFAULTS)");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM urls_default WHERE expires_at >= ?::timestamp"
+                + " AND expires_at < ?::timestamp RETURNING " + URL_COLUMNS + ")"
+                + " INSERT INTO " + partition + " (" + URL_COLUMNS + ") SELECT " + URL_COLUMNS + " FROM moved",
+                from, to);
+        jdbcTemplate.update("INSERT INTO url_codes (short_url_code, url_id) SELECT short_url_code, id FROM "
+                + partition + " WHERE short_url_code IS NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE urls ATTACH PARTITION " + partition
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    /**
+     * Removes the visit counters and codes of the partition's URLs, then detaches and drops the partition.
+     */
+    private void dropPartition(YearMonth month) {
+        String partition = partitionName(month);
+
+        jdbcTemplate.update("DELETE FROM url_visits v USING " + partition + " u WHERE v.url_id = u.id");
+        jdbcTemplate.update("DELETE FROM url_codes c USING " + partition + " u WHERE c.url_id = u.id");
+        jdbcTemplate.execute("ALTER TABLE urls DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "urls_p" + month.format(PARTITION_SUFFIX);
+    }
+}
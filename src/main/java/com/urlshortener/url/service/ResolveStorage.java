@@ -0,0 +1,264 @@
+package com.urlshortener.url.service;
+
+import com.urlshortener.config.bulkhead.Workload;
+import com.urlshortener.config.bulkhead.WorkloadContext;
+import com.urlshortener.config.sharding.ShardContext;
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import com.urlshortener.url.Url;
+import com.urlshortener.url.cache.ResolveCache;
+import com.urlshortener.url.storage.UrlStorage;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static com.urlshortener.util.MessageProvider.URL_STORAGE_UNAVAILABLE_MESSAGE;
+
+/**
+ * Access of the resolve path to the {@link UrlStorage}, keeping resolves of cached codes working while
+ * the storage is slow or down.
+ * <p>
+ * Every call runs in its own transaction limited to {@code url.resolve.storage.timeout}, and goes through
+ * a {@link CircuitBreaker}: after {@code url.resolve.storage.failure-threshold} consecutive failures
+ * the storage is not called for {@code url.resolve.storage.open-duration}. Lookups that cannot reach
+ * the storage fail with a {@link ServiceUnavailableException}; visits of cached codes are buffered instead
+ * and added to the storage by {@link #flushVisits()} once it is back, up to
+ * {@code url.resolve.visits.max-buffered-urls} distinct URLs.
+ * </p>
+ * <p>
+ * Stale entries of the {@link ResolveCache} are {@linkplain #revalidate(String) reloaded} on a small pool
+ * of background threads, so the request that found them is not delayed. The reload uses the shard and
+ * connection pool of that request.
+ * Degraded resolves are published as {@code urlshortener.url.resolve.degraded}.
+ * </p>
+ */
+@Component
+@Slf4j
+public class ResolveStorage implements AutoCloseable {
+    private final UrlStorage urlStorage;
+    private final ResolveCache resolveCache;
+    private final TransactionTemplate transactionTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxBufferedUrls;
+    private final ExecutorService revalidationExecutor;
+    private final Map<VisitKey, Long> bufferedVisits = new ConcurrentHashMap<>();
+    private final Counter failures;
+    private final Counter degraded;
+    private final Counter droppedVisits;
+
+    @Autowired
+    public ResolveStorage(UrlStorage urlStorage,
+                          ResolveCache resolveCache,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry registry,
+                          @Value("${url.resolve.storage.timeout:PT1S}") Duration timeout,
+                          @Value("${url.resolve.storage.failure-threshold:5}") int failureThreshold,
+                          @Value("${url.resolve.storage.open-duration:PT5S}") Duration openDuration,
+                          @Value("${url.resolve.visits.max-buffered-urls:100000}") int maxBufferedUrls,
+                          @Value("${url.resolve.revalidation-threads:2}") int revalidationThreads) {
+        this(urlStorage, resolveCache, transactionTemplate(transactionManager, timeout),
+                new CircuitBreaker(failureThreshold, openDuration), registry, maxBufferedUrls,
+                Executors.newFixedThreadPool(revalidationThreads,
+                        Thread.ofPlatform().name("resolve-revalidation-", 0).daemon().factory()));
+    }
+
+    ResolveStorage(UrlStorage urlStorage,
+                   ResolveCache resolveCache,
+                   TransactionTemplate transactionTemplate,
+                   CircuitBreaker circuitBreaker,
+                   MeterRegistry registry,
+                   int maxBufferedUrls,
+                   ExecutorService revalidationExecutor) {
+        this.urlStorage = urlStorage;
+        this.resolveCache = resolveCache;
+        this.transactionTemplate = transactionTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.maxBufferedUrls = maxBufferedUrls;
+        this.revalidationExecutor = revalidationExecutor;
+        this.failures = Counter.builder("urlshortener.url.resolve.storage.failures")
+                .description("Storage calls of the resolve path that failed or timed out")
+                .register(registry);
+        this.degraded = Counter.builder("urlshortener.url.resolve.degraded")
+                .description("Resolves served from the cache while the storage was unavailable")
+                .register(registry);
+        this.droppedVisits = Counter.builder("urlshortener.url.visits.dropped")
+                .description("Visits lost because the buffer of visits not yet stored was full")
+                .register(registry);
+        Gauge.builder("urlshortener.url.resolve.storage.circuit.open", circuitBreaker, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("Whether the resolve path skips the storage after failures")
+                .register(registry);
+        Gauge.builder("urlshortener.url.visits.buffered", bufferedVisits, Map::size)
+                .description("URLs with visits waiting for the storage to become available")
+                .register(registry);
+    }
+
+    /**
+     * Finds a URL by its short URL code and counts a visit if it has not expired, in one transaction.
+     *
+     * @param shortUrlCode the short URL code
+     * @return the URL, or an empty {@link Optional} if the code does not exist
+     * @throws ServiceUnavailableException if the storage cannot be reached
+     */
+    public Optional<Url> findAndRecordVisit(String shortUrlCode) {
+        return execute(() -> {
+            Optional<Url> found = urlStorage.findByShortUrlCode(shortUrlCode);
+            found.filter(url -> Objects.isNull(url.getExpiresAt()) || url.getExpiresAt().isAfter(LocalDateTime.now()))
+                    .ifPresent(url -> urlStorage.incrementVisits(url.getId()));
+            return found;
+        });
+    }
+
+    /**
+     * Counts a visit of a cached URL. While the storage is unavailable, the visit is buffered.
+     *
+     * @param id the ID of the URL
+     * @return {@link Visit#COUNTED}, {@link Visit#MISSING} if the URL no longer exists,
+     * or {@link Visit#BUFFERED} if the storage could not be reached
+     */
+    public Visit recordVisit(Long id) {
+        try {
+            return execute(() -> urlStorage.incrementVisits(id)) ? Visit.COUNTED : Visit.MISSING;
+        } catch (ServiceUnavailableException e) {
+            bufferVisit(id);
+            degraded.increment();
+            return Visit.BUFFERED;
+        }
+    }
+
+    /**
+     * Reloads a stale entry of the {@link ResolveCache} in the background. The caller must hold the claim
+     * of {@link ResolveCache#claimRevalidation(String)}, which is released if the reload fails.
+     *
+     * @param shortUrlCode the short URL code to reload
+     */
+    public void revalidate(String shortUrlCode) {
+        Integer shard = ShardContext.current();
+        Workload workload = WorkloadContext.current();
+
+        revalidationExecutor.execute(() -> {
+            if (Objects.nonNull(shard)) {
+                ShardContext.set(shard);
+            }
+            if (Objects.nonNull(workload)) {
+                WorkloadContext.set(workload);
+            }
+            try {
+                Optional<Url> found = execute(() -> urlStorage.findByShortUrlCode(shortUrlCode));
+                if (found.isPresent()) {
+                    resolveCache.put(found.get());
+                } else {
+                    resolveCache.putNotFound(shortUrlCode);
+                }
+            } catch (RuntimeException e) {
+                resolveCache.releaseRevalidation(shortUrlCode);
+                log.debug("Revalidation of {} failed: {}", shortUrlCode, e.toString());
+            } finally {
+                ShardContext.clear();
+                WorkloadContext.clear();
+            }
+        });
+    }
+
+    /**
+     * Adds the buffered visits to the storage, as long as it is available.
+     */
+    @Scheduled(fixedDelayString = "${url.resolve.visits.flush-interval:PT5S}")
+    public void flushVisits() {
+        for (VisitKey key : bufferedVisits.keySet()) {
+            Long visits = bufferedVisits.remove(key);
+            if (Objects.isNull(visits)) {
+                continue;
+            }
+
+            if (Objects.nonNull(key.shard())) {
+                ShardContext.set(key.shard());
+            }
+            try {
+                execute(() -> urlStorage.addVisits(key.id(), visits));
+            } catch (ServiceUnavailableException e) {
+                bufferedVisits.merge(key, visits, Long::sum);
+                return;
+            } finally {
+                ShardContext.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        revalidationExecutor.shutdown();
+        flushVisits();
+    }
+
+    private <T> T execute(Supplier<T> operation) {
+        if (!circuitBreaker.allowRequest()) {
+            throw new ServiceUnavailableException(URL_STORAGE_UNAVAILABLE_MESSAGE, null);
+        }
+
+        T result;
+        try {
+            result = transactionTemplate.execute(status -> operation.get());
+        } catch (DataAccessException | TransactionException e) {
+            circuitBreaker.recordFailure();
+            failures.increment();
+            throw new ServiceUnavailableException(URL_STORAGE_UNAVAILABLE_MESSAGE, e);
+        } catch (RuntimeException e) {
+            // Every call the breaker let through must report back, or a trial call leaves it half-open
+            circuitBreaker.recordFailure();
+            failures.increment();
+            throw e;
+        }
+        circuitBreaker.recordSuccess();
+        return result;
+    }
+
+    private void bufferVisit(Long id) {
+        VisitKey key = new VisitKey(ShardContext.current(), id);
+
+        if (bufferedVisits.size() >= maxBufferedUrls && !bufferedVisits.containsKey(key)) {
+            droppedVisits.increment();
+            return;
+        }
+        bufferedVisits.merge(key, 1L, Long::sum);
+    }
+
+    private static TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager,
+                                                           Duration timeout) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Transaction timeouts have a granularity of seconds
+        transactionTemplate.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        return transactionTemplate;
+    }
+
+    /**
+     * Outcome of counting a visit of a cached URL.
+     */
+    public enum Visit {
+        COUNTED, MISSING, BUFFERED
+    }
+
+    /**
+     * Buffered visits are keyed by shard, because URL IDs are only unique within a shard.
+     */
+    private record VisitKey(Integer shard, Long id) {
+    }
+}
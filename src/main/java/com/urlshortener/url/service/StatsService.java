@@ -1,20 +1,26 @@
 package com.urlshortener.url.service;
 
+import com.urlshortener.config.bulkhead.Bulkhead;
+import com.urlshortener.config.bulkhead.Workload;
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardRouted;
 import com.urlshortener.error.exception.ResourceNotFoundException;
 import com.urlshortener.security.provider.SecurityContextProvider;
 import com.urlshortener.url.Url;
 import com.urlshortener.url.UrlMapper;
-import com.urlshortener.url.UrlRepository;
 import com.urlshortener.url.dto.statistics.StatsListUrlResponse;
 import com.urlshortener.url.dto.statistics.StatsUrlDto;
 import com.urlshortener.url.dto.statistics.StatsVisitsUrlResponse;
+import com.urlshortener.url.storage.UrlStorage;
 import com.urlshortener.user.User;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
@@ -30,11 +36,18 @@ import static com.urlshortener.util.MessageProvider.URL_NOT_FOUND_MESSAGE;
 @Service
 @RequiredArgsConstructor
 public class StatsService {
-    private final UrlRepository urlRepository;
+    private final UrlStorage urlStorage;
     private final SecurityContextProvider contextProvider;
     private final UrlMapper urlMapper;
+    private final ShardQueryExecutor shardQueryExecutor;
     private static final long INITIAL_VISITS_COUNT = 0L;
 
+    /**
+     * Order of {@link UrlStorage#findAllByUserId(Long)}, used to merge the results of the shards.
+     */
+    private static final Comparator<Url> CREATION_ORDER = Comparator.comparing(Url::getCreatedAt)
+            .thenComparing(Url::getId);
+
     /**
      * Retrieves statistics for all URLs created by the authenticated user.
      * <p>
@@ -44,10 +57,13 @@ public class StatsService {
      *
      * @return a {@link StatsListUrlResponse} containing a list of all URLs and their visit statistics
      */
+    @Timed(value = "urlshortener.stats", extraTags = {"operation", "all"}, histogram = true)
+    @Bulkhead(Workload.ANALYTICS)
     @Transactional(readOnly = true)
     public StatsListUrlResponse getAllUrls() {
         User user = contextProvider.getAuthenticatedUser();
-        List<Url> urls = urlRepository.findAllUrlsByUserId(user.getId());
+        List<Url> urls = shardQueryExecutor.mergeSorted(
+                () -> urlStorage.findAllByUserId(user.getId()), CREATION_ORDER);
 
         List<StatsUrlDto> statsUrlDtos = createStatsUrlDtos(urls);
 
@@ -67,11 +83,14 @@ public class StatsService {
      *
      * @return a {@link StatsListUrlResponse} containing a list of active URLs and their visit statistics
      */
+    @Timed(value = "urlshortener.stats", extraTags = {"operation", "active"}, histogram = true)
+    @Bulkhead(Workload.ANALYTICS)
     @Transactional(readOnly = true)
     public StatsListUrlResponse getActiveUrls() {
         User user = contextProvider.getAuthenticatedUser();
 
-        List<Url> urls = urlRepository.findAllUrlsByUserId(user.getId());
+        List<Url> urls = shardQueryExecutor.mergeSorted(
+                () -> urlStorage.findAllByUserId(user.getId()), CREATION_ORDER);
         List<StatsUrlDto> activeStatsUrlDtos = createActiveStatsUrlDtos(urls);
 
         long totalVisits = activeStatsUrlDtos.stream()
@@ -92,11 +111,14 @@ public class StatsService {
      * @return a {@link StatsVisitsUrlResponse} containing the visit count for the specified URL
      * @throws ResourceNotFoundException if the URL is not found or does not belong to the authenticated user
      */
+    @Timed(value = "urlshortener.stats", extraTags = {"operation", "visits"}, histogram = true)
+    @ShardRouted(key = "#shortUrlCode")
+    @Bulkhead(Workload.ANALYTICS)
     @Transactional(readOnly = true)
     public StatsVisitsUrlResponse getVisitsByShortUrl(String shortUrlCode) {
     User user = contextProvider.getAuthenticatedUser();
 
-    Url url = urlRepository.findUrlByShortUrlCode(shortUrlCode)
+    Url url = urlStorage.findByShortUrlCode(shortUrlCode)
         .filter(u -> u.getUser().getLogin().equals(user.getLogin()))
         .orElseThrow(() -> new ResourceNotFoundException(URL_NOT_FOUND_MESSAGE));
 
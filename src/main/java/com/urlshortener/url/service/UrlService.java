@@ -1,20 +1,31 @@
 package com.urlshortener.url.service;
 
+import com.urlshortener.config.bulkhead.Bulkhead;
+import com.urlshortener.config.bulkhead.Workload;
+import com.urlshortener.config.datasource.ReadYourWritesTracker;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.config.sharding.ShardRouted;
+import com.urlshortener.config.sharding.UserShardReplicator;
 import com.urlshortener.error.exception.ResourceNotFoundException;
+import com.urlshortener.error.exception.ServiceUnavailableException;
 import com.urlshortener.error.exception.ValidationException;
 import com.urlshortener.security.provider.SecurityContextProvider;
 import com.urlshortener.url.*;
+import com.urlshortener.url.cache.ResolveCache;
+import com.urlshortener.url.cache.ResolvedUrl;
 import com.urlshortener.url.dto.operations.GetShortUrlRequest;
 import com.urlshortener.url.dto.operations.UpdateUrlRequest;
-import com.urlshortener.url.dto.operations.UrlDto;
 import com.urlshortener.url.dto.operations.UrlResponse;
+import com.urlshortener.url.storage.UrlStorage;
 import com.urlshortener.user.User;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.urlshortener.util.MessageProvider.*;
 
@@ -29,34 +40,40 @@ import static com.urlshortener.util.MessageProvider.*;
 @RequiredArgsConstructor
 public class UrlService {
 
-    private final UrlRepository urlRepository;
+    private final UrlStorage urlStorage;
     private final SecurityContextProvider contextProvider;
     private final LongUrlValidator urlValidator;
     private final ShortUrlCodeGenerator urlGenerator;
+    private final LongUrlDeduplicator urlDeduplicator;
     private final UrlMapper urlMapper;
+    private final ResolveCache resolveCache;
+    private final UrlMetrics urlMetrics;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ShardResolver shardResolver;
+    private final UserShardReplicator userShardReplicator;
+    private final ResolveStorage resolveStorage;
 
     /**
-     * Generates a short URL code for a given long URL and stores the URL in the repository.
+     * Generates a short URL code for a given long URL and stores the URL in the {@link UrlStorage}.
      * <p>
-     * This method takes a long URL and generates a unique short URL code. The URL is then stored in the database.
+     * This method takes a long URL and generates a unique short URL code. The URL is then stored in the configured storage.
      * If an expiration date is provided, it is validated to ensure it's in the future.
+     * With deduplication enabled, an active URL of the user with the same long URL and expiration date is returned
+     * instead, see {@link LongUrlDeduplicator}.
      * </p>
      *
      * @param request the {@link GetShortUrlRequest} containing the long URL and expiration date
      * @return a {@link UrlResponse} containing the generated short URL and its details
      * @throws ValidationException if the expiration date is in the past or if the URL is invalid
      */
+    @Timed(value = "urlshortener.url.shorten", histogram = true)
+    @ShardRouted
+    @Bulkhead(Workload.WRITE)
     @Transactional
     public UrlResponse getShortUrlCodeFromLongUrl(GetShortUrlRequest request) {
         User user = contextProvider.getAuthenticatedUser();
         String longUrl = request.getLongUrl();
         urlValidator.validateLongUrl(longUrl);
-        String shortUrlCode;
-
-        // Generate unique short URL code
-        do {
-            shortUrlCode = urlGenerator.generateShortUrlCode();
-        } while (urlRepository.existsUrlByShortUrlCode(shortUrlCode));
 
         LocalDateTime expiresAt = request.getExpiresAt();
 
@@ -64,50 +81,112 @@ public class UrlService {
             throw new ValidationException(URL_INCORRECT_EXPIRES_AT_MESSAGE);
         }
 
+        long longUrlHash = LongUrlDeduplicator.hash(longUrl);
+        Optional<Url> existing = urlDeduplicator.findExisting(user.getId(), longUrl, longUrlHash, expiresAt);
+
+        if (existing.isPresent()) {
+            urlMetrics.incrementDeduplicated();
+            return UrlResponse.createSuccessResponse(urlMapper.mapToUrlDto(existing.get()));
+        }
+
+        String shortUrlCode = generateUniqueShortUrlCode();
+
         // Create and save URL entity
         Url url = Url.builder()
                 .shortUrlCode(shortUrlCode)
                 .longUrl(longUrl)
+                .longUrlHash(longUrlHash)
                 .expiresAt(expiresAt)
                 .user(user)
                 .build();
-        urlRepository.save(url);
+        // The owner may not have been copied to the shard of the URL yet
+        userShardReplicator.ensureOnCurrentShard(user);
+        urlStorage.create(url);
+        // The code may have been cached as not found before it was taken
+        resolveCache.evictOnCommit(shortUrlCode);
+        readYourWritesTracker.recordWrite(user.getId());
         return UrlResponse.createSuccessResponse(urlMapper.mapToUrlDto(url));
     }
 
     /**
      * Retrieves the long URL corresponding to the given short URL code.
      * <p>
-     * This method checks if the short URL exists in the database and if it is still valid (not expired).
-     * The long URL is returned if the short URL is found and valid.
+     * This method checks if the short URL exists and if it is still valid (not expired).
+     * Hot codes are served from the {@link ResolveCache} together with their pre-serialized response,
+     * other codes are loaded from the database and cached. In both cases the visit count is incremented.
+     * Codes that do not exist are cached as well, so repeated lookups of unknown codes skip the database.
+     * </p>
+     * <p>
+     * Stale cache entries are served while {@link ResolveStorage} reloads them in the background. While the storage
+     * is unavailable, cached codes are still served, marked with the {@value ResolvedUrl#DEGRADED_HEADER} header,
+     * and their visits are counted later; codes that are not cached fail.
      * </p>
      *
      * @param shortUrlCode the short URL code
-     * @return a {@link UrlResponse} containing the long URL
+     * @return a {@link ResolvedUrl} containing the long URL and its encoded response
      * @throws ResourceNotFoundException if the short URL code does not exist
      * @throws ValidationException if the short URL has expired
+     * @throws ServiceUnavailableException if the short URL code is not cached and the storage is unavailable
      */
-    @Transactional
-    public UrlResponse getLongUrlFromShortUrl(String shortUrlCode) {
+    @Timed(value = "urlshortener.url.resolve", histogram = true)
+    @ShardRouted(key = "#shortUrlCode")
+    @Bulkhead(Workload.RESOLVE)
+    public ResolvedUrl getLongUrlFromShortUrl(String shortUrlCode) {
         if (Objects.isNull(shortUrlCode) || shortUrlCode.isEmpty()) {
             throw new ValidationException(URL_INCORRECT_MESSAGE);
         }
 
-        Url url = urlRepository.findUrlByShortUrlCode(shortUrlCode)
-                .orElseThrow(() -> new ResourceNotFoundException(URL_NOT_FOUND_MESSAGE));
+        Optional<ResolvedUrl> cached = resolveCache.get(shortUrlCode);
+
+        if (cached.isPresent()) {
+            ResolvedUrl resolvedUrl = cached.get();
+
+            if (resolvedUrl.isNotFound()) {
+                urlMetrics.incrementNotFoundHits();
+                throw new ResourceNotFoundException(URL_NOT_FOUND_MESSAGE);
+            }
+
+            // Check if the cached URL is expired
+            if (resolvedUrl.isExpired(LocalDateTime.now())) {
+                resolveCache.evict(shortUrlCode);
+                urlMetrics.incrementExpiredHits();
+                throw new ValidationException(URL_EXPIRED_MESSAGE);
+            }
+
+            if (resolveCache.claimRevalidation(shortUrlCode)) {
+                resolveStorage.revalidate(shortUrlCode);
+            }
+
+            // The row may have been deleted since it was cached, then fall back to the database
+            switch (resolveStorage.recordVisit(resolvedUrl.id())) {
+                case COUNTED -> {
+                    return resolvedUrl;
+                }
+                case BUFFERED -> {
+                    return resolvedUrl.degraded();
+                }
+                case MISSING -> resolveCache.evict(shortUrlCode);
+            }
+        }
 
+        Optional<Url> found = resolveStorage.findAndRecordVisit(shortUrlCode);
+
+        if (found.isEmpty()) {
+            resolveCache.putNotFound(shortUrlCode);
+            urlMetrics.incrementNotFoundHits();
+            throw new ResourceNotFoundException(URL_NOT_FOUND_MESSAGE);
+        }
+
+        Url url = found.get();
         LocalDateTime expiresAt = url.getExpiresAt();
 
         // Check if the URL is expired
         if (Objects.nonNull(expiresAt) && expiresAt.isBefore(LocalDateTime.now())) {
+            urlMetrics.incrementExpiredHits();
             throw new ValidationException(URL_EXPIRED_MESSAGE);
         }
 
-        // Increment the visit count and save the URL
-        url.setVisits(url.getVisits() + 1);
-        urlRepository.save(url);
-        UrlDto urlDto = UrlDto.builder().longUrl(url.getLongUrl()).build();
-        return UrlResponse.createSuccessResponse(urlDto);
+        return resolveCache.put(url);
     }
 
     /**
@@ -122,11 +201,13 @@ public class UrlService {
      * @throws ResourceNotFoundException if the URL does not exist or does not belong to the user
      * @throws ValidationException if the expiration date is in the past
      */
+    @ShardRouted(key = "#request.shortUrlCode")
+    @Bulkhead(Workload.WRITE)
     @Transactional
     public UrlResponse updateUrl(UpdateUrlRequest request) {
         User user = contextProvider.getAuthenticatedUser();
 
-        Url url = urlRepository.findUrlByShortUrlCode(request.getShortUrlCode())
+        Url url = urlStorage.findByShortUrlCode(request.getShortUrlCode())
                 .filter(u -> u.getUser().getLogin().equals(user.getLogin()))
                 .orElseThrow(() -> new ResourceNotFoundException(URL_NOT_FOUND_MESSAGE));
 
@@ -136,8 +217,11 @@ public class UrlService {
             throw new ValidationException(URL_INCORRECT_EXPIRES_AT_MESSAGE);
         }
 
+        // The old code must not be resolved anymore, also not when re-cached by a resolve before the commit
+        resolveCache.evictOnCommit(url.getShortUrlCode());
+
         // Update URL properties
-        String newShortUrlCode = urlGenerator.generateShortUrlCode();
+        String newShortUrlCode = generateUniqueShortUrlCode();
         url.setShortUrlCode(newShortUrlCode);
 
         // Here we have to check the date from the request
@@ -146,7 +230,8 @@ public class UrlService {
             url.setExpiresAt(expiresAt);
         }
 
-        urlRepository.save(url);
+        urlStorage.update(url);
+        readYourWritesTracker.recordWrite(user.getId());
         return UrlResponse.createSuccessResponse(urlMapper.mapToUrlDto(url));
     }
 
@@ -160,12 +245,38 @@ public class UrlService {
      * @param shortUrlCode the short URL code of the URL to delete
      * @throws ResourceNotFoundException if the URL does not exist or does not belong to the user
      */
+    @ShardRouted(key = "#shortUrlCode")
+    @Bulkhead(Workload.WRITE)
     @Transactional
     public void deleteUrl(String shortUrlCode) {
         User user = contextProvider.getAuthenticatedUser();
-        Url url = urlRepository.findUrlByShortUrlCode(shortUrlCode)
+        Url url = urlStorage.findByShortUrlCode(shortUrlCode)
                 .filter(u -> u.getUser().getLogin().equals(user.getLogin()))
                 .orElseThrow(() -> new ResourceNotFoundException(URL_NOT_FOUND_MESSAGE));
-        urlRepository.delete(url);
+        urlStorage.delete(url);
+        resolveCache.evictOnCommit(shortUrlCode);
+        readYourWritesTracker.recordWrite(user.getId());
+    }
+
+    /**
+     * Generates a short URL code that is not used by any stored URL.
+     * <p>
+     * Every attempt is recorded in {@link UrlMetrics}, so collisions per code length can be observed
+     * and the {@link CodeSpaceOccupancyEstimator} can move generation to longer codes.
+     * With sharding, the code is placed on the shard of the current operation.
+     * </p>
+     *
+     * @return a free short URL code
+     */
+    private String generateUniqueShortUrlCode() {
+        String shortUrlCode = shardResolver.placeOnCurrentShard(urlGenerator.generateShortUrlCode());
+
+        while (urlStorage.existsByShortUrlCode(shortUrlCode)) {
+            urlMetrics.recordCodeAttempt(shortUrlCode.length(), true);
+            shortUrlCode = shardResolver.placeOnCurrentShard(urlGenerator.generateShortUrlCode());
+        }
+
+        urlMetrics.recordCodeAttempt(shortUrlCode.length(), false);
+        return shortUrlCode;
     }
 }
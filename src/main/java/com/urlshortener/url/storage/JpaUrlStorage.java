@@ -0,0 +1,70 @@
+package com.urlshortener.url.storage;
+
+import com.urlshortener.url.Url;
+import com.urlshortener.url.UrlRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link UrlStorage} keeping URLs in PostgreSQL through the Spring Data {@link UrlRepository}.
+ */
+@Component
+@Profile("!memory & !log")
+@RequiredArgsConstructor
+public class JpaUrlStorage implements UrlStorage {
+    private final UrlRepository urlRepository;
+
+    @Override
+    public Url create(Url url) {
+        return urlRepository.save(url);
+    }
+
+    @Override
+    public Url update(Url url) {
+        return urlRepository.save(url);
+    }
+
+    @Override
+    public Optional<Url> findByShortUrlCode(String shortUrlCode) {
+        return urlRepository.findUrlByShortUrlCode(shortUrlCode);
+    }
+
+    @Override
+    public boolean existsByShortUrlCode(String shortUrlCode) {
+        return urlRepository.existsUrlByShortUrlCode(shortUrlCode);
+    }
+
+    @Override
+    public List<Url> findAllByUserId(Long userId) {
+        return urlRepository.findAllUrlsByUserId(userId);
+    }
+
+    @Override
+    public List<Url> findAllByUserIdAndLongUrlHash(Long userId, long longUrlHash) {
+        return urlRepository.findAllUrlsByUserIdAndLongUrlHash(userId, longUrlHash);
+    }
+
+    @Override
+    public boolean incrementVisits(Long id) {
+        return urlRepository.incrementVisits(id) > 0;
+    }
+
+    @Override
+    public boolean addVisits(Long id, long visits) {
+        return urlRepository.addVisits(id, visits) > 0;
+    }
+
+    @Override
+    public void delete(Url url) {
+        urlRepository.delete(url);
+    }
+
+    @Override
+    public long estimateCount() {
+        return urlRepository.estimateRowCount();
+    }
+}
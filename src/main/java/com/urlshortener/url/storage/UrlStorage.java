@@ -0,0 +1,108 @@
+package com.urlshortener.url.storage;
+
+import com.urlshortener.url.Url;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of short URLs used by the URL services.
+ * <p>
+ * The services only depend on this interface, so the storage engine can be replaced without touching
+ * the business logic. {@link JpaUrlStorage} keeps URLs in PostgreSQL and is used by default;
+ * {@link com.urlshortener.url.storage.memory.InMemoryUrlStorage} keeps them on the heap and is selected
+ * by the {@code memory} profile, and {@link com.urlshortener.url.storage.log.LogStructuredUrlStorage} persists
+ * them in local segment files under the {@code log} profile. Implementations must be safe for concurrent use.
+ * </p>
+ */
+public interface UrlStorage {
+
+    /**
+     * Stores a new URL and assigns its ID and creation time.
+     *
+     * @param url the URL to store, without ID
+     * @return the stored URL
+     */
+    Url create(Url url);
+
+    /**
+     * Stores the changed short URL code and expiration date of an existing URL.
+     * The visit count is not written; it is only changed by {@link #incrementVisits(Long)}
+     * and {@link #addVisits(Long, long)}.
+     *
+     * @param url the URL loaded from this storage and modified
+     * @return the stored URL
+     */
+    Url update(Url url);
+
+    /**
+     * Finds a URL by its short URL code, together with its owner and visit count.
+     *
+     * @param shortUrlCode the short URL code
+     * @return the URL, or an empty {@link Optional} if the code does not exist
+     */
+    Optional<Url> findByShortUrlCode(String shortUrlCode);
+
+    /**
+     * Checks whether a short URL code is already taken.
+     *
+     * @param shortUrlCode the short URL code
+     * @return {@code true} if a URL with this code exists
+     */
+    boolean existsByShortUrlCode(String shortUrlCode);
+
+    /**
+     * Lists the URLs of a user ordered by creation time and ID.
+     *
+     * @param userId the ID of the owner
+     * @return the user's URLs
+     */
+    List<Url> findAllByUserId(Long userId);
+
+    /**
+     * Lists the URLs of a user whose long URL has the given hash, ordered by creation time and ID.
+     * <p>
+     * Storages without an index on the hash may return the other URLs of the user as well,
+     * so callers compare the long URLs themselves. The default implementation returns all of them.
+     * </p>
+     *
+     * @param userId      the ID of the owner
+     * @param longUrlHash the hash of the normalized long URL
+     * @return the candidate URLs
+     */
+    default List<Url> findAllByUserIdAndLongUrlHash(Long userId, long longUrlHash) {
+        return findAllByUserId(userId);
+    }
+
+    /**
+     * Increments the visit count of a URL.
+     *
+     * @param id the ID of the URL
+     * @return {@code true} if the URL exists and was counted
+     */
+    boolean incrementVisits(Long id);
+
+    /**
+     * Adds several visits to the visit count of a URL at once, used for visits that could not be counted
+     * when they happened.
+     *
+     * @param id     the ID of the URL
+     * @param visits the number of visits to add
+     * @return {@code true} if the URL exists and was counted
+     */
+    boolean addVisits(Long id, long visits);
+
+    /**
+     * Deletes a URL together with its visit count.
+     *
+     * @param url the URL to delete
+     */
+    void delete(Url url);
+
+    /**
+     * Returns an estimate of the number of stored URLs. The estimate may be stale but must be cheap.
+     *
+     * @return the estimated number of URLs
+     */
+    long estimateCount();
+}
@@ -0,0 +1,218 @@
+package com.urlshortener.url.storage.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Memory-mapped, append-only segment file of the {@link LogStructuredUrlStorage}.
+ * <p>
+ * Every record is framed as {@code [int payload length][int CRC32C][byte type][payload]}. The file is mapped
+ * at its full size when created, so the unwritten tail reads as zeros; a zero length marks the end of the log.
+ * Appends are done by a single writer; reads use absolute positions and may run concurrently with appends,
+ * because an offset is only published after its record has been written.
+ * </p>
+ */
+class LogSegment implements Closeable {
+    static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong garbageBytes = new AtomicLong();
+    private volatile int writePosition;
+
+    private LogSegment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens or creates the segment file and maps it at the given size.
+     * An existing file keeps its content; {@link #recover(RecordVisitor, int)} finds its end.
+     */
+    static LogSegment open(Path directory, long id, int size) {
+        Path path = directory.resolve(fileName(id));
+        try {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int mappedSize = (int) Math.max(size, channel.size());
+            return new LogSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open log segment " + path, e);
+        }
+    }
+
+    static String fileName(long id) {
+        return "segment-%012d.log".formatted(id);
+    }
+
+    static long parseId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    long getGarbageBytes() {
+        return garbageBytes.get();
+    }
+
+    /**
+     * Marks the record at the given offset as superseded, so the segment becomes a compaction candidate.
+     */
+    void markGarbage(int offset) {
+        garbageBytes.addAndGet(recordSize(offset));
+    }
+
+    boolean hasRoomFor(int payloadLength) {
+        return writePosition + HEADER_SIZE + payloadLength <= buffer.capacity();
+    }
+
+    /**
+     * Appends a record. Must only be called by the single writer and only if {@link #hasRoomFor(int)}.
+     *
+     * @return the offset of the record
+     */
+    int append(byte type, byte[] payload) {
+        int offset = writePosition;
+        buffer.put(offset + HEADER_SIZE, payload);
+        buffer.put(offset + Integer.BYTES * 2, type);
+        buffer.putInt(offset + Integer.BYTES, checksum(type, payload));
+        // The length is written last and the checksum covers the record, so a torn append is detected on recovery
+        buffer.putInt(offset, payload.length);
+        writePosition = offset + HEADER_SIZE + payload.length;
+        return offset;
+    }
+
+    byte type(int offset) {
+        return buffer.get(offset + Integer.BYTES * 2);
+    }
+
+    byte[] payload(int offset) {
+        byte[] payload = new byte[buffer.getInt(offset)];
+        buffer.get(offset + HEADER_SIZE, payload);
+        return payload;
+    }
+
+    int recordSize(int offset) {
+        return HEADER_SIZE + buffer.getInt(offset);
+    }
+
+    /**
+     * Restores the state saved in a snapshot instead of scanning the segment.
+     */
+    void restore(int writePosition, long garbageBytes) {
+        this.writePosition = writePosition;
+        this.garbageBytes.set(garbageBytes);
+    }
+
+    /**
+     * Scans the segment from the given offset, passes every valid record to the visitor and positions
+     * the writer after the last one. The scan stops at the first zero length or checksum mismatch, which is where
+     * a crash interrupted the last append; after a mismatch the rest of the segment is cleared.
+     *
+     * @return {@code true} if the whole segment was read, {@code false} if a damaged record was found
+     */
+    boolean recover(RecordVisitor visitor, int fromOffset) {
+        int offset = fromOffset;
+        boolean intact = true;
+
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+                intact = false;
+                break;
+            }
+
+            byte type = type(offset);
+            byte[] payload = payload(offset);
+            if (buffer.getInt(offset + Integer.BYTES) != checksum(type, payload)) {
+                intact = false;
+                break;
+            }
+
+            visitor.visit(this, offset, type, payload);
+            offset += HEADER_SIZE + length;
+        }
+
+        writePosition = offset;
+        if (!intact) {
+            clearFrom(offset);
+        }
+        return intact;
+    }
+
+    /**
+     * Visits the records of a sealed segment without validation, for compaction.
+     */
+    void forEachOffset(IntConsumer consumer) {
+        int end = writePosition;
+        for (int offset = 0; offset < end; offset += recordSize(offset)) {
+            consumer.accept(offset);
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes and deletes the file. The mapping stays readable until it is garbage collected,
+     * so readers holding a reference to this segment are not affected.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private void clearFrom(int offset) {
+        for (int i = offset; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Receives the records found by {@link #recover(RecordVisitor, int)}.
+     */
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(LogSegment segment, int offset, byte type, byte[] payload);
+    }
+}
@@ -0,0 +1,174 @@
+package com.urlshortener.url.storage.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the index of the {@link LogStructuredUrlStorage}.
+ * <p>
+ * The snapshot holds every index entry together with the high-water mark of the log, the segment and offset
+ * of the next record at the time it was taken, and the state of the segments up to the mark. Record positions
+ * are written as {@linkplain LogStructuredUrlStorage#location(long, int) locations}. On startup the
+ * entries are loaded as they are and only the records after the mark are replayed, instead of every record
+ * of every segment. The file starts with a magic number and a format version and ends with a CRC32C of its
+ * content; a file that fails any check is ignored and the log is replayed in full.
+ * </p>
+ */
+final class LogSnapshot {
+    static final String FILE_NAME = "index.snapshot";
+
+    private static final int MAGIC = 0x55524C49;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private LogSnapshot() {
+    }
+
+    /**
+     * State of a sealed or active segment at the time of the snapshot.
+     */
+    record SegmentState(long id, int writePosition, long garbageBytes) {
+    }
+
+    /**
+     * Position in the log up to which the snapshot is complete.
+     */
+    record Mark(long segmentId, int offset, long idSequence, List<SegmentState> segments) {
+    }
+
+    /**
+     * Index entry of a URL: the location of its latest put record, its persisted visit count and the location
+     * of its last visits record, or {@code 0} if the count is part of the put record.
+     */
+    record Entry(long id, long userId, String shortUrlCode, long location, long visits, long visitsLocation) {
+    }
+
+    /**
+     * Writes the snapshot next to the target and moves it into place, so a crash never leaves
+     * a partially written snapshot behind.
+     *
+     * @param entryCount the number of entries the producer passes on
+     * @param entries    passes every entry to the given consumer
+     */
+    static void write(Path file, Mark mark, long entryCount, Consumer<Consumer<Entry>> entries) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(mark.segmentId());
+            out.writeInt(mark.offset());
+            out.writeLong(mark.idSequence());
+            out.writeInt(mark.segments().size());
+            for (SegmentState segment : mark.segments()) {
+                out.writeLong(segment.id());
+                out.writeInt(segment.writePosition());
+                out.writeLong(segment.garbageBytes());
+            }
+
+            out.writeLong(entryCount);
+            try {
+                entries.accept(entry -> {
+                    try {
+                        out.writeLong(entry.id());
+                        out.writeLong(entry.userId());
+                        out.writeLong(entry.location());
+                        out.writeLong(entry.visits());
+                        out.writeLong(entry.visitsLocation());
+                        out.writeUTF(entry.shortUrlCode());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot and passes its entries to the consumer. The segments up to the mark must be open;
+     * they are restored to their saved state.
+     *
+     * @return the mark of the snapshot, or {@code null} if the snapshot is invalid or refers to a missing
+     * segment; entries passed before the problem was found must then be discarded
+     */
+    static Mark read(Path file, Map<Long, LogSegment> segments, Consumer<Entry> consumer) throws IOException {
+        CRC32C crc = new CRC32C();
+
+        try (InputStream input = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(
+                    new BufferedInputStream(input, BUFFER_SIZE), crc));
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+
+            long markSegmentId = in.readLong();
+            int markOffset = in.readInt();
+            long idSequence = in.readLong();
+            int segmentCount = in.readInt();
+            List<SegmentState> states = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                SegmentState state = new SegmentState(in.readLong(), in.readInt(), in.readLong());
+                if (!segments.containsKey(state.id())) {
+                    return null;
+                }
+                states.add(state);
+            }
+
+            for (long i = in.readLong(); i > 0; i--) {
+                long id = in.readLong();
+                long userId = in.readLong();
+                long location = in.readLong();
+                long visits = in.readLong();
+                long visitsLocation = in.readLong();
+                String shortUrlCode = in.readUTF();
+
+                if (!segments.containsKey(LogStructuredUrlStorage.segmentId(location))) {
+                    return null;
+                }
+                consumer.accept(new Entry(id, userId, shortUrlCode, location, visits, visitsLocation));
+            }
+
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                return null;
+            }
+
+            for (SegmentState state : states) {
+                segments.get(state.id()).restore(state.writePosition(), state.garbageBytes());
+            }
+            return new Mark(markSegmentId, markOffset, idSequence, states);
+        }
+    }
+}
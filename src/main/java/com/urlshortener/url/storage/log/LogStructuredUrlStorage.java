@@ -0,0 +1,785 @@
+package com.urlshortener.url.storage.log;
+
+import com.urlshortener.url.Url;
+import com.urlshortener.url.storage.UrlStorage;
+import com.urlshortener.url.storage.memory.InMemoryUrlStorage;
+import com.urlshortener.url.storage.memory.LongObjectMap;
+import com.urlshortener.url.storage.memory.OffHeapLongTable;
+import com.urlshortener.url.storage.memory.UserUrls;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link UrlStorage} persisting URLs in an embedded log of memory-mapped segment files, selected by the
+ * {@code log} profile.
+ * <p>
+ * Intended for standalone resolver nodes without PostgreSQL. Every change is appended to the active
+ * {@link LogSegment}; a hash index maps each short URL code to the {@linkplain #location(long, int) location}
+ * of its latest record, so a lookup is two hash probes plus a read from the mapped file. The index is kept in
+ * {@link OffHeapLongTable}s like the one of the {@link InMemoryUrlStorage}: codes packed into a {@code long}
+ * map to IDs and IDs map to record locations and persisted visit counts, so the heap only holds codes that
+ * cannot be packed, the per-user ID lists and the visits counted since the last flush.
+ * </p>
+ * <p>
+ * Visit counts are appended as absolute values every {@code url.storage.log.flush-interval}, when the active
+ * segment is also forced to disk; a crash of the machine loses at most that interval, a crash of the process
+ * loses only the unflushed visits.
+ * </p>
+ * <p>
+ * On startup the index is loaded from the latest {@link LogSnapshot} and only the records appended after it
+ * are replayed; without a valid snapshot all segments are replayed in order. A record with a bad checksum ends
+ * its segment. A background compaction rewrites the live records of sealed segments with mostly
+ * superseded content into the active segment and deletes the old files.
+ * </p>
+ * <p>
+ * Lookups run under an optimistic read of a {@link StampedLock} and are retried under the read lock if a write
+ * intervened; visit counting holds the read lock, changes the write lock.
+ * </p>
+ */
+@Component
+@Profile("log")
+@Slf4j
+public class LogStructuredUrlStorage implements UrlStorage, AutoCloseable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte VISITS = 3;
+
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final long NO_LOCATION = 0;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private final StampedLock lock = new StampedLock();
+    // Held while a snapshot is written, so compaction does not delete the segments it reads
+    private final Object snapshotLock = new Object();
+    private final OffHeapLongTable byPackedCode = new OffHeapLongTable();
+    private final Map<String, Long> byLongCode = new ConcurrentHashMap<>();
+    private final OffHeapLongTable records = new OffHeapLongTable();
+    private final OffHeapLongTable visitCounts = new OffHeapLongTable();
+    private final OffHeapLongTable visitRecords = new OffHeapLongTable();
+    private final LongObjectMap<UserUrls> byUser = new LongObjectMap<>();
+    private final Map<Long, AtomicLong> pendingVisits = new ConcurrentHashMap<>();
+    private volatile LogSegment activeSegment;
+    private long idSequence;
+
+    public LogStructuredUrlStorage(@Value("${url.storage.log.directory:data/urls}") Path directory,
+                                   @Value("${url.storage.log.segment-size:64MB}") DataSize segmentSize,
+                                   @Value("${url.storage.log.compaction-threshold:0.5}") double compactionThreshold,
+                                   MeterRegistry registry) {
+        if (segmentSize.toBytes() < MIN_SEGMENT_SIZE || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Log segment size must be between 64KB and 2GB: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.compactionThreshold = compactionThreshold;
+
+        recover();
+
+        Gauge.builder("urlshortener.url.storage.log.segments", segments, Map::size)
+                .description("Number of segment files of the URL log")
+                .register(registry);
+        Gauge.builder("urlshortener.url.storage.log.garbage", this, LogStructuredUrlStorage::getGarbageBytes)
+                .description("Bytes of superseded records in the URL log that compaction can reclaim")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("urlshortener.url.storage.log.index_off_heap", this, LogStructuredUrlStorage::getOffHeapBytes)
+                .description("Off-heap bytes allocated for the index of the URL log")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public Url create(Url url) {
+        long stamp = lock.writeLock();
+        try {
+            if (find(url.getShortUrlCode()) != OffHeapLongTable.NOT_FOUND) {
+                throw new DataIntegrityViolationException("Short URL code already exists: " + url.getShortUrlCode());
+            }
+
+            url.setId(++idSequence);
+            if (Objects.isNull(url.getCreatedAt())) {
+                url.setCreatedAt(LocalDateTime.now());
+            }
+
+            int offset = append(PUT, encodePut(url, url.getUser().getLogin(), url.getVisits()));
+            index(url.getId(), url.getShortUrlCode(), url.getUser().getId(),
+                    location(activeSegment.getId(), offset), url.getVisits());
+            return url;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Url update(Url url) {
+        long stamp = lock.writeLock();
+        try {
+            long previous = records.get(url.getId());
+            if (previous == OffHeapLongTable.NOT_FOUND) {
+                throw new DataIntegrityViolationException("URL does not exist: " + url.getId());
+            }
+
+            Url updated = read(previous);
+            if (!updated.getShortUrlCode().equals(url.getShortUrlCode())
+                    && find(url.getShortUrlCode()) != OffHeapLongTable.NOT_FOUND) {
+                throw new DataIntegrityViolationException("Short URL code already exists: " + url.getShortUrlCode());
+            }
+
+            removeCode(updated.getShortUrlCode());
+            updated.setShortUrlCode(url.getShortUrlCode());
+            updated.setExpiresAt(url.getExpiresAt());
+
+            // The record carries the current count, which supersedes the last visits record
+            int offset = append(PUT, encodePut(updated, updated.getUser().getLogin(), updated.getVisits()));
+            pendingVisits.remove(updated.getId());
+            index(updated.getId(), updated.getShortUrlCode(), updated.getUser().getId(),
+                    location(activeSegment.getId(), offset), updated.getVisits());
+            return url;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Optional<Url> findByShortUrlCode(String shortUrlCode) {
+        return optimisticRead(() -> {
+            long id = find(shortUrlCode);
+            return id == OffHeapLongTable.NOT_FOUND ? Optional.empty() : Optional.of(read(records.get(id)));
+        });
+    }
+
+    @Override
+    public boolean existsByShortUrlCode(String shortUrlCode) {
+        return optimisticRead(() -> find(shortUrlCode) != OffHeapLongTable.NOT_FOUND);
+    }
+
+    @Override
+    public List<Url> findAllByUserId(Long userId) {
+        long stamp = lock.readLock();
+        try {
+            UserUrls owned = byUser.get(userId);
+            if (owned == null) {
+                return List.of();
+            }
+
+            List<Url> urls = new ArrayList<>(owned.size());
+            for (int i = 0; i < owned.size(); i++) {
+                urls.add(read(records.get(owned.get(i))));
+            }
+            urls.sort(Comparator.comparing(Url::getCreatedAt).thenComparing(Url::getId));
+            return urls;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean incrementVisits(Long id) {
+        return addVisits(id, 1);
+    }
+
+    @Override
+    public boolean addVisits(Long id, long visits) {
+        long stamp = lock.readLock();
+        try {
+            if (records.get(id) == OffHeapLongTable.NOT_FOUND) {
+                return false;
+            }
+            pendingVisits.computeIfAbsent(id, key -> new AtomicLong()).addAndGet(visits);
+            return true;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void delete(Url url) {
+        long stamp = lock.writeLock();
+        try {
+            long location = records.get(url.getId());
+            if (location != OffHeapLongTable.NOT_FOUND) {
+                append(DELETE, ByteBuffer.allocate(Long.BYTES).putLong(url.getId()).array());
+                unindex(url.getId(), location);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long estimateCount() {
+        return records.size();
+    }
+
+    /**
+     * Appends the changed visit counts and forces the active segment to disk.
+     */
+    @Scheduled(fixedDelayString = "${url.storage.log.flush-interval:PT1S}")
+    public void flush() {
+        long stamp = lock.writeLock();
+        try {
+            flushVisits();
+            activeSegment.force();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Rewrites the live records of every sealed segment whose share of superseded records exceeds
+     * {@code url.storage.log.compaction-threshold} and deletes the segment.
+     */
+    @Scheduled(fixedDelayString = "${url.storage.log.compaction-interval:PT1M}")
+    public void compact() {
+        synchronized (snapshotLock) {
+            List<LogSegment> compacted = new ArrayList<>();
+            for (LogSegment segment : List.copyOf(segments.values())) {
+                if (segment != activeSegment
+                        && segment.getGarbageBytes() >= segment.getWritePosition() * compactionThreshold) {
+                    compact(segment);
+                    compacted.add(segment);
+                }
+            }
+            if (compacted.isEmpty()) {
+                return;
+            }
+
+            // The previous snapshot refers to the compacted segments, so it is replaced before they are deleted
+            snapshot();
+            for (LogSegment segment : compacted) {
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    log.warn("Unable to delete compacted log segment {}: {}", segment.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a {@link LogSnapshot} of the index, so the next start only replays the records appended after it.
+     * Writes only wait while the index tables are copied; the copy is written to the file without the lock.
+     */
+    @Scheduled(fixedDelayString = "${url.storage.log.snapshot-interval:PT10M}",
+            initialDelayString = "${url.storage.log.snapshot-interval:PT10M}")
+    public void snapshot() {
+        long start = System.nanoTime();
+
+        synchronized (snapshotLock) {
+            LogSnapshot.Mark mark;
+            Map<Long, LogSegment> segmentsCopy;
+            OffHeapLongTable recordsCopy;
+            OffHeapLongTable visitCountsCopy;
+            OffHeapLongTable visitRecordsCopy;
+
+            long stamp = lock.writeLock();
+            try {
+                flushVisits();
+                activeSegment.force();
+                List<LogSnapshot.SegmentState> states = segments.values().stream()
+                        .map(segment -> new LogSnapshot.SegmentState(segment.getId(), segment.getWritePosition(),
+                                segment.getGarbageBytes()))
+                        .toList();
+                mark = new LogSnapshot.Mark(activeSegment.getId(), activeSegment.getWritePosition(),
+                        idSequence, states);
+                segmentsCopy = Map.copyOf(segments);
+                recordsCopy = records.copy();
+                visitCountsCopy = visitCounts.copy();
+                visitRecordsCopy = visitRecords.copy();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            try {
+                LogSnapshot.write(directory.resolve(LogSnapshot.FILE_NAME), mark, recordsCopy.size(),
+                        consumer -> recordsCopy.forEach((id, location) -> {
+                            // Put records are never changed, so the copied locations stay valid
+                            Url url = decodePut(segmentsCopy.get(segmentId(location)).payload(offset(location)));
+                            long visitsLocation = visitRecordsCopy.get(id);
+                            consumer.accept(new LogSnapshot.Entry(id, url.getUser().getId(), url.getShortUrlCode(),
+                                    location, visitCountsCopy.get(id),
+                                    visitsLocation == OffHeapLongTable.NOT_FOUND ? NO_LOCATION : visitsLocation));
+                        }));
+            } catch (IOException e) {
+                log.warn("Unable to write the URL log snapshot: {}", e.getMessage());
+                return;
+            }
+
+            log.info("Wrote snapshot of {} URLs in {} ms", recordsCopy.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (snapshotLock) {
+            snapshot();
+            long stamp = lock.writeLock();
+            try {
+                for (LogSegment segment : segments.values()) {
+                    segment.close();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    long getGarbageBytes() {
+        return segments.values().stream().mapToLong(LogSegment::getGarbageBytes).sum();
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    long getOffHeapBytes() {
+        return byPackedCode.allocatedBytes() + records.allocatedBytes() + visitCounts.allocatedBytes()
+                + visitRecords.allocatedBytes();
+    }
+
+    /**
+     * Packs the position of a record into a {@code long}: the segment ID in the upper and the offset in the lower
+     * 32 bits. Segment IDs start at 1, so no location is {@code 0}.
+     */
+    static long location(long segmentId, int offset) {
+        return segmentId << 32 | offset;
+    }
+
+    static long segmentId(long location) {
+        return location >>> 32;
+    }
+
+    static int offset(long location) {
+        return (int) location;
+    }
+
+    private void compact(LogSegment segment) {
+        long start = System.nanoTime();
+        int moved = 0;
+
+        long stamp = lock.writeLock();
+        try {
+            // Records older than the segment can only be superseded by a delete while an older segment exists
+            boolean oldest = segments.firstKey() == segment.getId();
+            List<Integer> offsets = new ArrayList<>();
+            segment.forEachOffset(offsets::add);
+
+            for (int offset : offsets) {
+                byte type = segment.type(offset);
+                byte[] payload = segment.payload(offset);
+                long id = ByteBuffer.wrap(payload).getLong(0);
+                long location = location(segment.getId(), offset);
+
+                if (type == PUT && records.get(id) == location) {
+                    Url url = read(location);
+                    int newOffset = append(PUT, encodePut(url, url.getUser().getLogin(), url.getVisits()));
+                    pendingVisits.remove(id);
+                    index(id, url.getShortUrlCode(), url.getUser().getId(),
+                            location(activeSegment.getId(), newOffset), url.getVisits());
+                    moved++;
+                } else if (type == VISITS && visitRecords.get(id) == location) {
+                    appendVisits(id, visitCounts.get(id));
+                    moved++;
+                } else if (type == DELETE && !oldest) {
+                    append(DELETE, payload);
+                    moved++;
+                }
+            }
+
+            activeSegment.force();
+            segments.remove(segment.getId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        log.info("Compacted log segment {}: {} records moved in {} ms",
+                segment.getId(), moved, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Appends the counts of the URLs visited since the last flush. Requires the write lock.
+     */
+    private void flushVisits() {
+        pendingVisits.forEach((id, visits) -> {
+            if (visits.get() != 0 && records.get(id) != OffHeapLongTable.NOT_FOUND) {
+                appendVisits(id, visitCounts.get(id) + visits.get());
+            }
+        });
+        pendingVisits.clear();
+    }
+
+    private void appendVisits(long id, long visits) {
+        byte[] payload = ByteBuffer.allocate(Long.BYTES * 2).putLong(id).putLong(visits).array();
+        int offset = append(VISITS, payload);
+        persisted(id, visits, location(activeSegment.getId(), offset));
+    }
+
+    /**
+     * Appends a record to the active segment, rolling to a new segment when it is full.
+     */
+    private int append(byte type, byte[] payload) {
+        if (!activeSegment.hasRoomFor(payload.length)) {
+            if (LogSegment.HEADER_SIZE + payload.length > segmentSize) {
+                throw new IllegalArgumentException("Record does not fit into a log segment: " + payload.length);
+            }
+            activeSegment.force();
+            activeSegment = LogSegment.open(directory, activeSegment.getId() + 1, segmentSize);
+            segments.put(activeSegment.getId(), activeSegment);
+        }
+        return activeSegment.append(type, payload);
+    }
+
+    /**
+     * Points the index at the latest put record of a URL, whose visit count is part of the record.
+     * A changed code must have been removed before.
+     */
+    private void index(long id, String shortUrlCode, long userId, long location, long visits) {
+        long previous = records.put(id, location);
+        if (previous == OffHeapLongTable.NOT_FOUND) {
+            byUser.computeIfAbsent(userId, key -> new UserUrls()).add(id);
+        } else {
+            markGarbage(previous);
+        }
+        putCode(shortUrlCode, id);
+        persisted(id, visits, NO_LOCATION);
+    }
+
+    private void unindex(long id, long location) {
+        Url url = decodePut(payload(location));
+        records.remove(id);
+        removeCode(url.getShortUrlCode());
+        markGarbage(location);
+        persisted(id, 0, NO_LOCATION);
+        visitCounts.remove(id);
+        pendingVisits.remove(id);
+
+        UserUrls owned = byUser.get(url.getUser().getId());
+        if (owned != null) {
+            owned.remove(id);
+            if (owned.size() == 0) {
+                byUser.remove(url.getUser().getId());
+            }
+        }
+    }
+
+    /**
+     * Records that the count was written at the given location, superseding the previous visits record.
+     * {@link #NO_LOCATION} means the count is part of a put record or the URL is gone.
+     */
+    private void persisted(long id, long visits, long location) {
+        visitCounts.put(id, visits);
+        long previous = location == NO_LOCATION ? visitRecords.remove(id) : visitRecords.put(id, location);
+        if (previous != OffHeapLongTable.NOT_FOUND) {
+            markGarbage(previous);
+        }
+    }
+
+    private void markGarbage(long location) {
+        LogSegment segment = segments.get(segmentId(location));
+        if (segment != null) {
+            segment.markGarbage(offset(location));
+        }
+    }
+
+    private byte[] payload(long location) {
+        return segments.get(segmentId(location)).payload(offset(location));
+    }
+
+    /**
+     * Reads a URL from its put record, with the visits counted since.
+     */
+    private Url read(long location) {
+        Url url = decodePut(payload(location));
+        AtomicLong pending = pendingVisits.get(url.getId());
+        url.setVisits(visitCounts.get(url.getId()) + (pending == null ? 0 : pending.get()));
+        return url;
+    }
+
+    /**
+     * Runs a read without locking and repeats it under the read lock if a write happened meanwhile.
+     * An inconsistent read may fail with any exception, which is then ignored as well.
+     */
+    private <T> T optimisticRead(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long find(String shortUrlCode) {
+        long packed = InMemoryUrlStorage.packCode(shortUrlCode);
+        if (packed != 0) {
+            return byPackedCode.get(packed);
+        }
+        return byLongCode.getOrDefault(shortUrlCode, OffHeapLongTable.NOT_FOUND);
+    }
+
+    private void putCode(String shortUrlCode, long id) {
+        long packed = InMemoryUrlStorage.packCode(shortUrlCode);
+        if (packed != 0) {
+            byPackedCode.put(packed, id);
+        } else {
+            byLongCode.put(shortUrlCode, id);
+        }
+    }
+
+    private void removeCode(String shortUrlCode) {
+        long packed = InMemoryUrlStorage.packCode(shortUrlCode);
+        if (packed != 0) {
+            byPackedCode.remove(packed);
+        } else {
+            byLongCode.remove(shortUrlCode);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the {@link LogSnapshot} and the records appended after its mark, or by replaying
+     * all segments in order if there is no valid snapshot. The last segment stays active.
+     */
+    private void recover() {
+        long start = System.nanoTime();
+
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(path -> path.getFileName().toString().matches("segment-\\d+\\.log"))
+                        .forEach(path -> {
+                            long id = LogSegment.parseId(path);
+                            segments.put(id, LogSegment.open(directory, id, segmentSize));
+                        });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the URL log in " + directory, e);
+        }
+
+        LogSnapshot.Mark mark = loadSnapshot();
+        if (mark == null) {
+            replay(segments.values(), 0);
+        } else {
+            deleteUnlistedSegments(mark);
+            replay(segments.tailMap(mark.segmentId()).values(), mark.offset());
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(1L, LogSegment.open(directory, 1, segmentSize));
+        }
+        activeSegment = segments.lastEntry().getValue();
+
+        log.info("Recovered {} URLs from {} log segments{} in {} ms", records.size(), segments.size(),
+                mark == null ? "" : " and a snapshot", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private LogSnapshot.Mark loadSnapshot() {
+        Path file = directory.resolve(LogSnapshot.FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        LogSnapshot.Mark mark;
+        try {
+            mark = LogSnapshot.read(file, segments, this::load);
+        } catch (IOException e) {
+            log.warn("Unable to read the URL log snapshot: {}", e.getMessage());
+            mark = null;
+        }
+
+        if (mark == null) {
+            log.warn("URL log snapshot is invalid, replaying the whole log");
+            byPackedCode.clear();
+            byLongCode.clear();
+            records.clear();
+            visitCounts.clear();
+            visitRecords.clear();
+            byUser.clear();
+            segments.values().forEach(segment -> segment.restore(0, 0));
+            return null;
+        }
+
+        idSequence = mark.idSequence();
+        return mark;
+    }
+
+    private void load(LogSnapshot.Entry entry) {
+        records.put(entry.id(), entry.location());
+        putCode(entry.shortUrlCode(), entry.id());
+        visitCounts.put(entry.id(), entry.visits());
+        if (entry.visitsLocation() != NO_LOCATION) {
+            visitRecords.put(entry.id(), entry.visitsLocation());
+        }
+        byUser.computeIfAbsent(entry.userId(), key -> new UserUrls()).add(entry.id());
+    }
+
+    /**
+     * Deletes segments older than the mark that the snapshot does not list. They were compacted
+     * when the snapshot was taken, but the process stopped before the files were deleted.
+     */
+    private void deleteUnlistedSegments(LogSnapshot.Mark mark) {
+        Set<Long> listed = mark.segments().stream()
+                .map(LogSnapshot.SegmentState::id)
+                .collect(Collectors.toSet());
+
+        for (LogSegment segment : List.copyOf(segments.headMap(mark.segmentId()).values())) {
+            if (!listed.contains(segment.getId())) {
+                segments.remove(segment.getId());
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    log.warn("Unable to delete compacted log segment {}: {}", segment.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays the given segments in order, the first one from the given offset.
+     */
+    private void replay(Collection<LogSegment> replayed, int firstOffset) {
+        int offset = firstOffset;
+        for (LogSegment segment : replayed) {
+            if (!segment.recover(this::replay, offset) && segment.getId() != segments.lastKey()) {
+                log.warn("Log segment {} is damaged after offset {}, its remaining records are lost",
+                        segment.getId(), segment.getWritePosition());
+            }
+            offset = 0;
+        }
+    }
+
+    private void replay(LogSegment segment, int offset, byte type, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long id = buffer.getLong();
+        long previous = records.get(id);
+        idSequence = Math.max(idSequence, id);
+
+        switch (type) {
+            case PUT -> {
+                Url url = decodePut(payload);
+                if (previous != OffHeapLongTable.NOT_FOUND) {
+                    removeCode(decodePut(payload(previous)).getShortUrlCode());
+                }
+                index(id, url.getShortUrlCode(), url.getUser().getId(), location(segment.getId(), offset),
+                        url.getVisits());
+            }
+            case DELETE -> {
+                if (previous != OffHeapLongTable.NOT_FOUND) {
+                    unindex(id, previous);
+                }
+            }
+            case VISITS -> {
+                if (previous == OffHeapLongTable.NOT_FOUND) {
+                    segment.markGarbage(offset);
+                } else {
+                    persisted(id, buffer.getLong(), location(segment.getId(), offset));
+                }
+            }
+            default -> log.warn("Unknown record type {} in log segment {} at offset {}", type, segment.getId(), offset);
+        }
+    }
+
+    static byte[] encodePut(Url url, String login, long visits) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + url.getLongUrl().length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(url.getId());
+            out.writeLong(url.getUser().getId());
+            out.writeLong(visits);
+            writeDateTime(out, url.getCreatedAt());
+            out.writeBoolean(url.getExpiresAt() != null);
+            if (url.getExpiresAt() != null) {
+                writeDateTime(out, url.getExpiresAt());
+            }
+            out.writeUTF(url.getShortUrlCode());
+            out.writeUTF(login);
+            out.writeUTF(url.getLongUrl());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Url decodePut(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long id = in.readLong();
+            long userId = in.readLong();
+            long visits = in.readLong();
+            LocalDateTime createdAt = readDateTime(in);
+            LocalDateTime expiresAt = in.readBoolean() ? readDateTime(in) : null;
+            String shortUrlCode = in.readUTF();
+            String login = in.readUTF();
+            String longUrl = in.readUTF();
+
+            return Url.builder()
+                    .id(id)
+                    .shortUrlCode(shortUrlCode)
+                    .longUrl(longUrl)
+                    .visits(visits)
+                    .createdAt(createdAt)
+                    .expiresAt(expiresAt)
+                    .user(User.builder().id(userId).login(login).build())
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
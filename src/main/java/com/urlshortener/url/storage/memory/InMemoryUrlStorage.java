@@ -0,0 +1,379 @@
+package com.urlshortener.url.storage.memory;
+
+import com.urlshortener.url.Url;
+import com.urlshortener.url.storage.UrlStorage;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * {@link UrlStorage} keeping URLs in memory outside the Java heap, selected by the {@code memory} profile.
+ * <p>
+ * Intended for benchmarks that should measure the application without database cost,
+ * and for edge nodes that serve a working set. Nothing is persisted; users are still loaded
+ * from the database. Each URL is a single record in a {@link SlabArena} holding its numeric fields,
+ * the code and the long URL as UTF-8; expiration dates are kept with second precision.
+ * Codes of up to {@value #MAX_PACKED_LENGTH} characters are packed into a {@code long} and indexed in an
+ * {@link OffHeapLongTable}, as are the IDs, so the heap only holds the per-user ID lists and one
+ * {@link User} per owner.
+ * </p>
+ * <p>
+ * Lookups by code run under an optimistic read of a {@link StampedLock} and are retried under the read lock
+ * if a write intervened. Visit counts are incremented atomically in place under the read lock.
+ * When more than half of the arena holds replaced records, the live records are copied into a new one.
+ * </p>
+ */
+@Component
+@Profile("memory")
+public class InMemoryUrlStorage implements UrlStorage {
+    public static final int MAX_PACKED_LENGTH = 10;
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int[] ALPHABET_INDEX = new int[128];
+
+    static {
+        Arrays.fill(ALPHABET_INDEX, -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            ALPHABET_INDEX[ALPHABET.charAt(i)] = i;
+        }
+    }
+
+    // Record layout in the arena
+    private static final int ID = 0;
+    private static final int USER_ID = 8;
+    private static final int VISITS = 16;
+    private static final int CREATED_AT = 24;
+    private static final int EXPIRES_AT = 32;
+    private static final int CREATED_AT_NANOS = 40;
+    private static final int CODE_LENGTH = 44;
+    private static final int LONG_URL_LENGTH = 48;
+    private static final int DATA = 52;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private final int chunkSize;
+    private final StampedLock lock = new StampedLock();
+    private final OffHeapLongTable byPackedCode = new OffHeapLongTable();
+    private final Map<String, Long> byLongCode = new ConcurrentHashMap<>();
+    private final OffHeapLongTable byId = new OffHeapLongTable();
+    private final LongObjectMap<UserUrls> byUser = new LongObjectMap<>();
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private SlabArena arena;
+    private long idSequence;
+
+    public InMemoryUrlStorage(@Value("${url.storage.memory.chunk-size:64MB}") DataSize chunkSize,
+                              MeterRegistry registry) {
+        this.chunkSize = (int) chunkSize.toBytes();
+        this.arena = new SlabArena(this.chunkSize);
+
+        Gauge.builder("urlshortener.url.storage.memory.off_heap", this, InMemoryUrlStorage::getOffHeapBytes)
+                .description("Off-heap bytes allocated for stored URLs and their indexes")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public Url create(Url url) {
+        long stamp = lock.writeLock();
+        try {
+            if (find(url.getShortUrlCode()) != OffHeapLongTable.NOT_FOUND) {
+                throw new DataIntegrityViolationException("Short URL code already exists: " + url.getShortUrlCode());
+            }
+
+            url.setId(++idSequence);
+            if (Objects.isNull(url.getCreatedAt())) {
+                url.setCreatedAt(LocalDateTime.now());
+            }
+
+            long address = write(url, url.getVisits());
+            putCode(url.getShortUrlCode(), address);
+            byId.put(url.getId(), address);
+            byUser.computeIfAbsent(url.getUser().getId(), key -> new UserUrls()).add(url.getId());
+            users.computeIfAbsent(url.getUser().getId(),
+                    key -> User.builder().id(key).login(url.getUser().getLogin()).build());
+            return url;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Url update(Url url) {
+        long stamp = lock.writeLock();
+        try {
+            long previous = byId.get(url.getId());
+            if (previous == OffHeapLongTable.NOT_FOUND) {
+                throw new DataIntegrityViolationException("URL does not exist: " + url.getId());
+            }
+
+            Url updated = read(previous);
+            if (!updated.getShortUrlCode().equals(url.getShortUrlCode())
+                    && find(url.getShortUrlCode()) != OffHeapLongTable.NOT_FOUND) {
+                throw new DataIntegrityViolationException("Short URL code already exists: " + url.getShortUrlCode());
+            }
+
+            // Increments hold the read lock, so the count read here is final
+            removeCode(updated.getShortUrlCode());
+            updated.setShortUrlCode(url.getShortUrlCode());
+            updated.setExpiresAt(url.getExpiresAt());
+
+            long address = write(updated, updated.getVisits());
+            putCode(updated.getShortUrlCode(), address);
+            byId.put(updated.getId(), address);
+            release(previous);
+            return url;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Optional<Url> findByShortUrlCode(String shortUrlCode) {
+        return optimisticRead(() -> {
+            long address = find(shortUrlCode);
+            return address == OffHeapLongTable.NOT_FOUND ? Optional.empty() : Optional.of(read(address));
+        });
+    }
+
+    @Override
+    public boolean existsByShortUrlCode(String shortUrlCode) {
+        return optimisticRead(() -> find(shortUrlCode) != OffHeapLongTable.NOT_FOUND);
+    }
+
+    @Override
+    public List<Url> findAllByUserId(Long userId) {
+        long stamp = lock.readLock();
+        try {
+            UserUrls owned = byUser.get(userId);
+            if (owned == null) {
+                return List.of();
+            }
+
+            List<Url> urls = new ArrayList<>(owned.size());
+            for (int i = 0; i < owned.size(); i++) {
+                urls.add(read(byId.get(owned.get(i))));
+            }
+            urls.sort(Comparator.comparing(Url::getCreatedAt).thenComparing(Url::getId));
+            return urls;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean incrementVisits(Long id) {
+        return addVisits(id, 1);
+    }
+
+    @Override
+    public boolean addVisits(Long id, long visits) {
+        long stamp = lock.readLock();
+        try {
+            long address = byId.get(id);
+            if (address == OffHeapLongTable.NOT_FOUND) {
+                return false;
+            }
+            arena.getAndAddLong(address, VISITS, visits);
+            return true;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void delete(Url url) {
+        long stamp = lock.writeLock();
+        try {
+            long address = byId.remove(url.getId());
+            if (address != OffHeapLongTable.NOT_FOUND) {
+                removeCode(readCode(address));
+                long userId = arena.getLong(address, USER_ID);
+                UserUrls owned = byUser.get(userId);
+                owned.remove(url.getId());
+                if (owned.size() == 0) {
+                    byUser.remove(userId);
+                }
+                release(address);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long estimateCount() {
+        return byId.size();
+    }
+
+    long getOffHeapBytes() {
+        return arena.allocatedBytes() + byPackedCode.allocatedBytes() + byId.allocatedBytes();
+    }
+
+    /**
+     * Packs a code into a {@code long} by reading it as a bijective base-62 number, so codes of different
+     * lengths never share a key and no code maps to {@code 0}.
+     *
+     * @return the packed code, or {@code 0} if the code is too long or contains other characters
+     */
+    public static long packCode(String shortUrlCode) {
+        if (shortUrlCode.length() > MAX_PACKED_LENGTH) {
+            return 0;
+        }
+
+        long packed = 0;
+        for (int i = 0; i < shortUrlCode.length(); i++) {
+            char c = shortUrlCode.charAt(i);
+            int digit = c < ALPHABET_INDEX.length ? ALPHABET_INDEX[c] : -1;
+            if (digit < 0) {
+                return 0;
+            }
+            packed = packed * ALPHABET.length() + digit + 1;
+        }
+        return packed;
+    }
+
+    /**
+     * Returns the size of a record with the given code and long URL.
+     */
+    static int recordSize(byte[] shortUrlCode, byte[] longUrl) {
+        return DATA + shortUrlCode.length + longUrl.length;
+    }
+
+    /**
+     * Runs a read without locking and repeats it under the read lock if a write happened meanwhile.
+     * An inconsistent read may fail with any exception, which is then ignored as well.
+     */
+    private <T> T optimisticRead(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long find(String shortUrlCode) {
+        long packed = packCode(shortUrlCode);
+        if (packed != 0) {
+            return byPackedCode.get(packed);
+        }
+        return byLongCode.getOrDefault(shortUrlCode, OffHeapLongTable.NOT_FOUND);
+    }
+
+    private void putCode(String shortUrlCode, long address) {
+        long packed = packCode(shortUrlCode);
+        if (packed != 0) {
+            byPackedCode.put(packed, address);
+        } else {
+            byLongCode.put(shortUrlCode, address);
+        }
+    }
+
+    private void removeCode(String shortUrlCode) {
+        long packed = packCode(shortUrlCode);
+        if (packed != 0) {
+            byPackedCode.remove(packed);
+        } else {
+            byLongCode.remove(shortUrlCode);
+        }
+    }
+
+    private long write(Url url, long visits) {
+        byte[] code = url.getShortUrlCode().getBytes(StandardCharsets.UTF_8);
+        byte[] longUrl = url.getLongUrl().getBytes(StandardCharsets.UTF_8);
+        long address = arena.allocate(recordSize(code, longUrl));
+
+        arena.putLong(address, ID, url.getId());
+        arena.putLong(address, USER_ID, url.getUser().getId());
+        arena.putLong(address, VISITS, visits);
+        arena.putLong(address, CREATED_AT, url.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+        arena.putInt(address, CREATED_AT_NANOS, url.getCreatedAt().getNano());
+        arena.putLong(address, EXPIRES_AT, url.getExpiresAt() == null
+                ? NO_EXPIRY
+                : url.getExpiresAt().toEpochSecond(ZoneOffset.UTC));
+        arena.putInt(address, CODE_LENGTH, code.length);
+        arena.putInt(address, LONG_URL_LENGTH, longUrl.length);
+        arena.putBytes(address, DATA, code);
+        arena.putBytes(address, DATA + code.length, longUrl);
+        return address;
+    }
+
+    private Url read(long address) {
+        int codeLength = arena.getInt(address, CODE_LENGTH);
+        long expiresAt = arena.getLong(address, EXPIRES_AT);
+
+        return Url.builder()
+                .id(arena.getLong(address, ID))
+                .shortUrlCode(readCode(address))
+                .longUrl(new String(arena.getBytes(address, DATA + codeLength,
+                        arena.getInt(address, LONG_URL_LENGTH)), StandardCharsets.UTF_8))
+                .visits(arena.getLongVolatile(address, VISITS))
+                .createdAt(LocalDateTime.ofEpochSecond(arena.getLong(address, CREATED_AT),
+                        arena.getInt(address, CREATED_AT_NANOS), ZoneOffset.UTC))
+                .expiresAt(expiresAt == NO_EXPIRY ? null : LocalDateTime.ofEpochSecond(expiresAt, 0, ZoneOffset.UTC))
+                .user(users.get(arena.getLong(address, USER_ID)))
+                .build();
+    }
+
+    private String readCode(long address) {
+        return new String(arena.getBytes(address, DATA, arena.getInt(address, CODE_LENGTH)), StandardCharsets.UTF_8);
+    }
+
+    private int size(long address) {
+        return DATA + arena.getInt(address, CODE_LENGTH) + arena.getInt(address, LONG_URL_LENGTH);
+    }
+
+    /**
+     * Counts a replaced record as garbage and copies the live records into a new arena
+     * once the garbage exceeds the live data.
+     */
+    private void release(long address) {
+        arena.release(size(address));
+        if (arena.garbageBytes() <= chunkSize || arena.garbageBytes() * 2 <= arena.usedBytes()) {
+            return;
+        }
+
+        SlabArena compacted = new SlabArena(chunkSize);
+        byId.forEach((id, oldAddress) -> {
+            int size = size(oldAddress);
+            long newAddress = compacted.allocate(size);
+            compacted.putBytes(newAddress, 0, arena.getBytes(oldAddress, 0, size));
+            // Replacing values of existing keys does not move entries, so the iteration stays valid
+            byId.put(id, newAddress);
+            putCode(readCode(oldAddress), newAddress);
+        });
+        arena = compacted;
+    }
+}
@@ -0,0 +1,188 @@
+package com.urlshortener.url.storage.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Open-addressing hash table from {@code long} keys to {@code long} values in a direct buffer.
+ * <p>
+ * Every slot takes 16 bytes outside the Java heap, so a table of tens of millions of entries adds nothing
+ * to the heap the garbage collector has to trace. Key {@code 0} marks an empty slot and cannot be stored.
+ * Collisions are resolved by linear probing and removals shift the following entries back.
+ * The table is not thread-safe; callers guard it with a lock.
+ * </p>
+ */
+public class OffHeapLongTable {
+    public static final long NOT_FOUND = -1;
+
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final int MIN_CAPACITY = 1 << 10;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final float MAX_LOAD = 0.7f;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+
+    public OffHeapLongTable() {
+        this(MIN_CAPACITY);
+    }
+
+    public OffHeapLongTable(int capacity) {
+        allocate(Integer.highestOneBit(Math.max(MIN_CAPACITY, capacity) - 1) << 1);
+    }
+
+    /**
+     * Returns the value of the key, or {@link #NOT_FOUND}.
+     */
+    public long get(long key) {
+        int mask = capacity - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long slotKey = slots.getLong(i * SLOT_SIZE);
+            if (slotKey == key) {
+                return slots.getLong(i * SLOT_SIZE + Long.BYTES);
+            }
+            if (slotKey == 0) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    /**
+     * Associates the value with the key and returns the previous value, or {@link #NOT_FOUND}.
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+        }
+
+        int mask = capacity - 1;
+        int i = index(key, mask);
+        for (long slotKey; (slotKey = slots.getLong(i * SLOT_SIZE)) != 0; i = (i + 1) & mask) {
+            if (slotKey == key) {
+                long previous = slots.getLong(i * SLOT_SIZE + Long.BYTES);
+                slots.putLong(i * SLOT_SIZE + Long.BYTES, value);
+                return previous;
+            }
+        }
+
+        slots.putLong(i * SLOT_SIZE + Long.BYTES, value);
+        slots.putLong(i * SLOT_SIZE, key);
+        if (++size > capacity * MAX_LOAD) {
+            resize();
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Removes the key and returns its value, or {@link #NOT_FOUND}.
+     */
+    public long remove(long key) {
+        int mask = capacity - 1;
+        int i = index(key, mask);
+
+        long slotKey;
+        while ((slotKey = slots.getLong(i * SLOT_SIZE)) != key) {
+            if (slotKey == 0) {
+                return NOT_FOUND;
+            }
+            i = (i + 1) & mask;
+        }
+
+        long removed = slots.getLong(i * SLOT_SIZE + Long.BYTES);
+        size--;
+
+        // Move back every following entry of the probe sequence that would become unreachable
+        int gap = i;
+        for (int j = (gap + 1) & mask; (slotKey = slots.getLong(j * SLOT_SIZE)) != 0; j = (j + 1) & mask) {
+            int home = index(slotKey, mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots.putLong(gap * SLOT_SIZE, slotKey);
+                slots.putLong(gap * SLOT_SIZE + Long.BYTES, slots.getLong(j * SLOT_SIZE + Long.BYTES));
+                gap = j;
+            }
+        }
+        slots.putLong(gap * SLOT_SIZE, 0);
+        slots.putLong(gap * SLOT_SIZE + Long.BYTES, 0);
+        return removed;
+    }
+
+    /**
+     * Passes every entry to the consumer, in slot order.
+     */
+    public void forEach(LongLongConsumer consumer) {
+        for (int i = 0; i < capacity; i++) {
+            long key = slots.getLong(i * SLOT_SIZE);
+            if (key != 0) {
+                consumer.accept(key, slots.getLong(i * SLOT_SIZE + Long.BYTES));
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the off-heap bytes taken by the table.
+     */
+    public long allocatedBytes() {
+        return (long) capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Returns a copy of the table, which can be read without a lock while the table keeps changing.
+     */
+    public OffHeapLongTable copy() {
+        OffHeapLongTable copy = new OffHeapLongTable(capacity);
+        copy.slots.put(slots.duplicate().clear());
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Removes all entries and releases the grown buffer.
+     */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private void resize() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException("Off-heap table is full: " + size + " entries");
+        }
+
+        ByteBuffer oldSlots = slots;
+        int oldCapacity = capacity;
+        allocate(capacity << 1);
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldCapacity; i++) {
+            long key = oldSlots.getLong(i * SLOT_SIZE);
+            if (key != 0) {
+                int j = index(key, mask);
+                while (slots.getLong(j * SLOT_SIZE) != 0) {
+                    j = (j + 1) & mask;
+                }
+                slots.putLong(j * SLOT_SIZE, key);
+                slots.putLong(j * SLOT_SIZE + Long.BYTES, oldSlots.getLong(i * SLOT_SIZE + Long.BYTES));
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    private static int index(long key, int mask) {
+        // Fibonacci hashing spreads sequential IDs and encoded codes over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
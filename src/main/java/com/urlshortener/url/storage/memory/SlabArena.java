@@ -0,0 +1,112 @@
+package com.urlshortener.url.storage.memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only arena of records in direct buffers.
+ * <p>
+ * Records are allocated in fixed-size chunks outside the Java heap and addressed by a {@code long}
+ * holding the chunk index in the high and the offset in the low 32 bits. Records are 8-byte aligned,
+ * so {@code long} fields can be updated atomically. Space of replaced records is only counted as garbage;
+ * the owner reclaims it by copying the live records into a new arena. Allocation is not thread-safe.
+ * </p>
+ */
+class SlabArena {
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int position;
+    private long usedBytes;
+    private long garbageBytes;
+
+    SlabArena(int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.position = chunkSize;
+    }
+
+    /**
+     * Reserves space for a record and returns its address.
+     */
+    long allocate(int size) {
+        int aligned = (size + Long.BYTES - 1) & -Long.BYTES;
+        if (aligned > chunkSize) {
+            throw new IllegalArgumentException("Record of " + size + " bytes exceeds the arena chunk size");
+        }
+        if (position + aligned > chunkSize) {
+            chunks.add(ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.nativeOrder()));
+            position = 0;
+        }
+
+        long address = ((long) (chunks.size() - 1) << 32) | position;
+        position += aligned;
+        usedBytes += aligned;
+        return address;
+    }
+
+    /**
+     * Counts the record as garbage.
+     */
+    void release(int size) {
+        garbageBytes += (size + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    long getLong(long address, int field) {
+        return chunk(address).getLong(offset(address) + field);
+    }
+
+    long getLongVolatile(long address, int field) {
+        return (long) LONG.getVolatile(chunk(address), offset(address) + field);
+    }
+
+    long getAndAddLong(long address, int field, long delta) {
+        return (long) LONG.getAndAdd(chunk(address), offset(address) + field, delta);
+    }
+
+    void putLong(long address, int field, long value) {
+        chunk(address).putLong(offset(address) + field, value);
+    }
+
+    int getInt(long address, int field) {
+        return chunk(address).getInt(offset(address) + field);
+    }
+
+    void putInt(long address, int field, int value) {
+        chunk(address).putInt(offset(address) + field, value);
+    }
+
+    byte[] getBytes(long address, int field, int length) {
+        byte[] bytes = new byte[length];
+        chunk(address).get(offset(address) + field, bytes);
+        return bytes;
+    }
+
+    void putBytes(long address, int field, byte[] bytes) {
+        chunk(address).put(offset(address) + field, bytes);
+    }
+
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    long garbageBytes() {
+        return garbageBytes;
+    }
+
+    long allocatedBytes() {
+        return (long) chunks.size() * chunkSize;
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks.get((int) (address >>> 32));
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
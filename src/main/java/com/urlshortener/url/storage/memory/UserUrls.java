@@ -0,0 +1,36 @@
+package com.urlshortener.url.storage.memory;
+
+import java.util.Arrays;
+
+/**
+ * IDs of the URLs of one user, kept in a growing {@code long[]} instead of boxed elements.
+ * Removal moves the last ID into the gap, so the order is not kept. Not thread-safe.
+ */
+public final class UserUrls {
+    private long[] ids = new long[4];
+    private int size;
+
+    public void add(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    public void remove(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                ids[i] = ids[--size];
+                return;
+            }
+        }
+    }
+
+    public long get(int index) {
+        return ids[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,5 +1,6 @@
 package com.urlshortener.user;
 
+import com.urlshortener.config.sharding.UserShardReplicator;
 import com.urlshortener.error.exception.UserExistsException;
 import com.urlshortener.security.Role;
 import com.urlshortener.user.dto.RegisterUserRequest;
@@ -27,6 +28,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final UserValidator userValidator;
     private final PasswordEncoder passwordEncoder;
+    private final UserShardReplicator userShardReplicator;
 
     /**
      * Registers a new user with the provided registration details.
@@ -56,12 +58,14 @@ public class UserService {
         String hashedPassword = passwordEncoder.encode(password);
 
         // Save the new user to the database
-        userRepository.save(User.builder()
+        User user = User.builder()
                 .login(login)
                 .email(email)
                 .password(hashedPassword)
                 .role(Role.ROLE_USER)  // Default role is ROLE_USER
-                .build());
+                .build();
+        userRepository.save(user);
+        userShardReplicator.replicateAfterCommit(user);
 
         // Return a successful registration response
         return RegisterUserResponse.createSuccessResponse(login, email);
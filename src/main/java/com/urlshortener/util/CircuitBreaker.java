@@ -0,0 +1,84 @@
+package com.urlshortener.util;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker guarding calls to a dependency that may be down.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects calls for
+ * {@code openDuration}, so callers skip the dependency instead of waiting for its timeouts. Then a single
+ * trial call is let through: its success closes the breaker, its failure opens it again.
+ * The breaker sits on hot paths, so checks and successes of a closed breaker only read volatile fields.
+ * </p>
+ */
+public class CircuitBreaker {
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoTime) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Checks whether a call may be made now. A caller that gets {@code true} must report the outcome
+     * through {@link #recordSuccess()} or {@link #recordFailure()}.
+     *
+     * @return {@code true} if the call may be made
+     */
+    public boolean allowRequest() {
+        return state == State.CLOSED || allowTrialRequest();
+    }
+
+    public void recordSuccess() {
+        if (state != State.CLOSED || consecutiveFailures != 0) {
+            close();
+        }
+    }
+
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoTime.getAsLong();
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Checks whether calls are currently rejected or limited to a trial call.
+     */
+    public boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    private synchronized boolean allowTrialRequest() {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> false;
+            case OPEN -> {
+                if (nanoTime.getAsLong() - openedAt < openNanos) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                yield true;
+            }
+        };
+    }
+
+    private synchronized void close() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+}
@@ -43,6 +43,22 @@ public final class MessageProvider {
     public static final String URL_EXPIRED_MESSAGE = "URL has expired.";
     public static final String URL_INCORRECT_EXPIRES_AT_MESSAGE =
             "You cannot set the expiration date to a past date. ";
+    public static final String IDEMPOTENCY_KEY_INCORRECT_MESSAGE =
+            "Idempotency key must be between 1 and 255 characters. ";
+    public static final String IDEMPOTENCY_KEY_REUSED_MESSAGE =
+            "Idempotency key has already been used for a different request. ";
+    public static final String IDEMPOTENCY_KEY_IN_PROGRESS_MESSAGE =
+            "A request with this idempotency key is still being processed. ";
+    public static final String URL_STORAGE_UNAVAILABLE_MESSAGE =
+            "URL storage is temporarily unavailable. Please try again later. ";
+
+    // General messages related to the availability of the service
+    public static final String SERVER_OVERLOADED_MESSAGE =
+            "Server is overloaded. Please try again later. ";
+    public static final String TOO_MANY_REQUESTS_MESSAGE =
+            "Too many requests. Please try again later. ";
+    public static final String REQUEST_TIMEOUT_MESSAGE =
+            "Request took too long to process. Please try again later. ";
 
     /**
      * Generates a message indicating that a user with the specified login already exists.
@@ -0,0 +1,169 @@
+package com.urlshortener.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Minimal client of the Redis serialization protocol (RESP2) with a pool of connections.
+ * <p>
+ * Used to share state between nodes on a Redis-compatible server, such as the remote tier of the resolve cache
+ * and the rate limits. Every command borrows an idle
+ * connection or opens a new one; at most {@code poolSize} idle connections are kept. Connect and read
+ * timeouts are the same short timeout, and a connection that failed is discarded.
+ * </p>
+ */
+public class RespClient implements Closeable {
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int timeoutMillis;
+    private final BlockingQueue<Connection> idle;
+
+    public RespClient(String host, int port, String password, Duration timeout, int poolSize) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.timeoutMillis = (int) timeout.toMillis();
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Executes a command and returns its reply: a {@link String} for simple and bulk strings,
+     * a {@link Long} for integers, or {@code null} for a null bulk string.
+     *
+     * @throws IOException if the server cannot be reached or replies with an error
+     */
+    public Object execute(String... command) throws IOException {
+        Connection connection = idle.poll();
+        if (connection == null) {
+            connection = connect();
+        }
+
+        Object reply;
+        try {
+            connection.write(command);
+            reply = connection.read();
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+
+        if (!idle.offer(connection)) {
+            connection.close();
+        }
+        if (reply instanceof RespError error) {
+            throw new IOException("Remote server error: " + error.message());
+        }
+        return reply;
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection; (connection = idle.poll()) != null; ) {
+            connection.close();
+        }
+    }
+
+    private Connection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+
+        Connection connection = new Connection(socket);
+        if (password != null && !password.isEmpty()) {
+            connection.write("AUTH", password);
+            if (connection.read() instanceof RespError error) {
+                connection.close();
+                throw new IOException("Remote server authentication failed: " + error.message());
+            }
+        }
+        return connection;
+    }
+
+    private record RespError(String message) {
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        private void write(String... command) throws IOException {
+            out.write(('*' + Integer.toString(command.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (String argument : command) {
+                byte[] bytes = argument.getBytes(StandardCharsets.UTF_8);
+                out.write(('$' + Integer.toString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(bytes);
+                out.write('\r');
+                out.write('\n');
+            }
+            out.flush();
+        }
+
+        private Object read() throws IOException {
+            int type = in.read();
+            String line = readLine();
+            return switch (type) {
+                case '+' -> line;
+                case '-' -> new RespError(line);
+                case ':' -> Long.parseLong(line);
+                case '$' -> {
+                    int length = Integer.parseInt(line);
+                    if (length < 0) {
+                        yield null;
+                    }
+                    byte[] bytes = in.readNBytes(length + 2);
+                    if (bytes.length < length + 2) {
+                        throw new EOFException("Remote server closed the connection");
+                    }
+                    yield new String(bytes, 0, length, StandardCharsets.UTF_8);
+                }
+                case -1 -> throw new EOFException("Remote server closed the connection");
+                default -> throw new IOException("Unsupported remote server reply type: " + (char) type);
+            };
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c; (c = in.read()) != '\r'; ) {
+                if (c == -1) {
+                    throw new EOFException("Remote server closed the connection");
+                }
+                line.append((char) c);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // The connection is discarded anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Listing of the user's URLs (statistics) filters by user_id and reads them in creation order
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_urls_user_id_created_at ON urls (user_id, created_at);
+
+-- Expiry filtering only concerns URLs with an expiration date, permanent URLs are left out of the index
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_urls_expires_at ON urls (expires_at) WHERE expires_at IS NOT NULL;
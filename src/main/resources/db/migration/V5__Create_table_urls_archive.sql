@@ -0,0 +1,15 @@
+-- Expired URLs removed by the sweeper, kept with their final visit count.
+-- No foreign keys: the archive must not block deleting users or URLs.
+CREATE TABLE IF NOT EXISTS urls_archive
+(
+    id             BIGINT PRIMARY KEY,
+    short_url_code VARCHAR(50),
+    long_url       VARCHAR(2000)                       NOT NULL,
+    visits         BIGINT    DEFAULT 0                 NOT NULL,
+    created_at     TIMESTAMP                           NOT NULL,
+    expires_at     TIMESTAMP                           NOT NULL,
+    archived_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    user_id        BIGINT                              NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_urls_archive_user_id ON urls_archive (user_id);
@@ -0,0 +1,13 @@
+-- Idempotency keys of shorten requests. A row is claimed before the URL is created and completed with
+-- the response, so retries with the same key replay it instead of creating another URL.
+CREATE TABLE IF NOT EXISTS idempotency_keys
+(
+    user_id         BIGINT                              NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    idempotency_key VARCHAR(255)                        NOT NULL,
+    request_hash    VARCHAR(64)                         NOT NULL,
+    response        TEXT,
+    created_at      TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,8 @@
+-- Hash of the normalized long URL, used to find an active URL of the same user before creating another one
+-- (url.dedup.enabled). URLs created before this migration have no hash and are never reused.
+ALTER TABLE urls ADD COLUMN IF NOT EXISTS long_url_hash BIGINT;
+
+-- Built concurrently like the indexes of V3, so writes to urls are not blocked while the table is scanned.
+-- The partitioned layout gets the index from db/partitioning, which runs after this migration.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_urls_user_id_long_url_hash ON urls (user_id, long_url_hash)
+    WHERE long_url_hash IS NOT NULL;
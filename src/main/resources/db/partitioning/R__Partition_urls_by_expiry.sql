@@ -0,0 +1,149 @@
+-- Opt-in conversion of urls into a table range-partitioned by expiration date.
+-- Enabled by adding classpath:db/partitioning to spring.flyway.locations (see application.properties).
+--
+-- The script is repeatable: Flyway runs it after all versioned migrations, so these always see the plain
+-- urls table on a fresh database, and the conversion itself only happens once. What the versioned migrations
+-- added to urls (the long_url_hash column, the indexes and the V6 notification triggers) is recreated here,
+-- so a later migration changing urls has to be reflected in this script as well and must also work on the
+-- partitioned table (no CREATE INDEX CONCURRENTLY, no unique constraints).
+--
+-- Layout:
+--   urls_pYYYY_MM   one partition per month of expires_at, dropped as a whole once the month has passed
+--   urls_permanent  URLs without expiration date (the partition key maps NULL to 'infinity')
+--   urls_default    expiration dates beyond the last monthly partition, moved out when their month is created
+--
+-- Unique constraints on a partitioned table must contain the partition key, so id is covered by a plain
+-- index (ids come from the sequence) and codes are kept unique by url_codes, an unpartitioned table filled
+-- by triggers in the transaction that inserts, changes or deletes the URL.
+-- For the same reason url_visits can no longer reference urls; the maintenance job removes the counters
+-- and codes of the partitions it drops.
+--
+-- The data is copied into the new layout, so on a large table the conversion needs a maintenance window.
+
+DO
+$$
+    DECLARE
+        partition_start TIMESTAMP;
+    BEGIN
+        IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('urls') AND relkind = 'p') THEN
+            RETURN;
+        END IF;
+
+        ALTER TABLE url_visits DROP CONSTRAINT IF EXISTS url_visits_url_id_fkey;
+
+        ALTER TABLE urls RENAME TO urls_unpartitioned;
+
+        CREATE TABLE urls
+        (
+            id             BIGINT                              NOT NULL,
+            short_url_code VARCHAR(50),
+            long_url       VARCHAR(2000)                       NOT NULL,
+            created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+            expires_at     TIMESTAMP,
+            user_id        BIGINT                              NOT NULL,
+            long_url_hash  BIGINT,
+            FOREIGN KEY (user_id) REFERENCES users (id)
+        ) PARTITION BY RANGE ((COALESCE(expires_at, 'infinity'::TIMESTAMP)));
+
+        ALTER SEQUENCE urls_id_seq OWNED BY NONE;
+        ALTER TABLE urls ALTER COLUMN id SET DEFAULT nextval('urls_id_seq');
+        ALTER SEQUENCE urls_id_seq OWNED BY urls.id;
+
+        CREATE TABLE urls_permanent PARTITION OF urls FOR VALUES FROM ('infinity') TO (MAXVALUE);
+        CREATE TABLE urls_default PARTITION OF urls DEFAULT;
+
+        -- Monthly partitions from the oldest expiration date up to three months ahead
+        partition_start := date_trunc('month', LEAST((SELECT min(expires_at) FROM urls_unpartitioned), LOCALTIMESTAMP));
+        WHILE partition_start <= date_trunc('month', LOCALTIMESTAMP) + INTERVAL '3 months'
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF urls FOR VALUES FROM (%L) TO (%L)',
+                               'urls_p' || to_char(partition_start, 'YYYY_MM'), partition_start,
+                               partition_start + INTERVAL '1 month');
+                partition_start := partition_start + INTERVAL '1 month';
+            END LOOP;
+
+        INSERT INTO urls (id, short_url_code, long_url, created_at, expires_at, user_id, long_url_hash)
+        SELECT id, short_url_code, long_url, created_at, expires_at, user_id, long_url_hash
+        FROM urls_unpartitioned;
+
+        DROP TABLE urls_unpartitioned;
+
+        ANALYZE urls;
+    END
+$$;
+
+-- Filled once, also for tables converted by an earlier version of this script
+CREATE TABLE IF NOT EXISTS url_codes
+(
+    short_url_code VARCHAR(50) PRIMARY KEY,
+    url_id         BIGINT NOT NULL
+);
+
+INSERT INTO url_codes (short_url_code, url_id)
+SELECT short_url_code, id
+FROM urls
+WHERE short_url_code IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM url_codes);
+
+-- Indexes are created on every partition, including the ones added later
+CREATE INDEX IF NOT EXISTS idx_urls_id ON urls (id);
+CREATE INDEX IF NOT EXISTS idx_urls_short_url_code ON urls (short_url_code);
+CREATE INDEX IF NOT EXISTS idx_urls_user_id_created_at ON urls (user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_urls_expires_at ON urls (expires_at) WHERE expires_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_urls_user_id_long_url_hash ON urls (user_id, long_url_hash)
+    WHERE long_url_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_url_codes_url_id ON url_codes (url_id);
+
+-- Keeps url_codes in step with urls; a duplicate code fails the statement like a unique constraint would.
+-- A row moved to another partition by an update of expires_at fires the delete and insert triggers instead,
+-- which release and take its code again.
+CREATE OR REPLACE FUNCTION sync_url_code() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' AND OLD.short_url_code IS NOT NULL THEN
+        DELETE FROM url_codes WHERE short_url_code = OLD.short_url_code AND url_id = OLD.id;
+    END IF;
+    IF TG_OP <> 'DELETE' AND NEW.short_url_code IS NOT NULL THEN
+        INSERT INTO url_codes (short_url_code, url_id) VALUES (NEW.short_url_code, NEW.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_urls_sync_code_insert ON urls;
+CREATE TRIGGER trg_urls_sync_code_insert
+    AFTER INSERT
+    ON urls
+    FOR EACH ROW
+EXECUTE FUNCTION sync_url_code();
+
+DROP TRIGGER IF EXISTS trg_urls_sync_code_update ON urls;
+CREATE TRIGGER trg_urls_sync_code_update
+    AFTER UPDATE OF short_url_code
+    ON urls
+    FOR EACH ROW
+    WHEN (OLD.short_url_code IS DISTINCT FROM NEW.short_url_code)
+EXECUTE FUNCTION sync_url_code();
+
+DROP TRIGGER IF EXISTS trg_urls_sync_code_delete ON urls;
+CREATE TRIGGER trg_urls_sync_code_delete
+    AFTER DELETE
+    ON urls
+    FOR EACH ROW
+EXECUTE FUNCTION sync_url_code();
+
+-- Notification triggers of V6, which were dropped together with the unpartitioned table
+DROP TRIGGER IF EXISTS trg_urls_notify_update ON urls;
+CREATE TRIGGER trg_urls_notify_update
+    AFTER UPDATE OF short_url_code, expires_at
+    ON urls
+    FOR EACH ROW
+    WHEN (OLD.short_url_code IS DISTINCT FROM NEW.short_url_code OR OLD.expires_at IS DISTINCT FROM NEW.expires_at)
+EXECUTE FUNCTION notify_url_change();
+
+DROP TRIGGER IF EXISTS trg_urls_notify_delete ON urls;
+CREATE TRIGGER trg_urls_notify_delete
+    AFTER DELETE
+    ON urls
+    FOR EACH ROW
+EXECUTE FUNCTION notify_url_change();
@@ -0,0 +1,57 @@
+package com.urlshortener.config.bulkhead;
+
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadsTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsWhenWorkloadIsFull() {
+        Bulkheads bulkheads = bulkheads(true);
+
+        bulkheads.acquire(Workload.ANALYTICS);
+
+        assertThrows(ServiceUnavailableException.class, () -> bulkheads.acquire(Workload.ANALYTICS));
+        assertEquals(1, registry.get("urlshortener.bulkhead.rejected").tag("workload", "analytics").counter().count());
+        assertEquals(1, registry.get("urlshortener.bulkhead.calls.active").tag("workload", "analytics").gauge().value());
+
+        bulkheads.release(Workload.ANALYTICS);
+        bulkheads.acquire(Workload.ANALYTICS);
+    }
+
+    @Test
+    void fullWorkloadDoesNotBlockOthers() {
+        Bulkheads bulkheads = bulkheads(true);
+
+        bulkheads.acquire(Workload.ANALYTICS);
+
+        assertDoesNotThrow(() -> bulkheads.acquire(Workload.RESOLVE));
+        assertDoesNotThrow(() -> bulkheads.acquire(Workload.RESOLVE));
+        assertEquals(2, registry.get("urlshortener.bulkhead.calls.active").tag("workload", "resolve").gauge().value());
+        assertEquals(2, registry.get("urlshortener.bulkhead.calls.max").tag("workload", "resolve").gauge().value());
+    }
+
+    @Test
+    void disabledBulkheadsDoNotLimit() {
+        Bulkheads bulkheads = bulkheads(false);
+
+        for (int i = 0; i < 10; i++) {
+            bulkheads.acquire(Workload.ANALYTICS);
+        }
+        assertEquals(0, registry.get("urlshortener.bulkhead.rejected").tag("workload", "analytics").counter().count());
+    }
+
+    private Bulkheads bulkheads(boolean enabled) {
+        return new Bulkheads(registry, enabled,
+                Map.of(Workload.RESOLVE, 2, Workload.WRITE, 1, Workload.ANALYTICS, 1), Duration.ofMillis(10));
+    }
+}
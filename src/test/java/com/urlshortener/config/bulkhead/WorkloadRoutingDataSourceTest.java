@@ -0,0 +1,45 @@
+package com.urlshortener.config.bulkhead;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WorkloadRoutingDataSourceTest {
+
+    private final DataSource resolve = mock(DataSource.class);
+    private final DataSource write = mock(DataSource.class);
+    private final DataSource analytics = mock(DataSource.class);
+    private final WorkloadRoutingDataSource dataSource = new WorkloadRoutingDataSource(Map.of(
+            Workload.RESOLVE, resolve, Workload.WRITE, write, Workload.ANALYTICS, analytics));
+
+    @AfterEach
+    void tearDown() {
+        WorkloadContext.clear();
+    }
+
+    @Test
+    void routesToPoolOfBoundWorkload() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(analytics.getConnection()).thenReturn(connection);
+
+        WorkloadContext.set(Workload.ANALYTICS);
+
+        assertSame(connection, dataSource.getConnection());
+    }
+
+    @Test
+    void routesToDefaultPoolWithoutWorkload() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(write.getConnection()).thenReturn(connection);
+
+        assertSame(connection, dataSource.getConnection());
+    }
+}
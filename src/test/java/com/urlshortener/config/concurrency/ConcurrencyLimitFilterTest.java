@@ -0,0 +1,133 @@
+package com.urlshortener.config.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<RouteClass, GradientConcurrencyLimit> limits = new EnumMap<>(RouteClass.class);
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ConcurrencyLimitFilter(new ObjectMapper().findAndRegisterModules(), registry, Duration.ofSeconds(2),
+                routeClass -> limits.computeIfAbsent(routeClass, key -> new GradientConcurrencyLimit(1, 1, 10, 10)));
+    }
+
+    @Test
+    void routesAreClassified() {
+        assertEquals(RouteClass.RESOLVE, RouteClass.of(new MockHttpServletRequest("POST", "/api/v1/url/abc123")));
+        assertEquals(RouteClass.API, RouteClass.of(new MockHttpServletRequest("POST", "/api/v1/url")));
+        assertEquals(RouteClass.API, RouteClass.of(new MockHttpServletRequest("DELETE", "/api/v1/url/abc123")));
+        assertEquals(RouteClass.STATS, RouteClass.of(new MockHttpServletRequest("GET", "/api/v1/url/all")));
+        assertEquals(RouteClass.STATS, RouteClass.of(new MockHttpServletRequest("GET", "/api/v1/url/visits/abc")));
+        assertEquals(RouteClass.AUTH, RouteClass.of(new MockHttpServletRequest("POST", "/api/v1/auth/login")));
+    }
+
+    @Test
+    void requestIsShedWhenItsRouteIsFull() throws Exception {
+        limits.get(RouteClass.RESOLVE).tryAcquire();
+
+        MockHttpServletResponse response = filter(new MockHttpServletRequest("POST", "/api/v1/url/abc123"));
+
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("overloaded"));
+        assertEquals(1, registry.get("urlshortener.http.concurrency.shed").tag("route", "resolve").counter().count());
+    }
+
+    @Test
+    void lowPriorityRoutesAreShedWhileResolvesAreCongested() throws Exception {
+        GradientConcurrencyLimit resolve = new GradientConcurrencyLimit(10, 1, 10, 10);
+        limits.put(RouteClass.RESOLVE, resolve);
+        filter = new ConcurrencyLimitFilter(new ObjectMapper().findAndRegisterModules(), registry, Duration.ofSeconds(2),
+                routeClass -> limits.computeIfAbsent(routeClass, key -> new GradientConcurrencyLimit(1, 1, 10, 10)));
+        runWindow(resolve, 1_000_000);
+        for (int i = 0; i < 3; i++) {
+            runWindow(resolve, 100_000_000);
+        }
+
+        assertEquals(503, filter(new MockHttpServletRequest("GET", "/api/v1/url/all")).getStatus());
+        assertEquals(503, filter(new MockHttpServletRequest("POST", "/api/v1/auth/login")).getStatus());
+        assertEquals(503, filter(new MockHttpServletRequest("POST", "/api/v1/url")).getStatus());
+    }
+
+    @Test
+    void lowPriorityRoutesAreServedAgainWhenResolveTrafficStops() throws Exception {
+        AtomicLong now = new AtomicLong();
+        GradientConcurrencyLimit resolve = new GradientConcurrencyLimit(10, 1, 10, 10, now::get);
+        limits.put(RouteClass.RESOLVE, resolve);
+        filter = new ConcurrencyLimitFilter(new ObjectMapper().findAndRegisterModules(), registry, Duration.ofSeconds(2),
+                routeClass -> limits.computeIfAbsent(routeClass, key -> new GradientConcurrencyLimit(1, 1, 10, 10)));
+        runWindow(resolve, 1_000_000);
+        for (int i = 0; i < 3; i++) {
+            runWindow(resolve, 100_000_000);
+        }
+
+        assertEquals(503, filter(new MockHttpServletRequest("GET", "/api/v1/url/all")).getStatus());
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(200, filter(new MockHttpServletRequest("GET", "/api/v1/url/all")).getStatus());
+    }
+
+    @Test
+    void lowPriorityRoutesAreServedWhileResolvesAreOnlySaturated() throws Exception {
+        limits.get(RouteClass.RESOLVE).tryAcquire();
+
+        assertEquals(200, filter(new MockHttpServletRequest("GET", "/api/v1/url/all")).getStatus());
+        assertEquals(200, filter(new MockHttpServletRequest("POST", "/api/v1/url")).getStatus());
+    }
+
+    @Test
+    void resolvesAreNotShedForCongestedLowPriorityRoutes() throws Exception {
+        limits.get(RouteClass.STATS).tryAcquire();
+        limits.get(RouteClass.AUTH).tryAcquire();
+
+        assertEquals(200, filter(new MockHttpServletRequest("POST", "/api/v1/url/abc123")).getStatus());
+        assertEquals(0, limits.get(RouteClass.RESOLVE).getInflight());
+    }
+
+    @Test
+    void actuatorIsNotLimited() throws Exception {
+        limits.values().forEach(GradientConcurrencyLimit::tryAcquire);
+
+        assertEquals(200, filter(new MockHttpServletRequest("GET", "/actuator/health")).getStatus());
+    }
+
+    /**
+     * Completes one window of ten requests, as many at once as the limit allows, with the given latency.
+     */
+    private static void runWindow(GradientConcurrencyLimit limit, long rttNanos) {
+        for (int done = 0; done < 10; ) {
+            int acquired = 0;
+            while (done + acquired < 10 && limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos);
+            }
+            done += acquired;
+        }
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
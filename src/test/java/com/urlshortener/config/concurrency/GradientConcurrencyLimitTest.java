@@ -0,0 +1,139 @@
+package com.urlshortener.config.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimitTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void rejectsWhenLimitIsReached() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(2, 1, 10, 10);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        // Taking all slots is saturation, not congestion
+        assertFalse(limit.isCongested());
+
+        limit.release(MILLIS);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileLatencyIsStableAndLimitIsUsed() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 100, 10);
+
+        for (int i = 0; i < 20; i++) {
+            runWindow(limit, 10, MILLIS);
+        }
+
+        assertTrue(limit.getLimit() > 10, "limit " + limit.getLimit());
+        assertFalse(limit.isCongested());
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 100, 10);
+
+        for (int i = 0; i < 20; i++) {
+            runWindow(limit, 2, MILLIS);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void shrinksWhenLatencyRises() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 4, 100, 10);
+
+        for (int i = 0; i < 20; i++) {
+            runWindow(limit, 50, MILLIS);
+        }
+        int stable = limit.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            runWindow(limit, Math.min(limit.getLimit(), 50), 10 * MILLIS);
+        }
+
+        assertTrue(limit.getLimit() < stable / 2, "limit " + limit.getLimit() + " after " + stable);
+        assertTrue(limit.isCongested());
+        assertTrue(limit.getLimit() >= 4);
+    }
+
+    @Test
+    void singleSlowWindowIsNotCongestion() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 4, 100, 10);
+
+        for (int i = 0; i < 20; i++) {
+            runWindow(limit, 50, MILLIS);
+        }
+        runWindow(limit, 10, 10 * MILLIS);
+        runWindow(limit, 10, 10 * MILLIS);
+        assertFalse(limit.isCongested());
+
+        runWindow(limit, 10, MILLIS);
+        runWindow(limit, 10, 10 * MILLIS);
+        assertFalse(limit.isCongested());
+    }
+
+    @Test
+    void congestionExpiresWhenTrafficStops() {
+        AtomicLong now = new AtomicLong();
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 4, 100, 10, now::get);
+
+        for (int i = 0; i < 20; i++) {
+            runWindow(limit, 50, MILLIS);
+            now.addAndGet(100 * MILLIS);
+        }
+        for (int i = 0; i < 3; i++) {
+            runWindow(limit, 50, 10 * MILLIS);
+        }
+        assertTrue(limit.isCongested());
+
+        // No more requests complete; the verdict of the last window lasts as long as the window took, at least 1 s
+        now.addAndGet(999 * MILLIS);
+        assertTrue(limit.isCongested());
+        now.addAndGet(2 * MILLIS);
+        assertFalse(limit.isCongested());
+    }
+
+    @Test
+    void congestionOfSlowWindowLastsAtMostTenSeconds() {
+        AtomicLong now = new AtomicLong();
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 4, 100, 10, now::get);
+
+        for (int i = 0; i < 20; i++) {
+            runWindow(limit, 50, MILLIS);
+        }
+        // The third slow window in a row completes a minute after the previous one
+        runWindow(limit, 10, 10 * MILLIS);
+        runWindow(limit, 10, 10 * MILLIS);
+        now.addAndGet(60_000 * MILLIS);
+        runWindow(limit, 10, 10 * MILLIS);
+
+        now.addAndGet(9_999 * MILLIS);
+        assertTrue(limit.isCongested());
+        now.addAndGet(2 * MILLIS);
+        assertFalse(limit.isCongested());
+    }
+
+    /**
+     * Runs one window of requests with the given concurrency and latency.
+     */
+    private static void runWindow(GradientConcurrencyLimit limit, int concurrency, long rttNanos) {
+        for (int done = 0; done < 10; done += concurrency) {
+            int acquired = 0;
+            while (acquired < concurrency && limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+}
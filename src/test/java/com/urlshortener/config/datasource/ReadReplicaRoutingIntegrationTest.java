@@ -0,0 +1,97 @@
+package com.urlshortener.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes transactions between two PostgreSQL containers, one acting as the primary and one as the replica.
+ * No replication is set up; the containers are told apart by their database names and are started for each test.
+ */
+@Testcontainers
+class ReadReplicaRoutingIntegrationTest {
+
+    @Container
+    private final PostgreSQLContainer<?> primaryContainer = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("primary_db");
+
+    @Container
+    private final PostgreSQLContainer<?> replicaContainer = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("replica_db");
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaDataSource replicaDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        primary = dataSource(primaryContainer);
+        replica = dataSource(replicaContainer);
+        replicaDataSource = new ReplicaDataSource(
+                List.of(replica), primary, new ReadYourWritesTracker(Duration.ZERO), Duration.ofSeconds(10));
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        replicaDataSource.close();
+        primary.close();
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUseReplica() {
+        transactionTemplate.setReadOnly(true);
+
+        assertEquals("replica_db", currentDatabase());
+    }
+
+    @Test
+    void readWriteTransaction_shouldUsePrimary() {
+        transactionTemplate.setReadOnly(false);
+
+        assertEquals("primary_db", currentDatabase());
+    }
+
+    @Test
+    void readOnlyTransaction_shouldFallBackToPrimary_whenReplicaIsDown() {
+        replicaContainer.stop();
+        replicaDataSource.checkHealth();
+        transactionTemplate.setReadOnly(true);
+
+        assertEquals(0, replicaDataSource.getHealthyReplicas());
+        assertEquals("primary_db", currentDatabase());
+    }
+
+    private String currentDatabase() {
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+
+    private HikariDataSource dataSource(PostgreSQLContainer<?> container) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(container.getJdbcUrl());
+        dataSource.setUsername(container.getUsername());
+        dataSource.setPassword(container.getPassword());
+        dataSource.setConnectionTimeout(2_000);
+        return dataSource;
+    }
+}
@@ -0,0 +1,120 @@
+package com.urlshortener.config.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaDataSourceTest {
+
+    @Mock
+    private DataSource firstReplica;
+
+    @Mock
+    private DataSource secondReplica;
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Mock
+    private Connection firstConnection;
+
+    @Mock
+    private Connection secondConnection;
+
+    @Mock
+    private Connection primaryConnection;
+
+    private SimpleMeterRegistry registry;
+    private ReplicaDataSource replicaDataSource;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        replicaDataSource = new ReplicaDataSource(
+                List.of(firstReplica, secondReplica), primary, readYourWritesTracker, Duration.ofSeconds(10));
+        replicaDataSource.bindTo(registry);
+    }
+
+    @Test
+    void getConnection_shouldBalanceBetweenReplicas() throws SQLException {
+        when(firstReplica.getConnection()).thenReturn(firstConnection);
+        when(secondReplica.getConnection()).thenReturn(secondConnection);
+
+        assertSame(firstConnection, replicaDataSource.getConnection());
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        assertSame(firstConnection, replicaDataSource.getConnection());
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void getConnection_shouldSkipReplica_whenItRefusesConnection() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(secondReplica.getConnection()).thenReturn(secondConnection);
+
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        assertEquals(1, replicaDataSource.getHealthyReplicas());
+        verify(firstReplica, times(1)).getConnection();
+    }
+
+    @Test
+    void getConnectionWithCredentials_shouldUseReplicaOrPrimary() throws SQLException {
+        when(firstReplica.getConnection("reader", "secret")).thenReturn(firstConnection);
+        when(secondReplica.getConnection("reader", "secret")).thenThrow(new SQLException("connection refused"));
+
+        assertSame(firstConnection, replicaDataSource.getConnection("reader", "secret"));
+        assertSame(firstConnection, replicaDataSource.getConnection("reader", "secret"));
+        assertEquals(1, replicaDataSource.getHealthyReplicas());
+
+        when(readYourWritesTracker.isRecentWriter()).thenReturn(true);
+        when(primary.getConnection("reader", "secret")).thenReturn(primaryConnection);
+        assertSame(primaryConnection, replicaDataSource.getConnection("reader", "secret"));
+    }
+
+    @Test
+    void getConnection_shouldFallBackToPrimary_whenNoReplicaIsAvailable() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(secondReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, replicaDataSource.getConnection());
+        assertEquals(0, replicaDataSource.getHealthyReplicas());
+        assertEquals(1.0, registry.get("urlshortener.datasource.replicas.fallbacks").counter().count());
+    }
+
+    @Test
+    void getConnection_shouldUsePrimary_whenUserWroteRecently() throws SQLException {
+        when(readYourWritesTracker.isRecentWriter()).thenReturn(true);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, replicaDataSource.getConnection());
+        verifyNoInteractions(firstReplica, secondReplica);
+    }
+
+    @Test
+    void checkHealth_shouldMarkReplicaUnhealthy_whenValidationFails() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(secondReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        replicaDataSource.checkHealth();
+
+        assertEquals(0, replicaDataSource.getHealthyReplicas());
+        assertEquals(0.0, registry.get("urlshortener.datasource.replicas.healthy").gauge().value());
+    }
+}
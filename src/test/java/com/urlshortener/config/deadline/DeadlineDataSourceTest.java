@@ -0,0 +1,72 @@
+package com.urlshortener.config.deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class DeadlineDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final DeadlineDataSource dataSource = new DeadlineDataSource(target);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select 1")).thenReturn(statement);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void appliesRemainingTimeAsQueryTimeout() throws SQLException {
+        RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2500));
+
+        assertSame(statement, dataSource.getConnection().prepareStatement("select 1"));
+
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    void leavesStatementsWithoutDeadlineAlone() throws SQLException {
+        assertSame(statement, dataSource.getConnection().prepareStatement("select 1"));
+
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void failsWithoutQueryOncePastDeadline() throws SQLException {
+        RequestDeadline.set(System.nanoTime() - 1);
+        Connection proxy = dataSource.getConnection();
+
+        assertThrows(SQLTimeoutException.class, () -> proxy.prepareStatement("select 1"));
+        verify(connection, never()).prepareStatement("select 1");
+    }
+
+    @Test
+    void passesOtherCallsThrough() throws SQLException {
+        RequestDeadline.set(System.nanoTime() - 1);
+        SQLException failure = new SQLException("closed");
+        doThrow(failure).when(connection).commit();
+        Connection proxy = dataSource.getConnection();
+
+        proxy.setAutoCommit(false);
+        verify(connection).setAutoCommit(false);
+        assertSame(failure, assertThrows(SQLException.class, proxy::commit));
+    }
+}
@@ -0,0 +1,39 @@
+package com.urlshortener.config.deadline;
+
+import com.urlshortener.config.concurrency.RouteClass;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDeadlineFilterTest {
+
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(Map.of(
+            RouteClass.RESOLVE, Duration.ofSeconds(1),
+            RouteClass.API, Duration.ofSeconds(5),
+            RouteClass.STATS, Duration.ofSeconds(30),
+            RouteClass.AUTH, Duration.ofSeconds(5)));
+
+    @Test
+    void bindsBudgetOfRouteClassWhileProcessing() throws Exception {
+        assertTrue(remainingDuring(new MockHttpServletRequest("POST", "/api/v1/url/abc")).toMillis() <= 1000);
+        assertTrue(remainingDuring(new MockHttpServletRequest("GET", "/api/v1/url/all")).toMillis() > 5000);
+        assertNull(RequestDeadline.current());
+    }
+
+    @Test
+    void actuatorHasNoDeadline() throws Exception {
+        assertNull(remainingDuring(new MockHttpServletRequest("GET", "/actuator/health")));
+    }
+
+    private Duration remainingDuring(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Duration> remaining = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> remaining.set(RequestDeadline.remaining()));
+        return remaining.get();
+    }
+}
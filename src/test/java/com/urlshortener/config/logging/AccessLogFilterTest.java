@@ -0,0 +1,81 @@
+package com.urlshortener.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(AccessLogFilter.ACCESS_LOGGER);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final AccessLogFilter filter = new AccessLogFilter();
+    private Level level;
+
+    @BeforeEach
+    void setUp() {
+        level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(level);
+    }
+
+    @Test
+    void requestIsLoggedAsKeyValuePairs() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/url/abc123");
+        request.setRemoteAddr("192.0.2.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(404);
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.getFirst();
+        assertEquals(Level.INFO, event.getLevel());
+        assertTrue(event.getFormattedMessage().matches(
+                "method=POST path=/api/v1/url/abc123 status=404 duration_us=\\d+ ip=192\\.0\\.2\\.1"),
+                event.getFormattedMessage());
+    }
+
+    @Test
+    void failedRequestIsLoggedToo() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/url/all");
+
+        assertThrows(ServletException.class, () -> filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> {
+                    throw new ServletException("failed");
+                }));
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.getFirst().getFormattedMessage().startsWith("method=GET path=/api/v1/url/all "));
+    }
+
+    @Test
+    void nothingIsLoggedBelowInfoLevel() throws ServletException, IOException {
+        logger.setLevel(Level.WARN);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/url/all"), new MockHttpServletResponse(), chain);
+
+        assertTrue(appender.list.isEmpty());
+        assertNotNull(chain.getRequest());
+    }
+}
@@ -0,0 +1,22 @@
+package com.urlshortener.config.logging;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlLoggingConfigTest {
+
+    @Test
+    void registersInspectorAndSlowQueryThreshold() {
+        Map<String, Object> properties = new HashMap<>();
+
+        new SqlLoggingConfig().sqlLoggingCustomizer(0.25, 750).customize(properties);
+
+        assertInstanceOf(SqlSamplingStatementInspector.class, properties.get(AvailableSettings.STATEMENT_INSPECTOR));
+        assertEquals(750L, properties.get(AvailableSettings.LOG_SLOW_QUERY));
+    }
+}
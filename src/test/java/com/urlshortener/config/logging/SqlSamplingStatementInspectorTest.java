@@ -0,0 +1,80 @@
+package com.urlshortener.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlSamplingStatementInspectorTest {
+    private static final String SQL = "select u.id from urls u where u.short_url_code=?";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SqlSamplingStatementInspector.SQL_LOGGER);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Level level;
+
+    @BeforeEach
+    void setUp() {
+        level = logger.getLevel();
+        logger.setLevel(Level.DEBUG);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(level);
+    }
+
+    @Test
+    void statementIsReturnedUnchanged() {
+        assertEquals(SQL, new SqlSamplingStatementInspector(1).inspect(SQL));
+        assertEquals(SQL, new SqlSamplingStatementInspector(0).inspect(SQL));
+    }
+
+    @Test
+    void rateZeroLogsNothing() {
+        inspect(new SqlSamplingStatementInspector(0), 1000);
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void rateOneLogsEveryStatement() {
+        inspect(new SqlSamplingStatementInspector(1), 1000);
+
+        assertEquals(1000, appender.list.size());
+        ILoggingEvent event = appender.list.getFirst();
+        assertEquals(Level.DEBUG, event.getLevel());
+        assertEquals("sql=\"" + SQL + "\"", event.getFormattedMessage());
+    }
+
+    @Test
+    void partialRateLogsShareOfStatements() {
+        inspect(new SqlSamplingStatementInspector(0.1), 10_000);
+
+        // Expected 1000, the bounds are more than ten standard deviations away
+        assertTrue(appender.list.size() > 700 && appender.list.size() < 1300, "logged " + appender.list.size());
+    }
+
+    @Test
+    void nothingIsLoggedBelowDebugLevel() {
+        logger.setLevel(Level.INFO);
+
+        inspect(new SqlSamplingStatementInspector(1), 10);
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    private static void inspect(SqlSamplingStatementInspector inspector, int statements) {
+        for (int i = 0; i < statements; i++) {
+            inspector.inspect(SQL);
+        }
+    }
+}
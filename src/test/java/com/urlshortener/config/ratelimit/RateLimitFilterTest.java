@@ -0,0 +1,101 @@
+package com.urlshortener.config.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.config.concurrency.RouteClass;
+import com.urlshortener.security.Role;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        Map<RouteClass, Map<ClientTier, RateLimit>> limits = new EnumMap<>(RouteClass.class);
+        for (RouteClass routeClass : RouteClass.values()) {
+            limits.put(routeClass, Map.of(
+                    ClientTier.ANONYMOUS, new RateLimit(1, Duration.ofSeconds(30)),
+                    ClientTier.USER, new RateLimit(2, Duration.ofMinutes(1)),
+                    ClientTier.ADMIN, new RateLimit(10, Duration.ofMinutes(1))));
+        }
+        RateLimiter rateLimiter = new RateLimiter(null, new CircuitBreaker(1, Duration.ofSeconds(1)),
+                new SimpleMeterRegistry(), limits, 1000, System::nanoTime);
+        filter = new RateLimitFilter(new ObjectMapper().findAndRegisterModules(), rateLimiter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void anonymousClientsAreLimitedPerAddress() throws Exception {
+        MockHttpServletResponse allowed = filter(request("192.0.2.1"));
+        assertEquals(200, allowed.getStatus());
+        assertEquals("1", allowed.getHeader(RateLimitFilter.LIMIT_HEADER));
+        assertEquals("0", allowed.getHeader(RateLimitFilter.REMAINING_HEADER));
+        assertEquals("30", allowed.getHeader(RateLimitFilter.RESET_HEADER));
+        assertEquals("1;w=30", allowed.getHeader(RateLimitFilter.POLICY_HEADER));
+
+        MockHttpServletResponse rejected = filter(request("192.0.2.1"));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("30", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("Too many requests"));
+
+        assertEquals(200, filter(request("192.0.2.2")).getStatus());
+    }
+
+    @Test
+    void authenticatedClientsAreLimitedPerUserAndRole() throws Exception {
+        authenticate("alice", Role.ROLE_USER);
+        assertEquals("1", filter(request("192.0.2.1")).getHeader(RateLimitFilter.REMAINING_HEADER));
+        assertEquals(200, filter(request("192.0.2.2")).getStatus());
+        assertEquals(429, filter(request("192.0.2.3")).getStatus());
+
+        authenticate("admin", Role.ROLE_ADMIN);
+        assertEquals("10", filter(request("192.0.2.1")).getHeader(RateLimitFilter.LIMIT_HEADER));
+    }
+
+    @Test
+    void actuatorIsNotLimited() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = filter(new MockHttpServletRequest("GET", "/actuator/health"));
+            assertEquals(200, response.getStatus());
+            assertNull(response.getHeader(RateLimitFilter.LIMIT_HEADER));
+        }
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/url");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static void authenticate(String login, Role role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                login, null, List.of(new SimpleGrantedAuthority(role.name()))));
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
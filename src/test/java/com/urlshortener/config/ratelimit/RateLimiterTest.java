@@ -0,0 +1,108 @@
+package com.urlshortener.config.ratelimit;
+
+import com.urlshortener.config.concurrency.RouteClass;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RateLimiterTest {
+
+    private static final int MAX_BUCKETS = 100;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void limitsEachClientSeparately() {
+        RateLimiter rateLimiter = rateLimiter(null);
+
+        assertTrue(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice").allowed());
+        assertFalse(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice").allowed());
+        assertTrue(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:bob").allowed());
+        assertTrue(rateLimiter.tryAcquire(RouteClass.RESOLVE, ClientTier.USER, "user:alice").allowed());
+
+        assertEquals(1, registry.get("urlshortener.http.ratelimit.rejected")
+                .tags("route", "api", "tier", "user").counter().count());
+    }
+
+    @Test
+    void limitsDependOnTier() {
+        RateLimiter rateLimiter = rateLimiter(null);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire(RouteClass.API, ClientTier.ADMIN, "user:admin").allowed());
+        }
+        assertFalse(rateLimiter.tryAcquire(RouteClass.API, ClientTier.ADMIN, "user:admin").allowed());
+    }
+
+    @Test
+    void evictsRefilledBuckets() {
+        RateLimiter rateLimiter = rateLimiter(null);
+        rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice");
+
+        assertEquals(1, registry.get("urlshortener.http.ratelimit.buckets").gauge().value());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertEquals(0, registry.get("urlshortener.http.ratelimit.buckets").gauge().value());
+    }
+
+    @Test
+    void boundsBucketsOfClientsCyclingAddresses() {
+        RateLimiter rateLimiter = rateLimiter(null);
+
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.tryAcquire(RouteClass.API, ClientTier.ANONYMOUS, "ip:2001:db8::" + Integer.toHexString(i));
+        }
+
+        assertEquals(MAX_BUCKETS, rateLimiter.getBucketCount());
+    }
+
+    @Test
+    void usesSharedLimitsWhenAvailable() throws IOException {
+        RemoteRateLimiter remote = mock(RemoteRateLimiter.class);
+        when(remote.tryAcquire(anyString(), any())).thenReturn(new RateLimitDecision(false, 0, 1, 1));
+        RateLimiter rateLimiter = rateLimiter(remote);
+
+        assertFalse(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice").allowed());
+
+        verify(remote).tryAcquire("api:user:alice", new RateLimit(1, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void fallsBackToLocalBucketsWhileSharedLimitsFail() throws IOException {
+        RemoteRateLimiter remote = mock(RemoteRateLimiter.class);
+        when(remote.tryAcquire(anyString(), any())).thenThrow(new IOException("down"));
+        RateLimiter rateLimiter = rateLimiter(remote);
+
+        assertTrue(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice").allowed());
+        assertFalse(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice").allowed());
+        assertFalse(rateLimiter.tryAcquire(RouteClass.API, ClientTier.USER, "user:alice").allowed());
+
+        verify(remote, times(2)).tryAcquire(anyString(), any());
+        assertEquals(1, registry.get("urlshortener.http.ratelimit.remote.circuit.open").gauge().value());
+    }
+
+    private RateLimiter rateLimiter(RemoteRateLimiter remote) {
+        Map<RouteClass, Map<ClientTier, RateLimit>> limits = new EnumMap<>(RouteClass.class);
+        for (RouteClass routeClass : RouteClass.values()) {
+            limits.put(routeClass, Map.of(
+                    ClientTier.ANONYMOUS, new RateLimit(1, Duration.ofMinutes(1)),
+                    ClientTier.USER, new RateLimit(1, Duration.ofMinutes(1)),
+                    ClientTier.ADMIN, new RateLimit(5, Duration.ofMinutes(1))));
+        }
+        return new RateLimiter(remote, new CircuitBreaker(2, Duration.ofMinutes(1)), registry, limits, MAX_BUCKETS, now::get);
+    }
+}
@@ -0,0 +1,61 @@
+package com.urlshortener.config.ratelimit;
+
+import com.urlshortener.util.RespClient;
+import com.urlshortener.util.RespStandInServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a {@link RespStandInServer}.
+ */
+class RemoteRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(60_000);
+    private final RateLimit limit = new RateLimit(2, Duration.ofMinutes(1));
+    private RespStandInServer server;
+    private RemoteRateLimiter remote;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new RespStandInServer();
+        remote = new RemoteRateLimiter(
+                new RespClient("localhost", server.port(), "", Duration.ofSeconds(1), 2), now::get);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        remote.close();
+        server.close();
+    }
+
+    @Test
+    void countsRequestsPerWindow() throws IOException {
+        assertEquals(1, remote.tryAcquire("api:user:alice", limit).remaining());
+        now.addAndGet(30_000);
+        RateLimitDecision last = remote.tryAcquire("api:user:alice", limit);
+        assertTrue(last.allowed());
+        assertEquals(TimeUnit.SECONDS.toNanos(30), last.resetNanos());
+
+        assertFalse(remote.tryAcquire("api:user:alice", limit).allowed());
+        assertTrue(remote.tryAcquire("api:user:bob", limit).allowed());
+        assertEquals(60_000L, server.ttl(RemoteRateLimiter.KEY_PREFIX + "api:user:alice:1"));
+
+        now.addAndGet(30_000);
+        assertTrue(remote.tryAcquire("api:user:alice", limit).allowed());
+    }
+
+    @Test
+    void errorReplyFails() {
+        server.failAll();
+
+        assertThrows(IOException.class, () -> remote.tryAcquire("api:user:alice", limit));
+    }
+}
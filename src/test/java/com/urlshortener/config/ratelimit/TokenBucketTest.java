@@ -0,0 +1,65 @@
+package com.urlshortener.config.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(3, Duration.ofSeconds(3)), 0);
+
+        assertEquals(2, bucket.tryAcquire(0).remaining());
+        assertEquals(1, bucket.tryAcquire(0).remaining());
+        RateLimitDecision last = bucket.tryAcquire(0);
+        assertTrue(last.allowed());
+        assertEquals(0, last.remaining());
+        assertEquals(3 * SECOND, last.resetNanos());
+
+        RateLimitDecision rejected = bucket.tryAcquire(0);
+        assertFalse(rejected.allowed());
+        assertEquals(SECOND, rejected.retryAfterNanos());
+    }
+
+    @Test
+    void refillsOverTime() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(2, Duration.ofSeconds(2)), 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+
+        assertFalse(bucket.tryAcquire(SECOND / 2).allowed());
+        assertTrue(bucket.tryAcquire(SECOND).allowed());
+        assertFalse(bucket.tryAcquire(SECOND).allowed());
+        // Full again after the whole period
+        assertEquals(1, bucket.tryAcquire(3 * SECOND).remaining());
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(new RateLimit(1000, Duration.ofHours(1)), 0);
+        AtomicInteger allowed = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                executor.execute(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        if (bucket.tryAcquire(0).allowed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+
+        assertEquals(1000, allowed.get());
+    }
+}
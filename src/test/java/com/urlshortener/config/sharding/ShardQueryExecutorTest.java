@@ -0,0 +1,60 @@
+package com.urlshortener.config.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardQueryExecutorTest {
+
+    private ShardQueryExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void executeOnAllShards_shouldRunOnEveryShard() {
+        executor = new ShardQueryExecutor(new ShardResolver(3));
+
+        List<Integer> shards = executor.executeOnAllShards(ShardContext::current);
+
+        assertEquals(List.of(0, 1, 2), shards);
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void executeOnAllShards_shouldRunOnCallingThread_whenNotSharded() {
+        executor = new ShardQueryExecutor(new ShardResolver(1));
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> results = executor.executeOnAllShards(() -> Thread.currentThread() == caller);
+
+        assertEquals(List.of(true), results);
+    }
+
+    @Test
+    void mergeSorted_shouldMergeShardResultsInOrder() {
+        executor = new ShardQueryExecutor(new ShardResolver(3));
+        List<List<Integer>> data = List.of(List.of(1, 4, 7), List.of(2, 5), List.of(0, 3, 6, 8));
+
+        List<Integer> merged = executor.mergeSorted(() -> data.get(ShardContext.current()), Comparator.naturalOrder());
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8), merged);
+    }
+
+    @Test
+    void executeOnAllShards_shouldRethrowQueryException() {
+        executor = new ShardQueryExecutor(new ShardResolver(2));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> executor.executeOnAllShards(() -> {
+                    throw new IllegalStateException("shard down");
+                }));
+        assertEquals("shard down", exception.getMessage());
+    }
+}
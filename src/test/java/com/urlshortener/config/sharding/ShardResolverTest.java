@@ -0,0 +1,62 @@
+package com.urlshortener.config.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardResolverTest {
+
+    @AfterEach
+    void clearShard() {
+        ShardContext.clear();
+    }
+
+    @Test
+    void shardOf_shouldReturnDefaultShard_whenNotSharded() {
+        ShardResolver resolver = new ShardResolver(false, List.of("jdbc:postgresql://shard1/db"));
+
+        assertFalse(resolver.isSharded());
+        assertEquals(ShardContext.DEFAULT_SHARD, resolver.shardOf("zXy123"));
+    }
+
+    @Test
+    void shardOf_shouldUseFirstCharacter() {
+        ShardResolver resolver = new ShardResolver(4);
+
+        assertEquals(0, resolver.shardOf("0abcdef"));
+        assertEquals(1, resolver.shardOf("1abcdef"));
+        assertEquals(2, resolver.shardOf("Aabcdef"));
+        assertEquals(resolver.shardOf("Qabcdef"), resolver.shardOf("Qzzzzzz"));
+    }
+
+    @Test
+    void placeOnCurrentShard_shouldRewriteFirstCharacterOnly() {
+        ShardResolver resolver = new ShardResolver(5);
+
+        for (int shard = 0; shard < 5; shard++) {
+            ShardContext.set(shard);
+            for (int i = 0; i < 100; i++) {
+                String code = resolver.placeOnCurrentShard("abcdefg");
+
+                assertEquals(shard, resolver.shardOf(code));
+                assertEquals("bcdefg", code.substring(1));
+                assertTrue(code.matches("[a-zA-Z0-9]+"));
+            }
+        }
+    }
+
+    @Test
+    void placeOnCurrentShard_shouldKeepCode_whenNoShardIsBound() {
+        ShardResolver resolver = new ShardResolver(3);
+
+        assertEquals("abcdefg", resolver.placeOnCurrentShard("abcdefg"));
+    }
+
+    @Test
+    void constructor_shouldRejectShardCountAboveAlphabetSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardResolver(63));
+    }
+}
@@ -0,0 +1,86 @@
+package com.urlshortener.config.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UrlShardRebalancerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final List<String> deletes = new ArrayList<>();
+
+    @Test
+    void rebalance_shouldMoveUrlsToShardOfTheirCode() throws SQLException {
+        // "0abc" belongs to shard 0, "1abc" to shard 1
+        stubUrls(List.of(row(1L, "0abc", 7L), row(2L, "1abc", 7L)), row(0L, "1abc", 7L));
+
+        rebalancer(2).rebalance();
+
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO urls"),
+                argThat((List<Object[]> args) -> args.size() == 1 && args.getFirst()[0].equals("1abc")));
+        assertEquals(List.of("0:url_visits:2", "0:urls:2"), deletes);
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void rebalance_shouldKeepUrlWhoseCodeIsTakenOnTarget() throws SQLException {
+        stubUrls(List.of(row(2L, "1abc", 7L)), row(0L, "1abc", 8L));
+
+        rebalancer(2).rebalance();
+
+        assertEquals(List.of(), deletes);
+    }
+
+    @Test
+    void rebalance_shouldDoNothingWithoutSharding() {
+        rebalancer(1).rebalance();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private UrlShardRebalancer rebalancer(int shardCount) {
+        return new UrlShardRebalancer(new ShardResolver(shardCount), jdbcTemplate);
+    }
+
+    /**
+     * Serves the given rows from shard 0 and the copy from the shard it was moved to, and records the deletes.
+     */
+    private void stubUrls(List<ResultSet> shardZeroRows, ResultSet copy) throws SQLException {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            RowMapper<?> rowMapper = invocation.getArgument(1);
+            List<ResultSet> rows = sql.contains("JOIN url_visits")
+                    ? (ShardContext.current() == 0 ? shardZeroRows : List.of())
+                    : List.of(copy);
+            List<Object> mapped = new ArrayList<>();
+            for (ResultSet row : rows) {
+                mapped.add(rowMapper.mapRow(row, mapped.size()));
+            }
+            return mapped;
+        });
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE"), anyList())).thenAnswer(invocation -> {
+            String table = ((String) invocation.getArgument(0)).split(" ")[2];
+            List<Object[]> ids = invocation.getArgument(1);
+            ids.forEach(id -> deletes.add(ShardContext.current() + ":" + table + ":" + id[0]));
+            return new int[ids.size()];
+        });
+    }
+
+    private static ResultSet row(long id, String shortUrlCode, long userId) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("short_url_code")).thenReturn(shortUrlCode);
+        when(rs.getString("long_url")).thenReturn("https://example.com/" + shortUrlCode);
+        when(rs.getLong("user_id")).thenReturn(userId);
+        return rs;
+    }
+}
@@ -0,0 +1,108 @@
+package com.urlshortener.config.sharding;
+
+import com.urlshortener.security.Role;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserShardReplicatorTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final User user = User.builder()
+            .id(7L)
+            .login("sharded")
+            .email("sharded@email.com")
+            .password("passWord123")
+            .role(Role.ROLE_USER)
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        ShardContext.clear();
+    }
+
+    @Test
+    void ensureOnCurrentShard_shouldCopyMissingUserOnce() {
+        UserShardReplicator replicator = replicator(3);
+        ShardContext.set(2);
+
+        replicator.ensureOnCurrentShard(user);
+        replicator.ensureOnCurrentShard(user);
+
+        verify(jdbcTemplate, times(1)).update(contains("ON CONFLICT (id) DO NOTHING"),
+                eq(7L), eq("sharded"), eq("sharded@email.com"), eq("passWord123"), eq("ROLE_USER"));
+    }
+
+    @Test
+    void ensureOnCurrentShard_shouldSkipShardOfUsers() {
+        UserShardReplicator replicator = replicator(3);
+        ShardContext.set(ShardContext.DEFAULT_SHARD);
+
+        replicator.ensureOnCurrentShard(user);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void ensureOnCurrentShard_shouldPropagateFailure() {
+        UserShardReplicator replicator = replicator(3);
+        ShardContext.set(1);
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("Shard 1 is down"));
+
+        assertThrows(DataAccessException.class, () -> replicator.ensureOnCurrentShard(user));
+    }
+
+    @Test
+    void replicateAfterCommit_shouldCountFailedCopies() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Shard is down"));
+
+        replicator(3).replicateAfterCommit(user);
+
+        assertEquals(2, registry.get("urlshortener.user.replication.failures").counter().count());
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void backfill_shouldCopyUsersOfShardZeroToOtherShards() {
+        List<Integer> readShards = new ArrayList<>();
+        List<Integer> writtenShards = new ArrayList<>();
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0L), anyInt()))
+                .thenAnswer(invocation -> {
+                    readShards.add(ShardContext.current());
+                    List<Object[]> users = new ArrayList<>();
+                    users.add(new Object[]{7L, "sharded", "sharded@email.com", "passWord123", "ROLE_USER"});
+                    return users;
+                });
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writtenShards.add(ShardContext.current());
+            return new int[]{1};
+        });
+
+        replicator(3).backfill();
+
+        assertEquals(List.of(0), readShards);
+        assertEquals(List.of(1, 2), writtenShards);
+        assertNull(ShardContext.current());
+    }
+
+    private UserShardReplicator replicator(int shardCount) {
+        return new UserShardReplicator(new ShardResolver(shardCount), dataSource, jdbcTemplate, registry, 100);
+    }
+}
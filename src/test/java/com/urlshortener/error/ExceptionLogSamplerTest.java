@@ -0,0 +1,67 @@
+package com.urlshortener.error;
+
+import com.urlshortener.error.exception.ResourceNotFoundException;
+import com.urlshortener.error.exception.ValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExceptionLogSamplerTest {
+
+    private AtomicLong clock;
+    private ExceptionLogSampler sampler;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        sampler = new ExceptionLogSampler(2, 1000, clock::get);
+    }
+
+    @Test
+    void tryAcquire_shouldSuppress_whenPermitsAreExhausted() {
+        assertEquals(0, sampler.tryAcquire(ResourceNotFoundException.class));
+        assertEquals(0, sampler.tryAcquire(ResourceNotFoundException.class));
+        assertEquals(-1, sampler.tryAcquire(ResourceNotFoundException.class));
+        assertEquals(-1, sampler.tryAcquire(ResourceNotFoundException.class));
+    }
+
+    @Test
+    void tryAcquire_shouldReportSuppressedCount_whenNewWindowStarts() {
+        for (int i = 0; i < 5; i++) {
+            sampler.tryAcquire(ResourceNotFoundException.class);
+        }
+        clock.addAndGet(1_000_000_000L);
+
+        assertEquals(3, sampler.tryAcquire(ResourceNotFoundException.class));
+        assertEquals(0, sampler.tryAcquire(ResourceNotFoundException.class));
+    }
+
+    @Test
+    void tryAcquire_shouldLimitEachTypeSeparately() {
+        sampler.tryAcquire(ResourceNotFoundException.class);
+        sampler.tryAcquire(ResourceNotFoundException.class);
+
+        assertEquals(-1, sampler.tryAcquire(ResourceNotFoundException.class));
+        assertEquals(0, sampler.tryAcquire(ValidationException.class));
+    }
+
+    @Test
+    void getCounts_shouldCountEveryOccurrence() {
+        for (int i = 0; i < 5; i++) {
+            sampler.tryAcquire(ResourceNotFoundException.class);
+        }
+        sampler.tryAcquire(ValidationException.class);
+
+        assertEquals(5L, sampler.getCounts().get("ResourceNotFoundException"));
+        assertEquals(1L, sampler.getCounts().get("ValidationException"));
+    }
+
+    @Test
+    void exceptions_shouldNotCaptureStackTrace() {
+        assertEquals(0, new ResourceNotFoundException("not found").getStackTrace().length);
+        assertEquals(0, new ValidationException("invalid").getStackTrace().length);
+    }
+}
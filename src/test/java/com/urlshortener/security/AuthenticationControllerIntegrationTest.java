@@ -2,6 +2,7 @@ package com.urlshortener.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.urlshortener.security.dto.AuthUserRequest;
+import com.urlshortener.user.User;
 import com.urlshortener.user.UserRepository;
 import com.urlshortener.user.dto.RegisterUserRequest;
 import org.junit.jupiter.api.AfterEach;
@@ -11,9 +12,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static com.urlshortener.util.MessageProvider.generateUserWithLoginNotFoundMessage;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -73,4 +76,24 @@ class AuthenticationControllerIntegrationTest {
                 .andExpect(jsonPath("$.message")
                         .value(generateUserWithLoginNotFoundMessage(login)));
     }
+
+    @Test
+    void authenticateUser_shouldStoreRehashedPassword_whenHashHasOutdatedStrength() throws Exception {
+        RegisterUserRequest requestRegister = new RegisterUserRequest(login, email, password);
+        mockMvc.perform(post(USER_REGISTER_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestRegister)));
+        User user = userRepository.findUserByLogin(login).orElseThrow();
+        user.setPassword(new BCryptPasswordEncoder(5).encode(password));
+        userRepository.save(user);
+
+        AuthUserRequest requestAuth = new AuthUserRequest(login, password);
+        mockMvc.perform(post(USER_AUTH_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestAuth)))
+                .andExpect(status().isOk());
+
+        String storedHash = userRepository.findUserByLogin(login).orElseThrow().getPassword();
+        assertTrue(storedHash.startsWith("$2a$04$"), storedHash);
+    }
 }
@@ -0,0 +1,71 @@
+package com.urlshortener.security.password;
+
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void hashesAndVerifiesOnHashingThreads() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 2, 4, registry)) {
+            String hash = encoder.encode("passWord123");
+
+            assertTrue(encoder.matches("passWord123", hash));
+            assertFalse(encoder.matches("wrong", hash));
+            assertEquals(1, registry.get("urlshortener.password.hash").tag("operation", "encode").timer().count());
+            assertEquals(2, registry.get("urlshortener.password.hash").tag("operation", "matches").timer().count());
+        }
+    }
+
+    @Test
+    void hashesOfOtherStrengthNeedUpgrade() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(5, 1, 1, registry)) {
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("passWord123")));
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("passWord123")));
+            assertFalse(encoder.upgradeEncoding(encoder.encode("passWord123")));
+            assertFalse(encoder.upgradeEncoding("plain"));
+            assertFalse(encoder.upgradeEncoding(null));
+        }
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode("slow")).then(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 4, 1, 1, registry)) {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("slow"));
+            started.await();
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("slow"));
+            while (registry.get("urlshortener.password.hash.queued").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(ServiceUnavailableException.class, () -> encoder.encode("slow"));
+            assertEquals(1, registry.get("urlshortener.password.hash.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("hash", running.get());
+            assertEquals("hash", queued.get());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.urlshortener.security.provider;
+
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import com.urlshortener.security.CustomUserDetails;
+import com.urlshortener.security.Role;
+import com.urlshortener.security.service.CustomUserDetailsService;
+import com.urlshortener.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomAuthenticationProviderTest {
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @InjectMocks
+    private CustomAuthenticationProvider authenticationProvider;
+
+    private CustomUserDetails userDetails;
+
+    @BeforeEach
+    void init() {
+        userDetails = new CustomUserDetails(User.builder()
+                .id(1L).login("login123").email("login123@email.com").password("oldHash").role(Role.ROLE_USER)
+                .build());
+        when(userDetailsService.loadUserByUsername("login123")).thenReturn(userDetails);
+    }
+
+    @Test
+    void wrongPasswordIsRejected() {
+        when(passwordEncoder.matches("wrong", "oldHash")).thenReturn(false);
+
+        assertThrows(BadCredentialsException.class, () -> authenticate("wrong"));
+        verify(passwordEncoder, never()).encode(any());
+    }
+
+    @Test
+    void currentHashIsKept() {
+        when(passwordEncoder.matches("passWord123", "oldHash")).thenReturn(true);
+
+        assertSame(userDetails, authenticate("passWord123").getPrincipal());
+        verify(userDetailsService, never()).updatePassword(any(), any());
+    }
+
+    @Test
+    void outdatedHashIsReplacedOnLogin() {
+        CustomUserDetails rehashed = new CustomUserDetails(User.builder().id(1L).login("login123").password("newHash")
+                .role(Role.ROLE_USER).build());
+        when(passwordEncoder.matches("passWord123", "oldHash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldHash")).thenReturn(true);
+        when(passwordEncoder.encode("passWord123")).thenReturn("newHash");
+        when(userDetailsService.updatePassword(userDetails, "newHash")).thenReturn(rehashed);
+
+        assertSame(rehashed, authenticate("passWord123").getPrincipal());
+    }
+
+    @Test
+    void failedRehashDoesNotFailLogin() {
+        when(passwordEncoder.matches("passWord123", "oldHash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldHash")).thenReturn(true);
+        when(passwordEncoder.encode("passWord123")).thenThrow(new ServiceUnavailableException("busy", null));
+
+        assertSame(userDetails, authenticate("passWord123").getPrincipal());
+    }
+
+    private Authentication authenticate(String password) {
+        return authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken("login123", password));
+    }
+}
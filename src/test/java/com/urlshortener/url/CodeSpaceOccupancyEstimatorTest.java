@@ -0,0 +1,93 @@
+package com.urlshortener.url;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.url.storage.UrlStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CodeSpaceOccupancyEstimatorTest {
+
+    private static final double THRESHOLD = 0.001;
+
+    @Mock
+    private UrlStorage urlStorage;
+
+    private ShortUrlCodeGenerator urlGenerator;
+    private UrlMetrics urlMetrics;
+    private SimpleMeterRegistry registry;
+    private CodeSpaceOccupancyEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        urlGenerator = new ShortUrlCodeGenerator();
+        urlMetrics = new UrlMetrics(registry);
+        estimator = new CodeSpaceOccupancyEstimator(urlStorage, urlGenerator, urlMetrics,
+                new ShardQueryExecutor(new ShardResolver(1)), registry, THRESHOLD);
+    }
+
+    @Test
+    void refresh_shouldKeepMinLength_whenTableIsSmall() {
+        when(urlStorage.estimateCount()).thenReturn(1_000L);
+
+        estimator.refresh();
+
+        assertEquals(6, urlGenerator.getMinLength());
+    }
+
+    @Test
+    void refresh_shouldRaiseMinLength_whenExpectedCollisionRateExceedsThreshold() {
+        // 62^7 ~ 3.5e12 is too small for 1e10 rows at the threshold, 62^8 ~ 2.2e14 is enough
+        when(urlStorage.estimateCount()).thenReturn(10_000_000_000L);
+
+        estimator.refresh();
+
+        int minLength = urlGenerator.getMinLength();
+        assertEquals(8, minLength);
+        assertTrue(CodeSpaceOccupancyEstimator.expectedCollisionRate(10_000_000_000L, minLength) <= THRESHOLD);
+        assertEquals(8, registry.get("urlshortener.url.code.min_length").gauge().value());
+    }
+
+    @Test
+    void refresh_shouldRaiseMinLength_whenObservedCollisionRateExceedsThreshold() {
+        when(urlStorage.estimateCount()).thenReturn(1_000L);
+        for (int i = 0; i < 2_000; i++) {
+            urlMetrics.recordCodeAttempt(6, i % 100 == 0);
+        }
+
+        estimator.refresh();
+
+        assertEquals(7, urlGenerator.getMinLength());
+    }
+
+    @Test
+    void refresh_shouldIgnoreObservedCollisions_whenSampleIsTooSmall() {
+        when(urlStorage.estimateCount()).thenReturn(1_000L);
+        for (int i = 0; i < 10; i++) {
+            urlMetrics.recordCodeAttempt(6, true);
+        }
+
+        estimator.refresh();
+
+        assertEquals(6, urlGenerator.getMinLength());
+    }
+
+    @Test
+    void refresh_shouldKeepMinLength_whenEstimateFails() {
+        when(urlStorage.estimateCount()).thenThrow(new QueryTimeoutException("timeout"));
+
+        estimator.refresh();
+
+        assertEquals(6, urlGenerator.getMinLength());
+    }
+}
@@ -0,0 +1,113 @@
+package com.urlshortener.url;
+
+import com.urlshortener.config.sharding.ShardContext;
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.url.storage.UrlStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LongUrlDeduplicatorTest {
+    private static final String LONG_URL = "https://example.com/path?q=1";
+
+    private final UrlStorage urlStorage = mock(UrlStorage.class);
+    private final ShardQueryExecutor shardQueryExecutor = new ShardQueryExecutor(new ShardResolver(1));
+    private final LongUrlDeduplicator deduplicator = new LongUrlDeduplicator(urlStorage, shardQueryExecutor, true);
+
+    @AfterEach
+    void tearDown() {
+        shardQueryExecutor.close();
+    }
+
+    @Test
+    void equivalentUrlsHaveTheSameHash() {
+        long hash = LongUrlDeduplicator.hash(LONG_URL);
+
+        assertEquals(hash, LongUrlDeduplicator.hash("HTTPS://Example.COM:443/path?q=1"));
+        assertEquals(hash, LongUrlDeduplicator.hash(" https://example.com/path?q=1 "));
+        assertEquals(LongUrlDeduplicator.hash("http://example.com/"), LongUrlDeduplicator.hash("http://example.com"));
+    }
+
+    @Test
+    void differentUrlsHaveDifferentHashes() {
+        long hash = LongUrlDeduplicator.hash(LONG_URL);
+
+        assertNotEquals(hash, LongUrlDeduplicator.hash("https://example.com/Path?q=1"));
+        assertNotEquals(hash, LongUrlDeduplicator.hash("https://example.com/path?q=2"));
+        assertNotEquals(hash, LongUrlDeduplicator.hash("https://example.com:8443/path?q=1"));
+        assertNotEquals(hash, LongUrlDeduplicator.hash("http://example.com/path?q=1"));
+    }
+
+    @Test
+    void activeUrlWithSameExpirationIsReused() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(1);
+        Url permanent = url("permanent", LONG_URL, null);
+        Url expiring = url("expiring", "https://EXAMPLE.com/path?q=1", expiresAt);
+        long hash = LongUrlDeduplicator.hash(LONG_URL);
+        when(urlStorage.findAllByUserIdAndLongUrlHash(1L, hash)).thenReturn(List.of(permanent, expiring));
+
+        assertSame(permanent, deduplicator.findExisting(1L, LONG_URL, hash, null).orElseThrow());
+        assertSame(expiring, deduplicator.findExisting(1L, LONG_URL, hash, expiresAt).orElseThrow());
+        assertTrue(deduplicator.findExisting(1L, LONG_URL, hash, expiresAt.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void expirationIsComparedAtDatabasePrecision() {
+        LocalDateTime requested = LocalDateTime.of(2030, 1, 1, 12, 0, 0, 123_456_789);
+        Url stored = url("stored", LONG_URL, requested.truncatedTo(ChronoUnit.MICROS));
+        long hash = LongUrlDeduplicator.hash(LONG_URL);
+        when(urlStorage.findAllByUserIdAndLongUrlHash(1L, hash)).thenReturn(List.of(stored));
+
+        assertSame(stored, deduplicator.findExisting(1L, LONG_URL, hash, requested).orElseThrow());
+    }
+
+    @Test
+    void urlsOfAllShardsAreSearched() {
+        long hash = LongUrlDeduplicator.hash(LONG_URL);
+        Url onOtherShard = url("other", LONG_URL, null);
+        when(urlStorage.findAllByUserIdAndLongUrlHash(1L, hash))
+                .thenAnswer(invocation -> ShardContext.current() == 1 ? List.of(onOtherShard) : List.of());
+
+        try (ShardQueryExecutor sharded = new ShardQueryExecutor(new ShardResolver(2))) {
+            LongUrlDeduplicator shardedDeduplicator = new LongUrlDeduplicator(urlStorage, sharded, true);
+
+            assertSame(onOtherShard, shardedDeduplicator.findExisting(1L, LONG_URL, hash, null).orElseThrow());
+        }
+    }
+
+    @Test
+    void expiredAndOtherUrlsAreNotReused() {
+        LocalDateTime expiredAt = LocalDateTime.now().minusDays(1);
+        long hash = LongUrlDeduplicator.hash(LONG_URL);
+        // Storages without an index on the hash return all URLs of the user
+        when(urlStorage.findAllByUserIdAndLongUrlHash(1L, hash)).thenReturn(List.of(
+                url("expired", LONG_URL, expiredAt),
+                url("other", "https://example.com/other", null)));
+
+        assertTrue(deduplicator.findExisting(1L, LONG_URL, hash, expiredAt).isEmpty());
+        assertTrue(deduplicator.findExisting(1L, LONG_URL, hash, null).isEmpty());
+    }
+
+    @Test
+    void nothingIsLookedUpWhenDisabled() {
+        LongUrlDeduplicator disabled = new LongUrlDeduplicator(urlStorage, shardQueryExecutor, false);
+
+        assertTrue(disabled.findExisting(1L, LONG_URL, LongUrlDeduplicator.hash(LONG_URL), null).isEmpty());
+        verifyNoInteractions(urlStorage);
+    }
+
+    private static Url url(String shortUrlCode, String longUrl, LocalDateTime expiresAt) {
+        return Url.builder()
+                .shortUrlCode(shortUrlCode)
+                .longUrl(longUrl)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
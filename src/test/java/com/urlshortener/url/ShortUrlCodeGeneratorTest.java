@@ -41,4 +41,20 @@ class ShortUrlCodeGeneratorTest {
         String code2 = generator.generateShortUrlCode();
         assertNotEquals(code1, code2);
     }
+
+    @Test
+    void raiseMinLength_shouldGenerateLongerCodes() {
+        generator.raiseMinLength(10);
+
+        String result = generator.generateShortUrlCode();
+        assertTrue(result.length() >= 10 && result.length() <= 12);
+    }
+
+    @Test
+    void raiseMinLength_shouldNotLowerMinLength() {
+        generator.raiseMinLength(9);
+
+        assertEquals(9, generator.raiseMinLength(7));
+        assertEquals(9, generator.getMinLength());
+    }
 }
@@ -1,11 +1,14 @@
 package com.urlshortener.url;
 
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
 import com.urlshortener.error.exception.ResourceNotFoundException;
 import com.urlshortener.security.provider.SecurityContextProvider;
 import com.urlshortener.url.dto.statistics.StatsListUrlResponse;
 import com.urlshortener.url.dto.statistics.StatsUrlDto;
 import com.urlshortener.url.dto.statistics.StatsVisitsUrlResponse;
 import com.urlshortener.url.service.StatsService;
+import com.urlshortener.url.storage.UrlStorage;
 import com.urlshortener.user.User;
 import com.urlshortener.util.MessageProvider;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
@@ -27,7 +31,7 @@ import static org.mockito.Mockito.when;
 class StatsServiceTest {
 
     @Mock
-    private UrlRepository urlRepository;
+    private UrlStorage urlStorage;
 
     @Mock
     private SecurityContextProvider contextProvider;
@@ -35,6 +39,9 @@ class StatsServiceTest {
     @Mock
     private UrlMapper urlMapper;
 
+    @Spy
+    private ShardQueryExecutor shardQueryExecutor = new ShardQueryExecutor(new ShardResolver(1));
+
     @InjectMocks
     private StatsService statsService;
 
@@ -82,7 +89,7 @@ class StatsServiceTest {
     void getAllUrlsByUser_shouldReturnSuccessResponse_withAllUrls() {
         List<Url> urls = List.of(activeUrl, expiredUrl);
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findAllUrlsByUserId(user.getId())).thenReturn(urls);
+        when(urlStorage.findAllByUserId(user.getId())).thenReturn(urls);
         when(urlMapper.mapToStatsUrlDto(activeUrl, true)).thenReturn(activeStatsUrlDto);
         when(urlMapper.mapToStatsUrlDto(expiredUrl, false)).thenReturn(expiredStatsUrlDto);
 
@@ -98,7 +105,7 @@ class StatsServiceTest {
     @Test
     void getAllUrlsByUser_shouldReturnEmptyResponse_whenNoUrlsExist() {
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findAllUrlsByUserId(user.getId())).thenReturn(Collections.emptyList());
+        when(urlStorage.findAllByUserId(user.getId())).thenReturn(Collections.emptyList());
 
         StatsListUrlResponse response = statsService.getAllUrls();
 
@@ -111,7 +118,7 @@ class StatsServiceTest {
     void getActiveUrlsByUser_shouldReturnSuccessResponse_withActiveUrlsOnly() {
         List<Url> urls = List.of(activeUrl, expiredUrl);
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findAllUrlsByUserId(user.getId())).thenReturn(urls);
+        when(urlStorage.findAllByUserId(user.getId())).thenReturn(urls);
         when(urlMapper.mapToStatsUrlDto(activeUrl, true)).thenReturn(activeStatsUrlDto);
 
         StatsListUrlResponse response = statsService.getActiveUrls();
@@ -127,7 +134,7 @@ class StatsServiceTest {
     void getActiveUrlsByUser_shouldReturnEmptyResponse_whenNoActiveUrlsExist() {
         List<Url> urls = List.of(expiredUrl);
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findAllUrlsByUserId(user.getId())).thenReturn(urls);
+        when(urlStorage.findAllByUserId(user.getId())).thenReturn(urls);
 
         StatsListUrlResponse response = statsService.getActiveUrls();
 
@@ -139,7 +146,7 @@ class StatsServiceTest {
     @Test
     void getVisitsByShortUrl_shouldReturnSuccessResponse_whenUrlExistsAndUserIsOwner() {
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findUrlByShortUrlCode("abc123")).thenReturn(Optional.of(activeUrl));
+        when(urlStorage.findByShortUrlCode("abc123")).thenReturn(Optional.of(activeUrl));
 
         StatsVisitsUrlResponse response = statsService.getVisitsByShortUrl("abc123");
 
@@ -150,7 +157,7 @@ class StatsServiceTest {
     @Test
     void getVisitsByShortUrl_shouldThrowResourceNotFound_whenUrlNotFound() {
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.empty());
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.empty());
 
         ResourceNotFoundException exception = assertThrows(
                 ResourceNotFoundException.class,
@@ -162,7 +169,7 @@ class StatsServiceTest {
     void getVisitsByShortUrl_shouldThrowResourceNotFound_whenUserIsNotOwner() {
         User anotherUser = User.builder().id(2L).login("anotherUser").build();
         when(contextProvider.getAuthenticatedUser()).thenReturn(anotherUser);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(activeUrl));
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(activeUrl));
 
         ResourceNotFoundException exception = assertThrows(
                 ResourceNotFoundException.class,
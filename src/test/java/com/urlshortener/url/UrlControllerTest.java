@@ -1,9 +1,12 @@
 package com.urlshortener.url;
 
+import com.urlshortener.url.cache.ResolvedUrl;
 import com.urlshortener.url.controller.UrlController;
 import com.urlshortener.url.dto.operations.GetShortUrlRequest;
 import com.urlshortener.url.dto.operations.UpdateUrlRequest;
 import com.urlshortener.url.dto.operations.UrlResponse;
+import com.urlshortener.url.idempotency.IdempotencyService;
+import com.urlshortener.url.idempotency.IdempotencyService.IdempotentResponse;
 import com.urlshortener.url.service.UrlService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +18,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +28,9 @@ class UrlControllerTest {
     @Mock
     private UrlService urlService;
 
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @InjectMocks
     private UrlController urlController;
 
@@ -38,7 +46,7 @@ class UrlControllerTest {
         GetShortUrlRequest request = new GetShortUrlRequest();
         UrlResponse response = new UrlResponse();
         when(urlService.getShortUrlCodeFromLongUrl(request)).thenReturn(response);
-        ResponseEntity<UrlResponse> result = urlController.shortFromLong(request);
+        ResponseEntity<UrlResponse> result = urlController.shortFromLong(request, null);
         assertEquals(HttpStatus.CREATED, result.getStatusCode());
         assertEquals(response, result.getBody());
         verify(urlService).getShortUrlCodeFromLongUrl(request);
@@ -49,17 +57,31 @@ class UrlControllerTest {
         GetShortUrlRequest request = new GetShortUrlRequest();
         when(urlService.getShortUrlCodeFromLongUrl(request))
                 .thenThrow(new IllegalArgumentException("Invalid URL"));
-        assertThrows(IllegalArgumentException.class, () -> urlController.shortFromLong(request));
+        assertThrows(IllegalArgumentException.class, () -> urlController.shortFromLong(request, null));
         verify(urlService).getShortUrlCodeFromLongUrl(request);
     }
 
     @Test
-    void longFromShort_shouldReturnOkAndResponseBody_withSuccessRequest() {
+    void shortFromLong_shouldReturnReplayedResponse_withIdempotencyKey() {
+        GetShortUrlRequest request = new GetShortUrlRequest();
         UrlResponse response = new UrlResponse();
-        when(urlService.getLongUrlFromShortUrl(shortUrlCode)).thenReturn(response);
-        ResponseEntity<UrlResponse> result = urlController.longFromShort(shortUrlCode);
-        assertEquals(HttpStatus.OK, result.getStatusCode());
+        when(idempotencyService.execute(eq("key"), eq(request), any()))
+                .thenReturn(new IdempotentResponse(response, true));
+        ResponseEntity<UrlResponse> result = urlController.shortFromLong(request, "key");
+        assertEquals(HttpStatus.CREATED, result.getStatusCode());
         assertEquals(response, result.getBody());
+        assertEquals("true", result.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verifyNoInteractions(urlService);
+    }
+
+    @Test
+    void longFromShort_shouldReturnOkAndResponseBody_withSuccessRequest() {
+        byte[] body = "{}".getBytes();
+        ResolvedUrl resolvedUrl = new ResolvedUrl(1L, shortUrlCode, "https://example.com", null, body, null);
+        when(urlService.getLongUrlFromShortUrl(shortUrlCode)).thenReturn(resolvedUrl);
+        ResponseEntity<byte[]> result = urlController.longFromShort(shortUrlCode);
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertSame(body, result.getBody());
         verify(urlService).getLongUrlFromShortUrl(shortUrlCode);
     }
 
@@ -50,6 +50,7 @@ class UrlRepositoryIntegrationTest {
         Url url = Url.builder()
                 .shortUrlCode(shortUrlCode)
                 .longUrl(longUrl)
+                .longUrlHash(LongUrlDeduplicator.hash(longUrl))
                 .user(user)
                 .build();
         urlRepository.save(url);
@@ -84,6 +85,16 @@ class UrlRepositoryIntegrationTest {
         assertEquals(longUrl, urls.getFirst().getLongUrl());
     }
 
+    @Test
+    void findAllUrlsByUserIdAndLongUrlHash_shouldReturnUrl_whenHashMatches() {
+        List<Url> urls = urlRepository.findAllUrlsByUserIdAndLongUrlHash(user.getId(), LongUrlDeduplicator.hash(longUrl));
+        assertEquals(1, urls.size());
+        assertEquals(shortUrlCode, urls.getFirst().getShortUrlCode());
+
+        assertTrue(urlRepository.findAllUrlsByUserIdAndLongUrlHash(user.getId(),
+                LongUrlDeduplicator.hash("https://example.com/")).isEmpty());
+    }
+
     @Test
     void existsUrlByShortUrlCode_shouldReturnTrue_whenShortUrlCodeExists() {
         assertTrue(urlRepository.existsUrlByShortUrlCode(shortUrlCode));
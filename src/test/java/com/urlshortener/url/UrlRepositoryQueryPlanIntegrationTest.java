@@ -0,0 +1,182 @@
+package com.urlshortener.url;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the execution plans of the {@link UrlRepository} queries on a realistically sized table.
+ * <p>
+ * The SQL generated by Hibernate is captured while the repository method runs and then explained
+ * with the same parameters, so a changed query or a dropped index fails the build with the plan in the message.
+ * </p>
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.urlshortener.url.UrlRepositoryQueryPlanIntegrationTest$CapturingStatementInspector")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UrlRepositoryQueryPlanIntegrationTest {
+
+    private static final int USERS = 1_000;
+    private static final int URLS = 200_000;
+    private static final String URLS_TABLE = "urls";
+    private static final String URL_VISITS_TABLE = "url_visits";
+    private static final Set<String> INDEX_ACCESS = Set.of("Index Scan", "Index Only Scan", "Bitmap Heap Scan");
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    void seed() {
+        clearDb();
+        jdbcTemplate.update("""
+                INSERT INTO users (login, email, password, role)
+                SELECT 'login' || g, 'user' || g || '@email.com', 'passWord123', 'ROLE_USER'
+                FROM generate_series(1, ?) g
+                """, USERS);
+        jdbcTemplate.update("""
+                INSERT INTO urls (short_url_code, long_url, created_at, expires_at, user_id)
+                SELECT md5(g::text), 'https://www.example.com/' || g,
+                       now() - g * interval '1 minute',
+                       CASE WHEN g % 3 = 0 THEN now() + (g % 30 - 15) * interval '1 day' END,
+                       (SELECT min(id) FROM users) + g % ?
+                FROM generate_series(1, ?) g
+                """, USERS, URLS);
+        jdbcTemplate.update("INSERT INTO url_visits (url_id, visits) SELECT id, id % 100 FROM urls");
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE urls");
+        jdbcTemplate.execute("ANALYZE url_visits");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        clearDb();
+    }
+
+    @BeforeEach
+    void clearCapturedStatements() {
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void findUrlByShortUrlCode_shouldUseIndex() {
+        String shortUrlCode = existingShortUrlCode();
+
+        urlRepository.findUrlByShortUrlCode(shortUrlCode);
+
+        assertAccessedByIndex(URLS_TABLE, capturedStatement(URLS_TABLE), shortUrlCode);
+    }
+
+    @Test
+    void existsUrlByShortUrlCode_shouldUseIndex() {
+        String shortUrlCode = existingShortUrlCode();
+
+        urlRepository.existsUrlByShortUrlCode(shortUrlCode);
+
+        assertAccessedByIndex(URLS_TABLE, capturedStatement(URLS_TABLE), shortUrlCode, 1);
+    }
+
+    @Test
+    void findAllUrlsByUserId_shouldUseIndex() {
+        Long userId = existingUserId();
+
+        urlRepository.findAllUrlsByUserId(userId);
+
+        assertAccessedByIndex(URLS_TABLE, capturedStatement(URLS_TABLE), userId);
+    }
+
+    @Test
+    void incrementVisits_shouldUseIndex() {
+        Long id = jdbcTemplate.queryForObject("SELECT max(id) FROM urls", Long.class);
+
+        urlRepository.incrementVisits(id);
+
+        assertAccessedByIndex(URL_VISITS_TABLE, capturedStatement(URL_VISITS_TABLE), id);
+    }
+
+    private String existingShortUrlCode() {
+        return jdbcTemplate.queryForObject("SELECT md5('4242')", String.class);
+    }
+
+    private Long existingUserId() {
+        return jdbcTemplate.queryForObject("SELECT min(id) FROM users", Long.class);
+    }
+
+    private String capturedStatement(String table) {
+        return CapturingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.matches("(?s).*\\b" + table + "\\b.*"))
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new AssertionError("No statement on the " + table + " table was executed"));
+    }
+
+    private void assertAccessedByIndex(String table, String sql, Object... parameters) {
+        assertEquals(parameters.length, sql.chars().filter(c -> c == '?').count(),
+                () -> "Unexpected number of parameters in: " + sql);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, parameters);
+        List<JsonNode> scans = new ArrayList<>();
+        collectScans(table, readPlan(plan), scans);
+
+        assertFalse(scans.isEmpty(), () -> "The " + table + " table is not accessed in plan: " + plan);
+        for (JsonNode scan : scans) {
+            assertTrue(INDEX_ACCESS.contains(scan.path("Node Type").asText()),
+                    () -> "The " + table + " table is not accessed by an index for: " + sql + "\n" + plan);
+        }
+    }
+
+    private JsonNode readPlan(String plan) {
+        try {
+            return objectMapper.readTree(plan).get(0).get("Plan");
+        } catch (Exception e) {
+            throw new AssertionError("Unable to read plan: " + plan, e);
+        }
+    }
+
+    private void collectScans(String table, JsonNode node, List<JsonNode> scans) {
+        if (table.equals(node.path("Relation Name").asText())
+                && !node.path("Node Type").asText().equals("ModifyTable")) {
+            scans.add(node);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectScans(table, child, scans);
+        }
+    }
+
+    private void clearDb() {
+        jdbcTemplate.update("DELETE FROM url_visits");
+        jdbcTemplate.update("DELETE FROM urls");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    /**
+     * Statement inspector recording the SQL generated by Hibernate.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
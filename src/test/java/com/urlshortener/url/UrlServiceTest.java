@@ -1,21 +1,30 @@
 package com.urlshortener.url;
 
+import com.urlshortener.config.datasource.ReadYourWritesTracker;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.config.sharding.UserShardReplicator;
 import com.urlshortener.error.exception.ResourceNotFoundException;
 import com.urlshortener.error.exception.ValidationException;
 import com.urlshortener.security.provider.SecurityContextProvider;
+import com.urlshortener.url.cache.ResolveCache;
+import com.urlshortener.url.cache.ResolvedUrl;
 import com.urlshortener.url.dto.operations.GetShortUrlRequest;
 import com.urlshortener.url.dto.operations.UpdateUrlRequest;
 import com.urlshortener.url.dto.operations.UrlDto;
 import com.urlshortener.url.dto.operations.UrlResponse;
+import com.urlshortener.url.service.ResolveStorage;
 import com.urlshortener.url.service.UrlService;
+import com.urlshortener.url.storage.UrlStorage;
 import com.urlshortener.user.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -28,7 +37,7 @@ import static org.mockito.Mockito.*;
 class UrlServiceTest {
 
     @Mock
-    private UrlRepository urlRepository;
+    private UrlStorage urlStorage;
 
     @Mock
     private SecurityContextProvider contextProvider;
@@ -39,9 +48,30 @@ class UrlServiceTest {
     @Mock
     private ShortUrlCodeGenerator urlGenerator;
 
+    @Mock
+    private LongUrlDeduplicator urlDeduplicator;
+
     @Mock
     private UrlMapper urlMapper;
 
+    @Mock
+    private ResolveCache resolveCache;
+
+    @Mock
+    private UrlMetrics urlMetrics;
+
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Spy
+    private ShardResolver shardResolver = new ShardResolver(1);
+
+    @Mock
+    private UserShardReplicator userShardReplicator;
+
+    @Mock
+    private ResolveStorage resolveStorage;
+
     @InjectMocks
     private UrlService urlService;
 
@@ -69,14 +99,43 @@ class UrlServiceTest {
         GetShortUrlRequest request = new GetShortUrlRequest(longUrl, null);
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
         when(urlGenerator.generateShortUrlCode()).thenReturn(shortUrlCode);
-        when(urlRepository.existsUrlByShortUrlCode(shortUrlCode)).thenReturn(false);
+        when(urlStorage.existsByShortUrlCode(shortUrlCode)).thenReturn(false);
         when(urlMapper.mapToUrlDto(any(Url.class))).thenReturn(urlDto);
 
         UrlResponse response = urlService.getShortUrlCodeFromLongUrl(request);
 
         assertNotNull(response);
         assertEquals(urlDto, response.getUrlDto());
-        verify(urlRepository, times(1)).save(any(Url.class));
+        InOrder inOrder = inOrder(userShardReplicator, urlStorage);
+        inOrder.verify(userShardReplicator).ensureOnCurrentShard(user);
+        inOrder.verify(urlStorage, times(1)).create(any(Url.class));
+    }
+
+    @Test
+    void getShortUrlCodeFromLongUrl_shouldStoreLongUrlHash_whenRequestIsValid() {
+        GetShortUrlRequest request = new GetShortUrlRequest(longUrl, null);
+        when(contextProvider.getAuthenticatedUser()).thenReturn(user);
+        when(urlGenerator.generateShortUrlCode()).thenReturn(shortUrlCode);
+
+        urlService.getShortUrlCodeFromLongUrl(request);
+
+        verify(urlStorage).create(argThat(created -> created.getLongUrlHash() == LongUrlDeduplicator.hash(longUrl)));
+    }
+
+    @Test
+    void getShortUrlCodeFromLongUrl_shouldReturnExistingUrl_whenDuplicateExists() {
+        GetShortUrlRequest request = new GetShortUrlRequest(longUrl, null);
+        when(contextProvider.getAuthenticatedUser()).thenReturn(user);
+        when(urlDeduplicator.findExisting(user.getId(), longUrl, LongUrlDeduplicator.hash(longUrl), null))
+                .thenReturn(Optional.of(url));
+        when(urlMapper.mapToUrlDto(url)).thenReturn(urlDto);
+
+        UrlResponse response = urlService.getShortUrlCodeFromLongUrl(request);
+
+        assertEquals(urlDto, response.getUrlDto());
+        verify(urlStorage, never()).create(any(Url.class));
+        verifyNoInteractions(urlGenerator);
+        verify(urlMetrics).incrementDeduplicated();
     }
 
     @Test
@@ -91,9 +150,74 @@ class UrlServiceTest {
         assertEquals(URL_INCORRECT_EXPIRES_AT_MESSAGE, exception.getMessage());
     }
 
+    @Test
+    void getLongUrlFromShortUrl_shouldLoadAndCacheUrl_whenUrlIsNotCached() {
+        url.setId(1L);
+        ResolvedUrl resolvedUrl = new ResolvedUrl(1L, shortUrlCode, longUrl, null, new byte[0], null);
+        when(resolveStorage.findAndRecordVisit(shortUrlCode)).thenReturn(Optional.of(url));
+        when(resolveCache.put(url)).thenReturn(resolvedUrl);
+
+        ResolvedUrl result = urlService.getLongUrlFromShortUrl(shortUrlCode);
+
+        assertEquals(resolvedUrl, result);
+            }
+
+    @Test
+    void getLongUrlFromShortUrl_shouldReturnCachedUrl_whenUrlIsCached() {
+        ResolvedUrl resolvedUrl = new ResolvedUrl(1L, shortUrlCode, longUrl, null, new byte[0], null);
+        when(resolveCache.get(shortUrlCode)).thenReturn(Optional.of(resolvedUrl));
+        when(resolveStorage.recordVisit(1L)).thenReturn(ResolveStorage.Visit.COUNTED);
+
+        ResolvedUrl result = urlService.getLongUrlFromShortUrl(shortUrlCode);
+
+        assertEquals(resolvedUrl, result);
+        verify(resolveStorage, never()).findAndRecordVisit(anyString());
+    }
+
+    @Test
+    void getLongUrlFromShortUrl_shouldServeDegradedCachedUrl_whenStorageIsUnavailable() {
+        ResolvedUrl resolvedUrl = new ResolvedUrl(1L, shortUrlCode, longUrl, null, new byte[0], new HttpHeaders());
+        when(resolveCache.get(shortUrlCode)).thenReturn(Optional.of(resolvedUrl));
+        when(resolveCache.claimRevalidation(shortUrlCode)).thenReturn(true);
+        when(resolveStorage.recordVisit(1L)).thenReturn(ResolveStorage.Visit.BUFFERED);
+
+        ResolvedUrl result = urlService.getLongUrlFromShortUrl(shortUrlCode);
+
+        assertEquals(longUrl, result.longUrl());
+        assertEquals("cache", result.headers().getFirst(ResolvedUrl.DEGRADED_HEADER));
+        verify(resolveStorage, times(1)).revalidate(shortUrlCode);
+        verify(resolveStorage, never()).findAndRecordVisit(anyString());
+    }
+
+    @Test
+    void getLongUrlFromShortUrl_shouldLoadUrl_whenCachedUrlWasDeleted() {
+        ResolvedUrl resolvedUrl = new ResolvedUrl(1L, shortUrlCode, longUrl, null, new byte[0], null);
+        when(resolveCache.get(shortUrlCode)).thenReturn(Optional.of(resolvedUrl));
+        when(resolveStorage.recordVisit(1L)).thenReturn(ResolveStorage.Visit.MISSING);
+        when(resolveStorage.findAndRecordVisit(shortUrlCode)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> urlService.getLongUrlFromShortUrl(shortUrlCode));
+
+        verify(resolveCache, times(1)).evict(shortUrlCode);
+        verify(resolveStorage, never()).revalidate(anyString());
+    }
+
+    @Test
+    void getLongUrlFromShortUrl_shouldThrowValidationException_whenCachedUrlExpired() {
+        ResolvedUrl resolvedUrl = new ResolvedUrl(
+                1L, shortUrlCode, longUrl, LocalDateTime.now().minusDays(1), new byte[0], null);
+        when(resolveCache.get(shortUrlCode)).thenReturn(Optional.of(resolvedUrl));
+
+        ValidationException exception = assertThrows(
+                ValidationException.class,
+                () -> urlService.getLongUrlFromShortUrl(shortUrlCode));
+        assertEquals(URL_EXPIRED_MESSAGE, exception.getMessage());
+        verify(resolveCache, times(1)).evict(shortUrlCode);
+    }
+
     @Test
     void getLongUrlFromShortUrl_shouldThrowResourceNotFound_whenUrlNotFound() {
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.empty());
+        when(resolveStorage.findAndRecordVisit(shortUrlCode)).thenReturn(Optional.empty());
 
         ResourceNotFoundException exception = assertThrows(
                 ResourceNotFoundException.class,
@@ -101,12 +225,24 @@ class UrlServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("URL not found"));
+        verify(urlMetrics, times(1)).incrementNotFoundHits();
+        verify(resolveCache, times(1)).putNotFound(shortUrlCode);
+    }
+
+    @Test
+    void getLongUrlFromShortUrl_shouldThrowResourceNotFound_whenCachedAsNotFound() {
+        when(resolveCache.get(shortUrlCode)).thenReturn(Optional.of(ResolvedUrl.notFound(shortUrlCode)));
+
+        assertThrows(ResourceNotFoundException.class, () -> urlService.getLongUrlFromShortUrl(shortUrlCode));
+
+        verify(urlMetrics, times(1)).incrementNotFoundHits();
+        verify(resolveStorage, never()).findAndRecordVisit(anyString());
     }
 
     @Test
     void getLongUrlFromShortUrl_shouldThrowValidationException_whenUrlExpired() {
         url.setExpiresAt(LocalDateTime.now().minusDays(1));
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
+        when(resolveStorage.findAndRecordVisit(shortUrlCode)).thenReturn(Optional.of(url));
 
         ValidationException exception = assertThrows(
                 ValidationException.class,
@@ -126,7 +262,7 @@ class UrlServiceTest {
     void updateUrl_shouldReturnSuccessResponse_whenUrlExistsAndUserIsOwner() {
         UpdateUrlRequest request = new UpdateUrlRequest(shortUrlCode, LocalDateTime.now().plusDays(1));
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
         when(urlGenerator.generateShortUrlCode()).thenReturn("newCode");
         when(urlMapper.mapToUrlDto(any(Url.class))).thenReturn(urlDto);
 
@@ -135,7 +271,7 @@ class UrlServiceTest {
         assertNotNull(response);
         assertEquals(urlDto, response.getUrlDto());
         assertEquals("newCode", url.getShortUrlCode());
-        verify(urlRepository, times(1)).save(url);
+        verify(urlStorage, times(1)).update(url);
     }
 
     @Test
@@ -143,7 +279,7 @@ class UrlServiceTest {
         UpdateUrlRequest request = new UpdateUrlRequest(shortUrlCode, null);
         User anotherUser = User.builder().id(2L).build();
         when(contextProvider.getAuthenticatedUser()).thenReturn(anotherUser);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
 
         ResourceNotFoundException exception = assertThrows(
                 ResourceNotFoundException.class,
@@ -155,7 +291,7 @@ class UrlServiceTest {
     void updateUrl_shouldThrowValidationException_whenExpiresAtIsInPast() {
         UpdateUrlRequest request = new UpdateUrlRequest(shortUrlCode, LocalDateTime.now().minusDays(1));
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
 
         ValidationException exception = assertThrows(
                 ValidationException.class,
@@ -166,18 +302,19 @@ class UrlServiceTest {
     @Test
     void deleteUrl_shouldDeleteUrl_whenUrlExistsAndUserIsOwner() {
         when(contextProvider.getAuthenticatedUser()).thenReturn(user);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
 
         urlService.deleteUrl(shortUrlCode);
 
-        verify(urlRepository, times(1)).delete(url);
+        verify(urlStorage, times(1)).delete(url);
+        verify(resolveCache, times(1)).evictOnCommit(shortUrlCode);
     }
 
     @Test
     void deleteUrl_shouldThrowResourceNotFound_whenUrlNotFoundOrUserNotOwner() {
         User anotherUser = User.builder().id(2L).build();
         when(contextProvider.getAuthenticatedUser()).thenReturn(anotherUser);
-        when(urlRepository.findUrlByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
+        when(urlStorage.findByShortUrlCode(shortUrlCode)).thenReturn(Optional.of(url));
 
         ResourceNotFoundException exception = assertThrows(
                 ResourceNotFoundException.class,
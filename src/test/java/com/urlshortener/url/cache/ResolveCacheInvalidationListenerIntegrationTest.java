@@ -0,0 +1,109 @@
+package com.urlshortener.url.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs without a test transaction, because notifications are only delivered on commit.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResolveCacheInvalidationListenerIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties properties;
+
+    private final ResolveCache resolveCache = mock(ResolveCache.class);
+    private ResolveCacheInvalidationListener listener;
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        listener = new ResolveCacheInvalidationListener(resolveCache,
+                List.of(new ResolveCacheInvalidationListener.Endpoint(properties.determineUrl(),
+                        properties.determineUsername(), properties.determinePassword())),
+                Duration.ofMillis(50), new SimpleMeterRegistry());
+        listener.start();
+        verify(resolveCache, timeout(10_000)).clear();
+
+        userId = jdbcTemplate.queryForObject("""
+                INSERT INTO users (login, email, password, role)
+                VALUES ('listener', 'listener@email.com', 'passWord123', 'ROLE_USER') RETURNING id""", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.stop();
+        jdbcTemplate.update("DELETE FROM urls WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Test
+    void changedCodesAreEvicted() {
+        insertUrl("renamed");
+        insertUrl("deleted");
+
+        jdbcTemplate.update("UPDATE urls SET short_url_code = 'newcode' WHERE short_url_code = 'renamed'");
+        jdbcTemplate.update("DELETE FROM urls WHERE short_url_code = 'deleted'");
+
+        verify(resolveCache, timeout(5_000)).evictAll(argThat(codes -> codes.contains("renamed")));
+        verify(resolveCache, timeout(5_000)).evictAll(argThat(codes -> codes.contains("deleted")));
+    }
+
+    @Test
+    void insertedCodesAreNotNotified() throws InterruptedException {
+        insertUrl("inserted");
+        Thread.sleep(500);
+
+        verify(resolveCache, never()).evictAll(argThat(codes -> codes.contains("inserted")));
+    }
+
+    @Test
+    void unrelatedUpdatesAreNotNotified() throws InterruptedException {
+        long id = insertUrl("unchanged");
+
+        jdbcTemplate.update("UPDATE url_visits SET visits = visits + 1 WHERE url_id = ?", id);
+        jdbcTemplate.update("UPDATE urls SET long_url = 'https://example.com/other' WHERE id = ?", id);
+        Thread.sleep(500);
+
+        verify(resolveCache, never()).evictAll(argThat(codes -> codes.contains("unchanged")));
+    }
+
+    @Test
+    void burstIsEvictedInOneBatch() {
+        for (int i = 0; i < 20; i++) {
+            insertUrl("burst" + i);
+        }
+
+        jdbcTemplate.update("DELETE FROM urls WHERE short_url_code LIKE 'burst%'");
+
+        verify(resolveCache, timeout(5_000)).evictAll(argThat(codes -> codes.size() == 20
+                && codes.containsAll(Set.of("burst0", "burst19"))));
+    }
+
+    private long insertUrl(String shortUrlCode) {
+        Long id = jdbcTemplate.queryForObject("""
+                INSERT INTO urls (short_url_code, long_url, created_at, user_id)
+                VALUES (?, 'https://example.com', now(), ?) RETURNING id""", Long.class, shortUrlCode, userId);
+        jdbcTemplate.update("INSERT INTO url_visits (url_id) VALUES (?)", id);
+        return id;
+    }
+}
@@ -0,0 +1,178 @@
+package com.urlshortener.url.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.url.Url;
+import com.urlshortener.url.UrlMapper;
+import com.urlshortener.url.cache.remote.RemoteEntry;
+import com.urlshortener.url.cache.remote.RemoteResolveCache;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ResolveCacheTest {
+
+    private final RemoteResolveCache remote = mock(RemoteResolveCache.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ResolveCache resolveCache;
+
+    @BeforeEach
+    void setUp() {
+        resolveCache = new ResolveCache(new UrlMapper(new ObjectMapper().findAndRegisterModules()), remote,
+                new CircuitBreaker(2, Duration.ofMinutes(1)), registry,
+                100, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofHours(1));
+    }
+
+    @Test
+    void remoteHitIsKeptInProcess() throws IOException {
+        when(remote.get("abc")).thenReturn(Optional.of(new RemoteEntry(7L, "https://example.com", null)));
+
+        ResolvedUrl first = resolveCache.get("abc").orElseThrow();
+        ResolvedUrl second = resolveCache.get("abc").orElseThrow();
+
+        assertEquals(7L, first.id());
+        assertEquals("https://example.com", first.longUrl());
+        assertTrue(first.body().length > 0);
+        assertSame(first, second);
+        verify(remote, times(1)).get("abc");
+        assertEquals(1, registry.get("urlshortener.url.cache.remote.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void putWritesThroughWithTtlBoundedByExpiration() throws IOException {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(5);
+
+        resolveCache.put(url(3L, "abc", expiresAt));
+
+        verify(remote).put(eq("abc"), eq(new RemoteEntry(3L, "https://example.com", expiresAt)),
+                argThat(ttl -> ttl.compareTo(Duration.ofMinutes(5)) <= 0 && ttl.compareTo(Duration.ofMinutes(4)) > 0));
+        assertTrue(resolveCache.get("abc").isPresent());
+    }
+
+    @Test
+    void expiredUrlIsNeitherWrittenRemotelyNorKept() throws IOException {
+        resolveCache.put(url(3L, "abc", LocalDateTime.now().minusMinutes(1)));
+
+        verify(remote, never()).put(anyString(), any(), any());
+        assertTrue(resolveCache.get("abc").isEmpty());
+    }
+
+    @Test
+    void notFoundIsCachedInBothTiers() throws IOException {
+        resolveCache.putNotFound("abc");
+
+        assertTrue(resolveCache.get("abc").orElseThrow().isNotFound());
+        verify(remote).put("abc", RemoteEntry.notFound(), Duration.ofSeconds(30));
+        verify(remote, never()).get(anyString());
+    }
+
+    @Test
+    void evictionRemovesBothTiers() throws IOException {
+        resolveCache.put(url(3L, "abc", null));
+        resolveCache.put(url(4L, "def", null));
+
+        resolveCache.evict("abc");
+        resolveCache.evictAll(List.of("def"));
+
+        verify(remote).delete("abc");
+        verify(remote).delete("def");
+        assertTrue(resolveCache.get("abc").isEmpty());
+        assertTrue(resolveCache.get("def").isEmpty());
+    }
+
+    @Test
+    void entryCachedBeforeCommitIsEvictedAfterCommit() throws IOException {
+        resolveCache.put(url(3L, "abc", null));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            resolveCache.evictOnCommit("abc");
+            assertTrue(resolveCache.get("abc").isEmpty());
+
+            // A concurrent resolve still reads the old row before the commit
+            resolveCache.put(url(3L, "abc", null));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(resolveCache.get("abc").isEmpty());
+        verify(remote, times(2)).delete("abc");
+    }
+
+    @Test
+    void remoteIsSkippedAfterRepeatedFailures() throws IOException {
+        when(remote.get(anyString())).thenThrow(new IOException("Connection refused"));
+
+        assertTrue(resolveCache.get("a").isEmpty());
+        assertTrue(resolveCache.get("b").isEmpty());
+        assertTrue(resolveCache.get("c").isEmpty());
+        resolveCache.put(url(3L, "d", null));
+
+        verify(remote, times(2)).get(anyString());
+        verify(remote, never()).put(anyString(), any(), any());
+        assertTrue(resolveCache.get("d").isPresent());
+        assertEquals(1, registry.get("urlshortener.url.cache.remote.requests").tag("result", "skipped").counter().count());
+        assertEquals(1, registry.get("urlshortener.url.cache.remote.circuit.open").gauge().value());
+    }
+
+    @Test
+    void staleEntryIsServedAndClaimedOnce() {
+        ResolveCache stale = new ResolveCache(new UrlMapper(new ObjectMapper().findAndRegisterModules()), null,
+                new CircuitBreaker(2, Duration.ofMinutes(1)), new SimpleMeterRegistry(),
+                100, Duration.ZERO, Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofHours(1));
+        stale.put(url(3L, "abc", null));
+
+        assertEquals(3L, stale.get("abc").orElseThrow().id());
+        assertTrue(stale.claimRevalidation("abc"));
+        assertFalse(stale.claimRevalidation("abc"));
+
+        stale.releaseRevalidation("abc");
+        assertTrue(stale.claimRevalidation("abc"));
+
+        stale.put(url(3L, "abc", null));
+        assertTrue(stale.claimRevalidation("abc"));
+        assertFalse(stale.claimRevalidation("missing"));
+    }
+
+    @Test
+    void freshEntryIsNotClaimed() {
+        resolveCache.put(url(3L, "abc", null));
+
+        assertFalse(resolveCache.claimRevalidation("abc"));
+    }
+
+    @Test
+    void worksWithoutRemoteTier() {
+        ResolveCache local = new ResolveCache(new UrlMapper(new ObjectMapper().findAndRegisterModules()), null,
+                new CircuitBreaker(2, Duration.ofMinutes(1)), new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofHours(1));
+
+        local.put(url(3L, "abc", null));
+        local.putNotFound("def");
+
+        assertEquals(3L, local.get("abc").orElseThrow().id());
+        assertTrue(local.get("def").orElseThrow().isNotFound());
+        assertTrue(local.get("ghi").isEmpty());
+    }
+
+    private static Url url(Long id, String shortUrlCode, LocalDateTime expiresAt) {
+        return Url.builder()
+                .id(id)
+                .shortUrlCode(shortUrlCode)
+                .longUrl("https://example.com")
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.urlshortener.url.cache.remote;
+
+import com.urlshortener.util.RespStandInServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a {@link RespStandInServer}.
+ */
+class RespRemoteResolveCacheTest {
+
+    private RespStandInServer server;
+    private RespRemoteResolveCache remote;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new RespStandInServer();
+        remote = new RespRemoteResolveCache("localhost", server.port(), "", Duration.ofSeconds(1), 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        remote.close();
+        server.close();
+    }
+
+    @Test
+    void entriesRoundTrip() throws IOException {
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 1, 2, 3, 4, 5, 6000);
+        RemoteEntry entry = new RemoteEntry(42L, "https://example.com/path?a=1\tb", expiresAt);
+
+        remote.put("abc", entry, Duration.ofMinutes(1));
+        remote.put("def", new RemoteEntry(43L, "https://example.com", null), Duration.ofMinutes(1));
+        remote.put("ghi", RemoteEntry.notFound(), Duration.ofMinutes(1));
+
+        assertEquals(Optional.of(entry), remote.get("abc"));
+        assertEquals(Optional.of(new RemoteEntry(43L, "https://example.com", null)), remote.get("def"));
+        assertTrue(remote.get("ghi").orElseThrow().isNotFound());
+        assertTrue(remote.get("missing").isEmpty());
+        assertEquals(60_000L, server.ttl(RespRemoteResolveCache.KEY_PREFIX + "abc"));
+    }
+
+    @Test
+    void deleteRemovesEntry() throws IOException {
+        remote.put("abc", new RemoteEntry(42L, "https://example.com", null), Duration.ofMinutes(1));
+
+        remote.delete("abc");
+
+        assertTrue(remote.get("abc").isEmpty());
+    }
+
+    @Test
+    void connectionsAreReused() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            remote.get("abc");
+        }
+
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void errorReplyFails() {
+        server.failAll();
+
+        IOException exception = assertThrows(IOException.class, () -> remote.get("abc"));
+        assertTrue(exception.getMessage().contains("ERR"));
+    }
+
+    @Test
+    void unreachableServerFails() throws IOException {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            port = closed.getLocalPort();
+        }
+
+        try (RespRemoteResolveCache unreachable = new RespRemoteResolveCache(
+                "localhost", port, "", Duration.ofSeconds(1), 2)) {
+            assertThrows(IOException.class, () -> unreachable.get("abc"));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.urlshortener.url.idempotency;
+
+import com.urlshortener.url.idempotency.IdempotencyKeyStore.StoredKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(IdempotencyKeyStore.class)
+class IdempotencyKeyStoreIntegrationTest {
+
+    @Autowired
+    private IdempotencyKeyStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = jdbcTemplate.queryForObject("""
+                INSERT INTO users (login, email, password, role)
+                VALUES ('idempotent', 'idempotent@email.com', 'passWord123', 'ROLE_USER') RETURNING id""", Long.class);
+    }
+
+    @Test
+    void keyIsClaimedOnce() {
+        assertTrue(store.claim(userId, "key", "hash").isPresent());
+        assertTrue(store.claim(userId, "key", "other").isEmpty());
+
+        assertEquals(Optional.of(new StoredKey("hash", null)), store.find(userId, "key"));
+    }
+
+    @Test
+    void completedKeyIsNotReleased() {
+        LocalDateTime claimedAt = store.claim(userId, "key", "hash").orElseThrow();
+        assertTrue(store.complete(userId, "key", claimedAt, "{}"));
+
+        store.release(userId, "key", claimedAt);
+
+        assertEquals(Optional.of(new StoredKey("hash", "{}")), store.find(userId, "key"));
+    }
+
+    @Test
+    void failedRequestReleasesKey() {
+        LocalDateTime claimedAt = store.claim(userId, "key", "hash").orElseThrow();
+
+        store.release(userId, "key", claimedAt);
+
+        assertTrue(store.find(userId, "key").isEmpty());
+        assertTrue(store.claim(userId, "key", "hash").isPresent());
+    }
+
+    @Test
+    void claimTakenOverByRetryIsNotCompletedOrReleased() {
+        LocalDateTime lostClaim = store.claim(userId, "key", "hash").orElseThrow();
+        jdbcTemplate.update("""
+                UPDATE idempotency_keys SET created_at = created_at + INTERVAL '1 minute'
+                WHERE idempotency_key = 'key'""");
+
+        assertFalse(store.complete(userId, "key", lostClaim, "{}"));
+        store.release(userId, "key", lostClaim);
+
+        assertEquals(Optional.of(new StoredKey("hash", null)), store.find(userId, "key"));
+    }
+
+    @Test
+    void onlyAbandonedClaimsAreReleased() {
+        store.claim(userId, "recent", "hash");
+        store.claim(userId, "abandoned", "hash");
+        jdbcTemplate.update("""
+                UPDATE idempotency_keys SET created_at = created_at - INTERVAL '1 minute'
+                WHERE idempotency_key = 'abandoned'""");
+
+        assertFalse(store.releaseAbandoned(userId, "recent", Duration.ofSeconds(30)));
+        assertTrue(store.releaseAbandoned(userId, "abandoned", Duration.ofSeconds(30)));
+        assertTrue(store.find(userId, "abandoned").isEmpty());
+    }
+
+    @Test
+    void expiredKeysAreDeleted() {
+        store.claim(userId, "recent", "hash");
+        store.claim(userId, "expired", "hash");
+        jdbcTemplate.update("""
+                UPDATE idempotency_keys SET created_at = created_at - INTERVAL '2 days'
+                WHERE idempotency_key = 'expired'""");
+
+        assertEquals(1, store.deleteOlderThan(Duration.ofDays(1)));
+        assertTrue(store.find(userId, "recent").isPresent());
+    }
+}
@@ -0,0 +1,205 @@
+package com.urlshortener.url.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urlshortener.config.sharding.ShardContext;
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.error.exception.IdempotencyConflictException;
+import com.urlshortener.error.exception.ValidationException;
+import com.urlshortener.security.provider.SecurityContextProvider;
+import com.urlshortener.url.dto.operations.GetShortUrlRequest;
+import com.urlshortener.url.dto.operations.UrlDto;
+import com.urlshortener.url.dto.operations.UrlResponse;
+import com.urlshortener.url.idempotency.IdempotencyKeyStore.StoredKey;
+import com.urlshortener.url.idempotency.IdempotencyService.IdempotentResponse;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+    private static final long USER_ID = 7L;
+    private static final LocalDateTime CLAIMED_AT = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime RECLAIMED_AT = LocalDateTime.of(2026, 1, 1, 0, 1);
+
+    private final IdempotencyKeyStore store = mock(IdempotencyKeyStore.class);
+    private final SecurityContextProvider contextProvider = mock(SecurityContextProvider.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransactionStatus transaction = mock(TransactionStatus.class);
+    @SuppressWarnings("unchecked")
+    private final Supplier<UrlResponse> shortener = mock(Supplier.class);
+    private final GetShortUrlRequest request = new GetShortUrlRequest("https://example.com", null);
+    private final UrlResponse response = new UrlResponse(UrlDto.builder()
+            .shortUrlCode("abc123")
+            .longUrl("https://example.com")
+            .createdAt(LocalDateTime.of(2026, 1, 1, 0, 0))
+            .build());
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        when(contextProvider.getAuthenticatedUser()).thenReturn(User.builder().id(USER_ID).build());
+        when(shortener.get()).thenReturn(response);
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(store.complete(eq(USER_ID), eq("key"), any(), anyString())).thenReturn(true);
+        service = service(new ShardResolver(1));
+    }
+
+    private IdempotencyService service(ShardResolver shardResolver) {
+        return new IdempotencyService(store, contextProvider, objectMapper,
+                new TransactionTemplate(transactionManager), shardResolver, new ShardQueryExecutor(shardResolver),
+                registry, Duration.ofDays(1), Duration.ofSeconds(30), Duration.ofMinutes(10), 100);
+    }
+
+    @Test
+    void firstRequestIsExecutedAndStored() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.of(CLAIMED_AT));
+
+        IdempotentResponse result = service.execute("key", request, shortener);
+
+        assertSame(response, result.response());
+        assertFalse(result.replayed());
+        verify(shortener).get();
+        verify(store).complete(eq(USER_ID), eq("key"), eq(CLAIMED_AT), anyString());
+        verify(transactionManager).commit(transaction);
+    }
+
+    @Test
+    void retryIsAnsweredFromMemory() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.of(CLAIMED_AT));
+        service.execute("key", request, shortener);
+
+        IdempotentResponse result = service.execute("key", request, shortener);
+
+        assertSame(response, result.response());
+        assertTrue(result.replayed());
+        verify(shortener, times(1)).get();
+        verify(store, times(1)).claim(anyLong(), anyString(), anyString());
+        assertEquals(1, registry.get("urlshortener.url.shorten.replayed").counter().count());
+    }
+
+    @Test
+    void retryOnAnotherNodeIsAnsweredFromStoredResponse() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.of(CLAIMED_AT));
+        service.execute("key", request, shortener);
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+        verify(store).claim(eq(USER_ID), eq("key"), hash.capture());
+        verify(store).complete(eq(USER_ID), eq("key"), eq(CLAIMED_AT), stored.capture());
+
+        IdempotencyService otherNode = service(new ShardResolver(1));
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.empty());
+        when(store.find(USER_ID, "key")).thenReturn(Optional.of(new StoredKey(hash.getValue(), stored.getValue())));
+
+        IdempotentResponse result = otherNode.execute("key", request, shortener);
+
+        assertEquals(response, result.response());
+        assertTrue(result.replayed());
+        verify(shortener, times(1)).get();
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.of(CLAIMED_AT));
+        service.execute("key", request, shortener);
+
+        GetShortUrlRequest other = new GetShortUrlRequest("https://example.org", null);
+        assertThrows(ValidationException.class, () -> service.execute("key", other, shortener));
+        verify(shortener, times(1)).get();
+    }
+
+    @Test
+    void keyInProgressIsRejected() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenAnswer(invocation -> {
+            when(store.find(USER_ID, "key")).thenReturn(Optional.of(new StoredKey(invocation.getArgument(2), null)));
+            return Optional.empty();
+        });
+        when(store.releaseAbandoned(USER_ID, "key", Duration.ofSeconds(30))).thenReturn(false);
+
+        assertThrows(IdempotencyConflictException.class, () -> service.execute("key", request, shortener));
+        verify(shortener, never()).get();
+    }
+
+    @Test
+    void abandonedKeyIsClaimedAgain() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenAnswer(invocation -> {
+            when(store.find(USER_ID, "key")).thenReturn(Optional.of(new StoredKey(invocation.getArgument(2), null)));
+            return Optional.empty();
+        }).thenReturn(Optional.of(RECLAIMED_AT));
+        when(store.releaseAbandoned(USER_ID, "key", Duration.ofSeconds(30))).thenReturn(true);
+
+        IdempotentResponse result = service.execute("key", request, shortener);
+
+        assertFalse(result.replayed());
+        verify(shortener).get();
+        verify(store).complete(eq(USER_ID), eq("key"), eq(RECLAIMED_AT), anyString());
+    }
+
+    @Test
+    void requestThatLostItsClaimRollsBackItsUrl() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.of(CLAIMED_AT));
+        when(store.complete(eq(USER_ID), eq("key"), eq(CLAIMED_AT), anyString())).thenReturn(false);
+
+        assertThrows(IdempotencyConflictException.class, () -> service.execute("key", request, shortener));
+
+        verify(transactionManager).rollback(transaction);
+        verify(transactionManager, never()).commit(any());
+        verify(store).release(USER_ID, "key", CLAIMED_AT);
+    }
+
+    @Test
+    void keyIsStoredOnShardOfUrl() {
+        AtomicReference<Integer> claimShard = new AtomicReference<>();
+        AtomicReference<Integer> urlShard = new AtomicReference<>();
+        doAnswer(invocation -> {
+            claimShard.set(ShardContext.current());
+            return Optional.of(CLAIMED_AT);
+        }).when(store).claim(eq(USER_ID), eq("key"), anyString());
+        when(shortener.get()).thenAnswer(invocation -> {
+            urlShard.set(ShardContext.current());
+            return response;
+        });
+
+        service(new ShardResolver(4)).execute("key", request, shortener);
+
+        assertNotNull(claimShard.get());
+        assertEquals(claimShard.get(), urlShard.get());
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void failedRequestReleasesKey() {
+        when(store.claim(eq(USER_ID), eq("key"), anyString())).thenReturn(Optional.of(CLAIMED_AT));
+        when(shortener.get()).thenThrow(new ValidationException("Incorrect URL"));
+
+        assertThrows(ValidationException.class, () -> service.execute("key", request, shortener));
+
+        verify(store).release(USER_ID, "key", CLAIMED_AT);
+        verify(store, never()).complete(anyLong(), anyString(), any(), any());
+        verify(transactionManager).rollback(transaction);
+    }
+
+    @Test
+    void malformedKeyIsRejected() {
+        assertThrows(ValidationException.class, () -> service.execute(" ", request, shortener));
+        assertThrows(ValidationException.class, () -> service.execute("k".repeat(256), request, shortener));
+        verifyNoInteractions(store);
+    }
+}
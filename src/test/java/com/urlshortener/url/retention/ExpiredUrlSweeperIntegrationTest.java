@@ -0,0 +1,107 @@
+package com.urlshortener.url.retention;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.security.Role;
+import com.urlshortener.url.Url;
+import com.urlshortener.url.UrlRepository;
+import com.urlshortener.url.cache.ResolveCache;
+import com.urlshortener.user.User;
+import com.urlshortener.user.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+class ExpiredUrlSweeperIntegrationTest {
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ResolveCache resolveCache = mock(ResolveCache.class);
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .login("sweeper")
+                .email("sweeper@email.com")
+                .password("passWord123")
+                .role(Role.ROLE_USER)
+                .build());
+    }
+
+    @Test
+    void sweep_shouldArchiveExpiredUrlsWithVisits_whenArchiveIsEnabled() {
+        Url expired = saveUrl("expired", LocalDateTime.now().minusDays(30));
+        Url recentlyExpired = saveUrl("recent", LocalDateTime.now().minusDays(1));
+        Url active = saveUrl("active", LocalDateTime.now().plusDays(1));
+        urlRepository.incrementVisits(expired.getId());
+
+        long swept = sweeper(true, 10).sweep();
+        entityManager.clear();
+
+        assertEquals(1, swept);
+        assertTrue(urlRepository.findById(expired.getId()).isEmpty());
+        assertTrue(urlRepository.findById(recentlyExpired.getId()).isPresent());
+        assertTrue(urlRepository.findById(active.getId()).isPresent());
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT visits FROM urls_archive WHERE short_url_code = 'expired'", Long.class));
+        verify(resolveCache).evict("expired");
+    }
+
+    @Test
+    void sweep_shouldDeleteInBatches_whenArchiveIsDisabled() {
+        for (int i = 0; i < 5; i++) {
+            saveUrl("expired" + i, LocalDateTime.now().minusDays(30 + i));
+        }
+
+        long swept = sweeper(false, 2).sweep();
+
+        assertEquals(5, swept);
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM urls_archive WHERE user_id = ?", Integer.class, user.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM urls WHERE user_id = ?", Integer.class, user.getId()));
+        verify(resolveCache, times(5)).evict(anyString());
+    }
+
+    private ExpiredUrlSweeper sweeper(boolean archive, int batchSize) {
+        return new ExpiredUrlSweeper(jdbcTemplate, new TransactionTemplate(transactionManager),
+                new ShardQueryExecutor(new ShardResolver(1)), resolveCache, new SimpleMeterRegistry(),
+                batchSize, 100, Duration.ofDays(7), archive);
+    }
+
+    private Url saveUrl(String shortUrlCode, LocalDateTime expiresAt) {
+        return urlRepository.saveAndFlush(Url.builder()
+                .shortUrlCode(shortUrlCode)
+                .longUrl("https://www.example.com/" + shortUrlCode)
+                .expiresAt(expiresAt)
+                .user(user)
+                .build());
+    }
+}
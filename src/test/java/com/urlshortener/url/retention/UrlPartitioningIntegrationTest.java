@@ -0,0 +1,159 @@
+package com.urlshortener.url.retention;
+
+import com.urlshortener.config.sharding.ShardQueryExecutor;
+import com.urlshortener.config.sharding.ShardResolver;
+import com.urlshortener.security.Role;
+import com.urlshortener.url.Url;
+import com.urlshortener.url.UrlRepository;
+import com.urlshortener.user.User;
+import com.urlshortener.user.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the opt-in partitioning migration on top of the test schema and checks that the repositories keep
+ * working and that the maintenance job creates and drops monthly partitions.
+ */
+@DataJpaTest(properties = "spring.flyway.locations=classpath:db/test-migration,classpath:db/partitioning")
+class UrlPartitioningIntegrationTest {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .login("partitioned")
+                .email("partitioned@email.com")
+                .password("passWord123")
+                .role(Role.ROLE_USER)
+                .build());
+    }
+
+    @Test
+    void save_shouldStoreUrlInPartitionOfItsExpiryMonth() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMonths(1);
+        Url expiring = saveUrl("expiring", expiresAt);
+        Url permanent = saveUrl("permanent", null);
+
+        assertEquals("urls_p" + YearMonth.from(expiresAt).format(PARTITION_SUFFIX), partitionOf(expiring));
+        assertEquals("urls_permanent", partitionOf(permanent));
+        assertEquals(1, urlRepository.incrementVisits(expiring.getId()));
+        entityManager.clear();
+        assertEquals(1, urlRepository.findUrlByShortUrlCode("expiring").orElseThrow().getVisits());
+    }
+
+    @Test
+    void save_shouldRejectCodeTakenInAnotherPartition() {
+        saveUrl("taken", LocalDateTime.now().plusMonths(1));
+
+        assertThrows(DataIntegrityViolationException.class, () -> saveUrl("taken", null));
+    }
+
+    @Test
+    void migration_shouldKeepColumnsAndTriggersOfLaterMigrations() {
+        Url url = urlRepository.saveAndFlush(Url.builder()
+                .shortUrlCode("hashed")
+                .longUrl("https://www.example.com/hashed")
+                .longUrlHash(42L)
+                .user(user)
+                .build());
+        entityManager.clear();
+
+        assertEquals(42L, urlRepository.findById(url.getId()).orElseThrow().getLongUrlHash());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_trigger WHERE tgrelid = 'urls'::regclass"
+                        + " AND tgname IN ('trg_urls_notify_update', 'trg_urls_notify_delete')", Integer.class));
+    }
+
+    @Test
+    void maintain_shouldDropPartitionsExpiredBeforeGracePeriod() {
+        YearMonth past = YearMonth.now().minusMonths(3);
+        job(Clock.fixed(past.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()))
+                .createUpcomingPartitions();
+        Url expired = saveUrl("expired", past.atDay(10).atStartOfDay());
+        urlRepository.incrementVisits(expired.getId());
+
+        job(Clock.systemDefaultZone()).maintain();
+
+        assertFalse(partitionExists("urls_p" + past.format(PARTITION_SUFFIX)));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM url_visits WHERE url_id = ?", Integer.class, expired.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM url_codes WHERE url_id = ?", Integer.class, expired.getId()));
+        assertTrue(partitionExists("urls_p" + YearMonth.now().plusMonths(3).format(PARTITION_SUFFIX)));
+    }
+
+    @Test
+    void maintain_shouldMoveRowsFromDefaultPartition_whenCreatingPartition() {
+        YearMonth future = YearMonth.now().plusMonths(5);
+        Url url = saveUrl("future", future.atDay(15).atStartOfDay());
+        assertEquals("urls_default", partitionOf(url));
+
+        UrlPartitionMaintenanceJob job = new UrlPartitionMaintenanceJob(jdbcTemplate,
+                new TransactionTemplate(transactionManager), new ShardQueryExecutor(new ShardResolver(1)),
+                5, Duration.ofDays(7), Clock.systemDefaultZone());
+        job.maintain();
+
+        assertEquals("urls_p" + future.format(PARTITION_SUFFIX), partitionOf(url));
+        assertThrows(DataIntegrityViolationException.class, () -> saveUrl("future", null));
+    }
+
+    private UrlPartitionMaintenanceJob job(Clock clock) {
+        return new UrlPartitionMaintenanceJob(jdbcTemplate, new TransactionTemplate(transactionManager),
+                new ShardQueryExecutor(new ShardResolver(1)), 3, Duration.ofDays(7), clock);
+    }
+
+    private Url saveUrl(String shortUrlCode, LocalDateTime expiresAt) {
+        Url url = urlRepository.saveAndFlush(Url.builder()
+                .shortUrlCode(shortUrlCode)
+                .longUrl("https://www.example.com/" + shortUrlCode)
+                .expiresAt(expiresAt)
+                .user(user)
+                .build());
+        entityManager.clear();
+        return url;
+    }
+
+    private String partitionOf(Url url) {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM urls WHERE id = ?", String.class, url.getId());
+    }
+
+    private boolean partitionExists(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition));
+    }
+}
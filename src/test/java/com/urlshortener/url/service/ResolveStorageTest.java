@@ -0,0 +1,133 @@
+package com.urlshortener.url.service;
+
+import com.urlshortener.error.exception.ServiceUnavailableException;
+import com.urlshortener.url.Url;
+import com.urlshortener.url.cache.ResolveCache;
+import com.urlshortener.url.storage.UrlStorage;
+import com.urlshortener.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ResolveStorageTest {
+
+    private final UrlStorage urlStorage = mock(UrlStorage.class);
+    private final ResolveCache resolveCache = mock(ResolveCache.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private ResolveStorage resolveStorage;
+
+    @BeforeEach
+    void setUp() {
+        resolveStorage = new ResolveStorage(urlStorage, resolveCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new CircuitBreaker(2, Duration.ofMinutes(1)), registry, 2, executor);
+    }
+
+    @Test
+    void visitsAreBufferedWhileStorageFailsAndFlushedLater() {
+        when(urlStorage.incrementVisits(1L)).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertEquals(ResolveStorage.Visit.BUFFERED, resolveStorage.recordVisit(1L));
+        assertEquals(ResolveStorage.Visit.BUFFERED, resolveStorage.recordVisit(1L));
+        assertEquals(ResolveStorage.Visit.BUFFERED, resolveStorage.recordVisit(1L));
+
+        // The breaker opened after two failures, the third visit did not reach the storage
+        verify(urlStorage, times(2)).incrementVisits(1L);
+        assertEquals(3, registry.get("urlshortener.url.resolve.degraded").counter().count());
+        assertEquals(1, registry.get("urlshortener.url.visits.buffered").gauge().value());
+
+        resolveStorage.flushVisits();
+        verify(urlStorage, never()).addVisits(anyLong(), anyLong());
+    }
+
+    @Test
+    void flushAddsBufferedVisitsOnceStorageIsBack() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ZERO);
+        resolveStorage = new ResolveStorage(urlStorage, resolveCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                circuitBreaker, new SimpleMeterRegistry(), 2, executor);
+        when(urlStorage.incrementVisits(anyLong())).thenThrow(new DataAccessResourceFailureException("Down"));
+        when(urlStorage.addVisits(anyLong(), anyLong())).thenReturn(true);
+
+        resolveStorage.recordVisit(1L);
+        resolveStorage.recordVisit(1L);
+        resolveStorage.recordVisit(2L);
+        resolveStorage.recordVisit(3L);
+        resolveStorage.flushVisits();
+
+        verify(urlStorage).addVisits(1L, 2);
+        verify(urlStorage).addVisits(2L, 1);
+        // The buffer is bounded by the number of URLs
+        verify(urlStorage, never()).addVisits(eq(3L), anyLong());
+    }
+
+    @Test
+    void lookupFailsFastWhileBreakerIsOpen() {
+        when(urlStorage.findByShortUrlCode("abc")).thenThrow(new DataAccessResourceFailureException("Timeout"));
+
+        assertThrows(ServiceUnavailableException.class, () -> resolveStorage.findAndRecordVisit("abc"));
+        assertThrows(ServiceUnavailableException.class, () -> resolveStorage.findAndRecordVisit("abc"));
+        assertThrows(ServiceUnavailableException.class, () -> resolveStorage.findAndRecordVisit("abc"));
+
+        verify(urlStorage, times(2)).findByShortUrlCode("abc");
+        assertEquals(1, registry.get("urlshortener.url.resolve.storage.circuit.open").gauge().value());
+    }
+
+    @Test
+    void unexpectedFailureCountsTowardsBreaker() {
+        when(urlStorage.findByShortUrlCode("abc")).thenThrow(new IllegalStateException("Unexpected row"));
+
+        assertThrows(IllegalStateException.class, () -> resolveStorage.findAndRecordVisit("abc"));
+        assertThrows(IllegalStateException.class, () -> resolveStorage.findAndRecordVisit("abc"));
+        assertThrows(ServiceUnavailableException.class, () -> resolveStorage.findAndRecordVisit("abc"));
+
+        verify(urlStorage, times(2)).findByShortUrlCode("abc");
+    }
+
+    @Test
+    void lookupCountsVisitOfActiveUrlOnly() {
+        Url active = Url.builder().id(1L).shortUrlCode("abc").build();
+        Url expired = Url.builder().id(2L).shortUrlCode("def").expiresAt(LocalDateTime.now().minusDays(1)).build();
+        when(urlStorage.findByShortUrlCode("abc")).thenReturn(Optional.of(active));
+        when(urlStorage.findByShortUrlCode("def")).thenReturn(Optional.of(expired));
+
+        assertEquals(Optional.of(active), resolveStorage.findAndRecordVisit("abc"));
+        assertEquals(Optional.of(expired), resolveStorage.findAndRecordVisit("def"));
+
+        verify(urlStorage).incrementVisits(1L);
+        verify(urlStorage, never()).incrementVisits(2L);
+    }
+
+    @Test
+    void revalidationReplacesEntryOrReleasesClaim() throws InterruptedException {
+        Url url = Url.builder().id(1L).shortUrlCode("abc").build();
+        when(urlStorage.findByShortUrlCode("abc")).thenReturn(Optional.of(url));
+        when(urlStorage.findByShortUrlCode("def")).thenReturn(Optional.empty());
+        when(urlStorage.findByShortUrlCode("ghi")).thenThrow(new DataAccessResourceFailureException("Down"));
+
+        resolveStorage.revalidate("abc");
+        resolveStorage.revalidate("def");
+        resolveStorage.revalidate("ghi");
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        verify(resolveCache).put(url);
+        verify(resolveCache).putNotFound("def");
+        verify(resolveCache).releaseRevalidation("ghi");
+    }
+}
@@ -0,0 +1,233 @@
+package com.urlshortener.url.storage.log;
+
+import com.urlshortener.url.Url;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStructuredUrlStorageTest {
+    private static final DataSize SEGMENT_SIZE = DataSize.ofKilobytes(64);
+
+    @TempDir
+    private Path directory;
+    private LogStructuredUrlStorage storage;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        storage = open();
+        user = User.builder().id(1L).login("testuser").build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    @Test
+    void createdUrlIsReadFromTheLog() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MICROS);
+        Url url = url("abc123");
+        url.setExpiresAt(expiresAt);
+
+        storage.create(url);
+        Url found = storage.findByShortUrlCode("abc123").orElseThrow();
+
+        assertEquals(url.getId(), found.getId());
+        assertEquals("https://example.com/abc123", found.getLongUrl());
+        assertEquals(expiresAt, found.getExpiresAt());
+        assertEquals("testuser", found.getUser().getLogin());
+        assertThrows(DataIntegrityViolationException.class, () -> storage.create(url("abc123")));
+    }
+
+    @Test
+    void changesSurviveReopening() throws IOException {
+        Url kept = storage.create(url("kept"));
+        Url moved = storage.create(url("moved"));
+        Url deleted = storage.create(url("deleted"));
+        storage.incrementVisits(kept.getId());
+        storage.incrementVisits(kept.getId());
+
+        Url loaded = storage.findByShortUrlCode("moved").orElseThrow();
+        loaded.setShortUrlCode("renamed");
+        storage.update(loaded);
+        storage.delete(deleted);
+
+        reopen();
+
+        assertEquals(2, storage.findByShortUrlCode("kept").orElseThrow().getVisits());
+        assertEquals(moved.getId(), storage.findByShortUrlCode("renamed").orElseThrow().getId());
+        assertFalse(storage.existsByShortUrlCode("moved"));
+        assertFalse(storage.existsByShortUrlCode("deleted"));
+        assertEquals(List.of("kept", "renamed"), codes(storage.findAllByUserId(user.getId())));
+        assertTrue(storage.create(url("next")).getId() > deleted.getId());
+    }
+
+    @Test
+    void recoveryStopsAtTornRecord() throws IOException {
+        storage.create(url("first"));
+        storage.create(url("second"));
+        storage.flush();
+
+        // Corrupt the payload of the last record, as if the crash interrupted its write
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(LogSegment.fileName(1)).toFile(), "rw")) {
+            int secondOffset = LogStructuredUrlStorage.encodePut(url("first", 1L), "testuser", 0).length
+                    + LogSegment.HEADER_SIZE;
+            file.seek(secondOffset + LogSegment.HEADER_SIZE + 2);
+            file.write(0x7f);
+        }
+        crash();
+
+        assertTrue(storage.existsByShortUrlCode("first"));
+        assertFalse(storage.existsByShortUrlCode("second"));
+        assertNotNull(storage.create(url("third")));
+    }
+
+    @Test
+    void compactionReclaimsSupersededSegments() throws IOException {
+        Url url = storage.create(url("code0"));
+
+        // Every update supersedes the previous record, so the sealed segments become garbage
+        for (int i = 1; i <= 2_000; i++) {
+            Url loaded = storage.findByShortUrlCode("code" + (i - 1)).orElseThrow();
+            loaded.setShortUrlCode("code" + i);
+            storage.update(loaded);
+            storage.incrementVisits(url.getId());
+        }
+        int segmentsBefore = storage.getSegmentCount();
+
+        storage.flush();
+        storage.compact();
+
+        assertTrue(segmentsBefore > 2);
+        assertTrue(storage.getSegmentCount() < segmentsBefore);
+
+        reopen();
+
+        Url found = storage.findByShortUrlCode("code2000").orElseThrow();
+        assertEquals(url.getId(), found.getId());
+        assertEquals(2_000, found.getVisits());
+        assertEquals(1, storage.estimateCount());
+    }
+
+    @Test
+    void restartLoadsSnapshotAndReplaysLaterRecords() {
+        Url snapshotted = storage.create(url("snapshotted"));
+        Url deleted = storage.create(url("deleted"));
+        storage.incrementVisits(snapshotted.getId());
+        storage.snapshot();
+
+        Url appended = storage.create(url("appended"));
+        storage.delete(deleted);
+        storage.incrementVisits(snapshotted.getId());
+        storage.flush();
+
+        crash();
+
+        assertEquals(2, storage.findByShortUrlCode("snapshotted").orElseThrow().getVisits());
+        assertEquals(appended.getId(), storage.findByShortUrlCode("appended").orElseThrow().getId());
+        assertFalse(storage.existsByShortUrlCode("deleted"));
+        assertTrue(storage.create(url("next")).getId() > appended.getId());
+    }
+
+    @Test
+    void snapshotKeepsIndexOfPackedAndUnpackedCodes() {
+        Url packed = storage.create(url("abc123"));
+        Url unpacked = storage.create(url("not-packed-because-too-long"));
+        storage.addVisits(packed.getId(), 3);
+        storage.flush();
+        storage.snapshot();
+
+        storage.addVisits(packed.getId(), 2);
+        storage.addVisits(unpacked.getId(), 1);
+        storage.flush();
+
+        crash();
+
+        assertEquals(5, storage.findByShortUrlCode("abc123").orElseThrow().getVisits());
+        assertEquals(1, storage.findByShortUrlCode("not-packed-because-too-long").orElseThrow().getVisits());
+        assertEquals(List.of("abc123", "not-packed-because-too-long"), codes(storage.findAllByUserId(user.getId())));
+        assertTrue(storage.getOffHeapBytes() > 0);
+    }
+
+    @Test
+    void corruptSnapshotFallsBackToFullReplay() throws IOException {
+        storage.create(url("first"));
+        storage.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(LogSnapshot.FILE_NAME).toFile(), "rw")) {
+            file.seek(file.length() - 6);
+            file.write(0x7f);
+        }
+        storage = open();
+
+        assertTrue(storage.existsByShortUrlCode("first"));
+        assertEquals(1, storage.estimateCount());
+    }
+
+    @Test
+    void snapshotSurvivesCompaction() {
+        Url url = storage.create(url("code0"));
+        storage.snapshot();
+
+        for (int i = 1; i <= 2_000; i++) {
+            Url loaded = storage.findByShortUrlCode("code" + (i - 1)).orElseThrow();
+            loaded.setShortUrlCode("code" + i);
+            storage.update(loaded);
+        }
+        storage.compact();
+        crash();
+
+        assertEquals(url.getId(), storage.findByShortUrlCode("code2000").orElseThrow().getId());
+        assertEquals(1, storage.estimateCount());
+    }
+
+    private LogStructuredUrlStorage open() {
+        return new LogStructuredUrlStorage(directory, SEGMENT_SIZE, 0.5, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Opens the log again without closing the current storage, so no snapshot is written on shutdown.
+     */
+    private void crash() {
+        storage = open();
+    }
+
+    private void reopen() throws IOException {
+        storage.close();
+        storage = open();
+    }
+
+    private Url url(String shortUrlCode) {
+        return Url.builder()
+                .shortUrlCode(shortUrlCode)
+                .longUrl("https://example.com/" + shortUrlCode)
+                .user(user)
+                .build();
+    }
+
+    private Url url(String shortUrlCode, Long id) {
+        Url url = url(shortUrlCode);
+        url.setId(id);
+        url.setCreatedAt(LocalDateTime.now());
+        return url;
+    }
+
+    private static List<String> codes(List<Url> urls) {
+        return urls.stream().map(Url::getShortUrlCode).toList();
+    }
+}
@@ -0,0 +1,172 @@
+package com.urlshortener.url.storage.memory;
+
+import com.urlshortener.url.Url;
+import com.urlshortener.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUrlStorageTest {
+    private InMemoryUrlStorage storage;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUrlStorage(DataSize.ofKilobytes(64), new SimpleMeterRegistry());
+        user = User.builder().id(1L).login("testuser").build();
+    }
+
+    @Test
+    void createAssignsIdAndCreationTime() {
+        Url url = storage.create(url("abc123"));
+
+        assertNotNull(url.getId());
+        assertNotNull(url.getCreatedAt());
+        assertEquals(url, storage.findByShortUrlCode("abc123").orElseThrow());
+        assertTrue(storage.existsByShortUrlCode("abc123"));
+        assertEquals(1, storage.estimateCount());
+    }
+
+    @Test
+    void createRejectsTakenCode() {
+        storage.create(url("abc123"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> storage.create(url("abc123")));
+    }
+
+    @Test
+    void returnedUrlsDoNotChangeStoredState() {
+        storage.create(url("abc123"));
+
+        storage.findByShortUrlCode("abc123").orElseThrow().setExpiresAt(LocalDateTime.now());
+
+        assertNull(storage.findByShortUrlCode("abc123").orElseThrow().getExpiresAt());
+    }
+
+    @Test
+    void updateMovesUrlToNewCodeAndKeepsVisits() {
+        Url url = storage.create(url("abc123"));
+        storage.incrementVisits(url.getId());
+
+        Url loaded = storage.findByShortUrlCode("abc123").orElseThrow();
+        loaded.setShortUrlCode("xyz789");
+        storage.update(loaded);
+
+        assertFalse(storage.existsByShortUrlCode("abc123"));
+        assertEquals(1, storage.findByShortUrlCode("xyz789").orElseThrow().getVisits());
+        assertEquals(List.of("xyz789"), codes(storage.findAllByUserId(user.getId())));
+    }
+
+    @Test
+    void incrementVisitsReturnsFalseForUnknownUrl() {
+        assertFalse(storage.incrementVisits(42L));
+    }
+
+    @Test
+    void addVisitsAddsToCount() {
+        Url url = storage.create(url("abc123"));
+        storage.incrementVisits(url.getId());
+
+        assertTrue(storage.addVisits(url.getId(), 41));
+        assertEquals(42, storage.findByShortUrlCode("abc123").orElseThrow().getVisits());
+        assertFalse(storage.addVisits(42L, 1));
+    }
+
+    @Test
+    void findAllByUserIdReturnsUrlsInCreationOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        Url later = url("later");
+        later.setCreatedAt(now);
+        Url earlier = url("earlier");
+        earlier.setCreatedAt(now.minusDays(1));
+
+        storage.create(later);
+        storage.create(earlier);
+
+        assertEquals(List.of("earlier", "later"), codes(storage.findAllByUserId(user.getId())));
+        assertTrue(storage.findAllByUserId(2L).isEmpty());
+    }
+
+    @Test
+    void deleteRemovesUrlFromAllIndexes() {
+        Url url = storage.create(url("abc123"));
+
+        storage.delete(url);
+
+        assertTrue(storage.findByShortUrlCode("abc123").isEmpty());
+        assertTrue(storage.findAllByUserId(user.getId()).isEmpty());
+        assertFalse(storage.incrementVisits(url.getId()));
+        assertEquals(0, storage.estimateCount());
+    }
+
+    @Test
+    void codesTooLongToPackAreStored() {
+        storage.create(url("abcdefghijklmnop"));
+
+        assertEquals(0, InMemoryUrlStorage.packCode("abcdefghijklmnop"));
+        assertTrue(storage.existsByShortUrlCode("abcdefghijklmnop"));
+        assertFalse(storage.existsByShortUrlCode("abcdefghij"));
+    }
+
+    @Test
+    void packedCodesAreDistinctAcrossLengths() {
+        assertNotEquals(InMemoryUrlStorage.packCode("0"), InMemoryUrlStorage.packCode("00"));
+        assertNotEquals(0, InMemoryUrlStorage.packCode("zzzzzzzzzz"));
+        assertTrue(InMemoryUrlStorage.packCode("zzzzzzzzzz") > 0);
+    }
+
+    @Test
+    void replacedRecordsAreCompacted() {
+        Url url = storage.create(url("code0"));
+        storage.incrementVisits(url.getId());
+
+        // Every update leaves a replaced record behind, well beyond one 64 KB chunk
+        for (int i = 1; i <= 5_000; i++) {
+            Url loaded = storage.findByShortUrlCode("code" + (i - 1)).orElseThrow();
+            loaded.setShortUrlCode("code" + i);
+            storage.update(loaded);
+        }
+
+        Url found = storage.findByShortUrlCode("code5000").orElseThrow();
+        assertEquals(url.getId(), found.getId());
+        assertEquals(1, found.getVisits());
+        assertFalse(storage.existsByShortUrlCode("code4999"));
+        assertTrue(storage.getOffHeapBytes() < 5_000L * 64);
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws InterruptedException {
+        Url url = storage.create(url("abc123"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 10_000; i++) {
+            executor.execute(() -> storage.incrementVisits(url.getId()));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10_000, storage.findByShortUrlCode("abc123").orElseThrow().getVisits());
+    }
+
+    private Url url(String shortUrlCode) {
+        return Url.builder()
+                .shortUrlCode(shortUrlCode)
+                .longUrl("https://example.com/" + shortUrlCode)
+                .user(user)
+                .build();
+    }
+
+    private static List<String> codes(List<Url> urls) {
+        return urls.stream().map(Url::getShortUrlCode).toList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.urlshortener.url.storage.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapLongTableTest {
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        OffHeapLongTable table = new OffHeapLongTable();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // A small key range forces long probe sequences, growth and removals in the middle of them
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, OffHeapLongTable.NOT_FOUND), table.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, OffHeapLongTable.NOT_FOUND), table.put(key, i));
+                expected.put(key, (long) i);
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        Map<Long, Long> iterated = new HashMap<>();
+        table.forEach(iterated::put);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    void rejectsEmptySlotKey() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapLongTable().put(0, 1));
+    }
+}
@@ -0,0 +1,45 @@
+package com.urlshortener.url.storage.memory;
+
+import com.urlshortener.url.Url;
+import com.urlshortener.user.User;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the memory taken by one URL in the {@link InMemoryUrlStorage} with the heap footprint
+ * of the same URL as an entity, measured with JOL.
+ */
+class UrlMemoryFootprintTest {
+    private static final String SHORT_URL_CODE = "aB3dE9x";
+    private static final String LONG_URL = "https://www.example.com/articles/2024/05/how-to-measure-memory-in-java";
+
+    @Test
+    void offHeapRecordIsSmallerThanEntity() {
+        User user = User.builder().id(1L).login("testuser").build();
+        Url url = Url.builder()
+                .id(1_000_000L)
+                .shortUrlCode(SHORT_URL_CODE)
+                .longUrl(LONG_URL)
+                .visits(42)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusDays(30))
+                .user(user)
+                .build();
+
+        // The user is shared by all URLs of its owner, so only the entity graph without it is counted
+        long entityBytes = GraphLayout.parseInstance(url).totalSize() - GraphLayout.parseInstance(user).totalSize();
+
+        // Record plus one slot of the code and of the ID table at the 0.7 load factor
+        int recordBytes = InMemoryUrlStorage.recordSize(SHORT_URL_CODE.getBytes(StandardCharsets.UTF_8),
+                LONG_URL.getBytes(StandardCharsets.UTF_8));
+        long offHeapBytes = ((recordBytes + 7) & -8) + Math.round(2 * 16 / 0.7);
+
+        assertTrue(offHeapBytes < entityBytes,
+                "off-heap bytes per URL: " + offHeapBytes + ", entity bytes: " + entityBytes);
+    }
+}
@@ -1,5 +1,6 @@
 package com.urlshortener.user;
 
+import com.urlshortener.config.sharding.UserShardReplicator;
 import com.urlshortener.error.exception.UserExistsException;
 import com.urlshortener.error.exception.ValidationException;
 import com.urlshortener.security.Role;
@@ -33,6 +34,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserShardReplicator userShardReplicator;
+
     @InjectMocks
     private UserService userService;
 
@@ -0,0 +1,139 @@
+package com.urlshortener.util;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in server speaking the subset of RESP2 used with {@link RespClient}: {@code GET}, {@code SET ... PX},
+ * {@code DEL}, {@code INCR} and {@code PEXPIRE}. TTLs are recorded but not enforced.
+ */
+public final class RespStandInServer implements Closeable {
+    private final ServerSocket serverSocket = new ServerSocket(0);
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+    private volatile boolean failAll;
+    private volatile int connections;
+
+    public RespStandInServer() throws IOException {
+        Thread.ofVirtual().start(() -> {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    connections++;
+                    Thread.ofVirtual().start(() -> serve(socket));
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+        });
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the TTL last set for the key, in milliseconds.
+     */
+    public Long ttl(String key) {
+        return ttls.get(key);
+    }
+
+    /**
+     * Makes every following command fail with an error reply.
+     */
+    public void failAll() {
+        failAll = true;
+    }
+
+    public int connections() {
+        return connections;
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = socket.getOutputStream();
+
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                out.write(reply(command).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Disconnected
+        }
+    }
+
+    private String reply(List<String> command) {
+        if (failAll) {
+            return "-ERR stand-in failure\r\n";
+        }
+        return switch (command.get(0)) {
+            case "GET" -> {
+                String value = values.get(command.get(1));
+                yield value == null ? "$-1\r\n"
+                        : "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+            }
+            case "SET" -> {
+                values.put(command.get(1), command.get(2));
+                ttls.put(command.get(1), Long.parseLong(command.get(4)));
+                yield "+OK\r\n";
+            }
+            case "DEL" -> ":" + (values.remove(command.get(1)) == null ? 0 : 1) + "\r\n";
+            case "INCR" -> ":" + values.merge(command.get(1), "1",
+                    (current, one) -> Long.toString(Long.parseLong(current) + 1)) + "\r\n";
+            case "PEXPIRE" -> {
+                boolean exists = values.containsKey(command.get(1));
+                if (exists) {
+                    ttls.put(command.get(1), Long.parseLong(command.get(2)));
+                }
+                yield ":" + (exists ? 1 : 0) + "\r\n";
+            }
+            default -> "-ERR unknown command\r\n";
+        };
+    }
+
+    private static List<String> readCommand(DataInputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+
+        int count = Integer.parseInt(header.substring(1));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            byte[] bytes = new byte[length + 2];
+            in.readFully(bytes);
+            command.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        return command;
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int c; (c = in.read()) != '\r'; ) {
+            if (c == -1) {
+                return null;
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
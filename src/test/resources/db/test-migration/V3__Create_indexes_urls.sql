@@ -0,0 +1,6 @@
+-- The test schema has no unique constraint on short_url_code, so the index backing it is created explicitly
+CREATE INDEX IF NOT EXISTS idx_urls_short_url_code ON urls (short_url_code);
+
+CREATE INDEX IF NOT EXISTS idx_urls_user_id_created_at ON urls (user_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_urls_expires_at ON urls (expires_at) WHERE expires_at IS NOT NULL;
@@ -0,0 +1,26 @@
+-- Notifies the application nodes about URLs whose cached resolve result became stale,
+-- see ResolveCacheInvalidationListener. The payload is "<epoch millis> <short url code>";
+-- notifications are only delivered on commit, identical payloads of one transaction are merged.
+CREATE OR REPLACE FUNCTION notify_url_change() RETURNS trigger AS
+$$
+BEGIN
+    PERFORM pg_notify('url_changes',
+                      (extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT || ' ' || OLD.short_url_code);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_urls_notify_update ON urls;
+CREATE TRIGGER trg_urls_notify_update
+    AFTER UPDATE OF short_url_code, expires_at
+    ON urls
+    FOR EACH ROW
+    WHEN (OLD.short_url_code IS DISTINCT FROM NEW.short_url_code OR OLD.expires_at IS DISTINCT FROM NEW.expires_at)
+EXECUTE FUNCTION notify_url_change();
+
+DROP TRIGGER IF EXISTS trg_urls_notify_delete ON urls;
+CREATE TRIGGER trg_urls_notify_delete
+    AFTER DELETE
+    ON urls
+    FOR EACH ROW
+EXECUTE FUNCTION notify_url_change();
@@ -0,0 +1,6 @@
+-- Hash of the normalized long URL, used to find an active URL of the same user before creating another one
+-- (url.dedup.enabled). URLs created before this migration have no hash and are never reused.
+ALTER TABLE urls ADD COLUMN IF NOT EXISTS long_url_hash BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_urls_user_id_long_url_hash ON urls (user_id, long_url_hash)
+    WHERE long_url_hash IS NOT NULL;